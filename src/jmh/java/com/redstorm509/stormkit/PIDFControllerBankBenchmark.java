@@ -0,0 +1,62 @@
+package com.redstorm509.stormkit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares updating N controllers through a {@link PIDFControllerBank} against N separate {@link PIDFController}s.
+ * Scores are per update of all N controllers; divide by N for the per-controller cost.
+ */
+@State(Scope.Thread)
+public class PIDFControllerBankBenchmark {
+	@Param({ "4", "16", "64" })
+	public int controllerCount;
+
+	private PIDFControllerBank bank;
+	private PIDFController[] controllers;
+	private double[] measurements;
+	private double[] outputs;
+
+	@Setup
+	public void setup() {
+		bank = new PIDFControllerBank(controllerCount);
+		controllers = new PIDFController[controllerCount];
+		measurements = new double[controllerCount];
+		outputs = new double[controllerCount];
+
+		for (int i = 0; i < controllerCount; i++) {
+			double kp = 0.5 + 0.01 * i;
+			bank.setPIDF(i, kp, 0.05, 0.01, 0.1);
+			bank.setSetpoint(i, 1.0);
+			controllers[i] = new PIDFController(kp, 0.05, 0.01, 0.1);
+			controllers[i].setSetpoint(1.0);
+			measurements[i] = 0.01 * i;
+		}
+	}
+
+	private void advanceMeasurements() {
+		for (int i = 0; i < controllerCount; i++) {
+			double measurement = measurements[i] + 0.001;
+			measurements[i] = measurement > 2.0 ? 0.0 : measurement;
+		}
+	}
+
+	@Benchmark
+	public double[] bank() {
+		advanceMeasurements();
+		bank.calculate(measurements, outputs);
+		return outputs;
+	}
+
+	@Benchmark
+	public double[] separateControllers() {
+		advanceMeasurements();
+		for (int i = 0; i < controllerCount; i++) {
+			outputs[i] = controllers[i].calculate(measurements[i]);
+		}
+		return outputs;
+	}
+}
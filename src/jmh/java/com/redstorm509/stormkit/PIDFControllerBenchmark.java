@@ -0,0 +1,31 @@
+package com.redstorm509.stormkit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of a single PIDF controller update.
+ */
+@State(Scope.Thread)
+public class PIDFControllerBenchmark {
+	private PIDFController controller;
+	private double measurement;
+
+	@Setup
+	public void setup() {
+		controller = new PIDFController(0.8, 0.05, 0.01, 0.1);
+		controller.setSetpoint(1.0);
+		measurement = 0.0;
+	}
+
+	@Benchmark
+	public double calculate() {
+		measurement += 0.001;
+		if (measurement > 2.0) {
+			measurement = 0.0;
+		}
+		return controller.calculate(measurement);
+	}
+}
@@ -0,0 +1,61 @@
+package com.redstorm509.stormkit.command;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Measures one loop of an EventDrivenSubsystem that cycles through its states, taking a guarded transition every {@code dwell} loops.
+ */
+@State(Scope.Thread)
+public class EventDrivenSubsystemBenchmark {
+	enum Phase {
+		Idle,
+		Intake,
+		Stow,
+		Score
+	}
+
+	static final class CyclingSubsystem extends EventDrivenSubsystem<Phase> {
+		final int dwell;
+		int loops = 0;
+		double work = 0.0;
+
+		CyclingSubsystem(int dwell) {
+			super(Phase.class, Phase.Idle);
+			this.dwell = dwell;
+			Phase[] phases = Phase.values();
+			for (int i = 0; i < phases.length; i++) {
+				Phase next = phases[(i + 1) % phases.length];
+				onEnter(phases[i], () -> loops = 0);
+				onUpdate(phases[i], () -> {
+					loops++;
+					work += 1.0;
+				});
+				addTransition(phases[i], next, () -> loops >= this.dwell);
+				addTransition(phases[i], Phase.Idle);
+			}
+		}
+	}
+
+	@Param({ "1", "50" })
+	public int dwell;
+
+	private CyclingSubsystem subsystem;
+
+	@Setup
+	public void setup() {
+		HAL.initialize(500, 0);
+		subsystem = new CyclingSubsystem(dwell);
+	}
+
+	@Benchmark
+	public Phase periodic() {
+		subsystem.periodic();
+		return subsystem.getCurrentState();
+	}
+}
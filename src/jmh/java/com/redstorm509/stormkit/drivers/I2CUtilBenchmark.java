@@ -0,0 +1,65 @@
+package com.redstorm509.stormkit.drivers;
+
+import java.nio.ByteBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the Java side of I2CUtil transactions against the simulated HAL, where no device answers. The GC profiler's
+ * bytes-per-op column should read zero for every method: steady-state polling must not allocate.
+ */
+@State(Scope.Thread)
+public class I2CUtilBenchmark {
+	private static final short REGISTER = 0x0089;
+
+	private I2CUtil i2c;
+	private final byte[] array = new byte[16];
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+	private byte value;
+
+	@Setup
+	public void setup() {
+		i2c = new I2CUtil(0, (byte) 0x29);
+	}
+
+	@TearDown
+	public void tearDown() {
+		i2c.close();
+	}
+
+	@Benchmark
+	public boolean readFromAddress16bitArray() {
+		return i2c.readFromAddress16bit(REGISTER, (byte) 15, array);
+	}
+
+	@Benchmark
+	public boolean readFromAddress16bitBuffer() {
+		return i2c.readFromAddress16bit(REGISTER, buffer, 0, 15);
+	}
+
+	@Benchmark
+	public boolean readFromAddress16bitBufferOffset() {
+		return i2c.readFromAddress16bit(REGISTER, buffer, 8, 15);
+	}
+
+	@Benchmark
+	public boolean writeToAddress16bitByte() {
+		return i2c.writeToAddress16bit(REGISTER, value++);
+	}
+
+	@Benchmark
+	public boolean writeToAddress16bitArray() {
+		array[0] = value++;
+		return i2c.writeToAddress16bit(REGISTER, array);
+	}
+
+	@Benchmark
+	public boolean writeToAddress16bitBuffer() {
+		buffer.put(0, value++);
+		return i2c.writeToAddress16bit(REGISTER, buffer, 0, 4);
+	}
+}
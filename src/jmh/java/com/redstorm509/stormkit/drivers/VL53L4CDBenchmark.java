@@ -0,0 +1,86 @@
+package com.redstorm509.stormkit.drivers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.Pair;
+
+/**
+ * Measures the pure register encoding and decoding helpers and the measurement filter of the VL53L4CD driver, without any I2C traffic.
+ */
+@State(Scope.Thread)
+public class VL53L4CDBenchmark {
+	private final byte[] buffer = new byte[4];
+	private final byte[] resultBlock = { 0x09, 0x00, 0x00, 0x10, 0x00, 0x01, 0x20, 0x00, 0x05, 0x00, 0x30, 0x00, 0x00, 0x01, (byte) 0xF4 };
+	private short word;
+	private byte rangeStatus;
+	private VL53L4CDFilter filter;
+	private final VL53L4CD.Measurement measurement = new VL53L4CD.Measurement(VL53L4CD.Status.Valid, (short) 500, (short) 80, (short) 4000,
+			(short) 40, (short) 5, 0.0);
+
+	@Setup
+	public void setup() {
+		buffer[0] = 0x12;
+		buffer[1] = 0x34;
+		buffer[2] = 0x56;
+		buffer[3] = 0x78;
+		word = 0x0500;
+		rangeStatus = 0;
+		filter = new VL53L4CDFilter(5);
+		filter.enableKalman(2000.0);
+	}
+
+	@Benchmark
+	public short decodeWord() {
+		return VL53L4CD.decodeWord(buffer, 0);
+	}
+
+	@Benchmark
+	public int decodeDword() {
+		return VL53L4CD.decodeDword(buffer, 0);
+	}
+
+	@Benchmark
+	public byte[] encodeWord() {
+		word++;
+		VL53L4CD.encodeWord(word, buffer, 0);
+		return buffer;
+	}
+
+	@Benchmark
+	public byte[] encodeDword() {
+		word++;
+		VL53L4CD.encodeDword(word, buffer, 0);
+		return buffer;
+	}
+
+	@Benchmark
+	public byte[] registerAsBytes() {
+		return VL53L4CD.Register.RESULT_DISTANCE.asBytes();
+	}
+
+	@Benchmark
+	public VL53L4CD.Severity decodeStatus() {
+		rangeStatus = (byte) ((rangeStatus + 1) & 0x1f);
+		return VL53L4CD.Status.fromReturn(rangeStatus).severity();
+	}
+
+	@Benchmark
+	public VL53L4CD.Measurement decodeResultBlock() {
+		return VL53L4CD.decodeResultBlock(resultBlock);
+	}
+
+	@Benchmark
+	public Pair<Short, Short> rangeConfigValues() {
+		return VL53L4CD.rangeConfigValues(17500, (short) 0x0BB8);
+	}
+
+	@Benchmark
+	public boolean filterAccept() {
+		measurement.timestampSeconds += 0.01;
+		measurement.distanceMillimeters = (short) (500 + (word++ & 0xf));
+		return filter.accept(measurement);
+	}
+}
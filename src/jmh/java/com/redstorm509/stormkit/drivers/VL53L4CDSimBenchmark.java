@@ -0,0 +1,151 @@
+package com.redstorm509.stormkit.drivers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.redstorm509.stormkit.drivers.simulation.SimulatedI2CTransport;
+import com.redstorm509.stormkit.drivers.simulation.VL53L4CDSim;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.I2C;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+
+/**
+ * Runs the VL53L4CD driver against simulated sensors on a simulated bus. The single-sensor benchmarks measure driver overhead with an instant bus; the array
+ * benchmarks model a 400 kHz bus and measure startup time and aggregate samples per second.
+ */
+public class VL53L4CDSimBenchmark {
+	// Time per byte on the wire at 400 kHz, including the ACK bit.
+	private static final double BYTE_SECONDS_400KHZ = 9.0 / 400_000.0;
+
+	@State(Scope.Benchmark)
+	public static class SingleSensor {
+		VL53L4CD sensor;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			HAL.initialize(500, 0);
+			SimulatedI2CTransport transport = new SimulatedI2CTransport();
+			transport.addDevice(new VL53L4CDSim());
+			I2CBus.setTransport(I2C.Port.kOnboard.value, transport);
+
+			sensor = new VL53L4CD(I2C.Port.kOnboard);
+			sensor.init();
+			sensor.setRangeTiming(10, 0);
+			sensor.startRanging();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class StartingArray {
+		@Param({ "1", "4", "6" })
+		public int sensorCount;
+
+		int[] enableChannels;
+		VL53L4CDArray array;
+
+		@Setup(Level.Trial)
+		public void setupBus() {
+			enableChannels = createSimulatedBus(sensorCount);
+		}
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			array = new VL53L4CDArray(I2C.Port.kMXP, enableChannels);
+		}
+
+		@TearDown(Level.Iteration)
+		public void tearDown() {
+			array.close();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class RunningArray {
+		@Param({ "1", "4", "6" })
+		public int sensorCount;
+
+		VL53L4CDArray array;
+		long lastSampleCount;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			array = new VL53L4CDArray(I2C.Port.kMXP, createSimulatedBus(sensorCount));
+			array.init();
+			array.setRangeTiming(10, 0);
+			array.start();
+			lastSampleCount = array.getSampleCount();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			array.close();
+		}
+	}
+
+	/**
+	 * Puts simulated sensors on a simulated 400 kHz bus, each with XSHUT wired to its own DIO channel.
+	 *
+	 * @return The DIO channel of each sensor.
+	 */
+	private static int[] createSimulatedBus(int sensorCount) {
+		HAL.initialize(500, 0);
+		SimulatedI2CTransport transport = new SimulatedI2CTransport();
+		transport.setLatency(0.0, BYTE_SECONDS_400KHZ);
+		int[] enableChannels = new int[sensorCount];
+		for (int i = 0; i < sensorCount; i++) {
+			enableChannels[i] = i;
+			VL53L4CDSim sim = new VL53L4CDSim();
+			DIOSim enable = new DIOSim(i);
+			sim.setEnableSource(enable::getValue);
+			transport.addDevice(sim);
+		}
+		I2CBus.setTransport(I2C.Port.kMXP.value, transport);
+		return enableChannels;
+	}
+
+	@Benchmark
+	public boolean hasMeasurement(SingleSensor state) {
+		return state.sensor.hasMeasurement();
+	}
+
+	@Benchmark
+	public VL53L4CD.Measurement readMeasurement(SingleSensor state) {
+		return state.sensor.readMeasurement();
+	}
+
+	/**
+	 * Time for {@link VL53L4CDArray#init()} to bring every sensor up.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public boolean arrayStartup(StartingArray state) {
+		return state.array.init();
+	}
+
+	/**
+	 * Waits for the next sample from any sensor, so the throughput score is the array's aggregate samples per second.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public long arraySample(RunningArray state) {
+		long count;
+		while ((count = state.array.getSampleCount()) == state.lastSampleCount) {
+			Thread.onSpinWait();
+		}
+		state.lastSampleCount = count;
+		return count;
+	}
+}
@@ -0,0 +1,41 @@
+package com.redstorm509.stormkit.math;
+
+import java.util.ArrayList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.redstorm509.stormkit.math.IKSolver.SegmentParams;
+
+/**
+ * Measures the cost of the closed-form two segment inverse kinematics solve.
+ */
+@State(Scope.Thread)
+public class AnalyticTwoLinkBenchmark {
+	@Param({ "reachable", "unreachable" })
+	public String target;
+
+	private IKSolver solver;
+	private double targetX;
+	private double targetY;
+
+	@Setup
+	public void setup() {
+		ArrayList<SegmentParams> segments = new ArrayList<>();
+		segments.add(new SegmentParams(-Math.PI, Math.PI, Math.PI / 2.0, 0.5));
+		segments.add(new SegmentParams(-Math.PI, Math.PI, -Math.PI / 4.0, 0.5));
+		solver = new IKSolver(segments, 1, new AnalyticTwoLinkStrategy());
+
+		double radius = target.equals("reachable") ? 0.6 : 1.5;
+		targetX = radius * Math.cos(Math.PI / 6.0);
+		targetY = radius * Math.sin(Math.PI / 6.0);
+	}
+
+	@Benchmark
+	public double inverseKinematics() {
+		return solver.inverseKinematics(targetX, targetY).residualMeters;
+	}
+}
@@ -0,0 +1,46 @@
+package com.redstorm509.stormkit.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures one coordinated update of a three-axis arm moving back and forth between two poses, with and without a keep-out zone to check.
+ */
+@State(Scope.Thread)
+public class CoordinatedPositionTargetBenchmark {
+	private static final double PERIOD = 0.02;
+
+	@Param({ "false", "true" })
+	public boolean keepOut;
+
+	private CoordinatedPositionTarget target;
+	private double time;
+	private double direction;
+
+	@Setup
+	public void setup() {
+		target = new CoordinatedPositionTarget(new double[] { 0.0, 0.0, 0.0 }, new double[] { -1.5, 0.0, -2.0 }, new double[] { 1.5, 1.2, 2.0 },
+				new double[] { 3.0, 1.5, 6.0 });
+		if (keepOut) {
+			// A box the path never enters, so every update checks it and moves.
+			target.addKeepOutZone(positions -> positions[0] < -1.4 && positions[1] < 0.1);
+		}
+		time = 0.0;
+		direction = 1.0;
+		target.update(time);
+		target.setGoals(1.0, 1.0, 1.5);
+	}
+
+	@Benchmark
+	public double update() {
+		time += PERIOD;
+		if (!target.update(time)) {
+			direction = -direction;
+			target.setGoals(direction, 0.5 + 0.5 * direction, 1.5 * direction);
+		}
+		return target.getTarget(0);
+	}
+}
@@ -0,0 +1,63 @@
+package com.redstorm509.stormkit.math;
+
+import java.util.ArrayList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.redstorm509.stormkit.math.IKSolver.SegmentParams;
+
+/**
+ * Measures lookup latency and refinement cost of a two segment IK lookup table at several grid resolutions.
+ * The memory footprint of each resolution is printed once at the end of its trial.
+ */
+@State(Scope.Thread)
+public class IKLookupTableBenchmark {
+	@Param({ "32", "128", "512" })
+	public int resolution;
+
+	private IKLookupTable table;
+	private IKSolver solver;
+	private final double[] angles = new double[2];
+	private double x;
+
+	@Setup
+	public void setup() {
+		ArrayList<SegmentParams> segments = new ArrayList<>();
+		segments.add(new SegmentParams(-Math.PI, Math.PI, Math.PI / 2.0, 0.5));
+		segments.add(new SegmentParams(-Math.PI, Math.PI, -Math.PI / 4.0, 0.5));
+		table = IKLookupTable.build(segments, -1.0, -1.0, 1.0, 1.0, resolution, resolution);
+		solver = new IKSolver(segments, 100, new DampedLeastSquaresStrategy());
+		solver.setTolerance(1e-3);
+		x = 0.0;
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println(table);
+	}
+
+	private double nextX() {
+		// Sweep the target back and forth so consecutive lookups land in different cells.
+		x += 0.0137;
+		if (x > 0.7) {
+			x = -0.7;
+		}
+		return x;
+	}
+
+	@Benchmark
+	public double[] lookup() {
+		table.lookup(nextX(), 0.3, angles);
+		return angles;
+	}
+
+	@Benchmark
+	public IKSolveResult lookupAndRefine() {
+		return table.solve(solver, nextX(), 0.3, angles);
+	}
+}
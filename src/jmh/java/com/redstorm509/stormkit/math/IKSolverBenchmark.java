@@ -0,0 +1,79 @@
+package com.redstorm509.stormkit.math;
+
+import java.util.ArrayList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.redstorm509.stormkit.math.IKSolver.SegmentParams;
+
+import edu.wpi.first.math.Vector;
+import edu.wpi.first.math.numbers.N2;
+
+/**
+ * Measures the cost of solving and evaluating arm kinematics for chains of 2 to 6 segments.
+ * Every solve starts from the same pose, so these are cold-start costs rather than warm-started ones.
+ */
+@State(Scope.Thread)
+public class IKSolverBenchmark {
+	private static final double SEGMENT_LENGTH_METERS = 0.5;
+
+	@Param({ "2", "3", "4", "5", "6" })
+	public int segmentCount;
+
+	@Param({ "reachable", "unreachable" })
+	public String target;
+
+	@Param({ "ccd", "dampedLeastSquares" })
+	public String strategy;
+
+	private ArrayList<SegmentParams> segments;
+	private double[] initialAngles;
+	private IKSolver solver;
+	private double targetX;
+	private double targetY;
+
+	@Setup
+	public void setup() {
+		segments = new ArrayList<>();
+		initialAngles = new double[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			initialAngles[i] = i == 0 ? Math.PI / 2.0 : -Math.PI / (2.0 * segmentCount);
+			segments.add(new SegmentParams(-Math.PI, Math.PI, initialAngles[i], SEGMENT_LENGTH_METERS));
+		}
+		solver = new IKSolver(segments, 100, strategy.equals("ccd") ? new CCDStrategy() : new DampedLeastSquaresStrategy());
+
+		double reach = SEGMENT_LENGTH_METERS * segmentCount;
+		double radius = target.equals("reachable") ? 0.6 * reach : 1.5 * reach;
+		targetX = radius * Math.cos(Math.PI / 6.0);
+		targetY = radius * Math.sin(Math.PI / 6.0);
+	}
+
+	private void resetAngles() {
+		for (int i = 0; i < segmentCount; i++) {
+			segments.get(i).pivotRadians = initialAngles[i];
+		}
+	}
+
+	@Benchmark
+	public double inverseKinematics() {
+		resetAngles();
+		solver.inverseKinematics(targetX, targetY);
+		return segments.get(segmentCount - 1).pivotRadians;
+	}
+
+	@Benchmark
+	public ArrayList<Vector<N2>> forwardKinematics() {
+		return solver.forwardKinematics();
+	}
+
+	@Benchmark
+	public double chainForwardKinematics() {
+		IKChain chain = solver.getChain();
+		chain.forwardKinematics();
+		return chain.getEndEffectorX() + chain.getEndEffectorY();
+	}
+}
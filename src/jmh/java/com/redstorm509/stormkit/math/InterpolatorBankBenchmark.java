@@ -0,0 +1,65 @@
+package com.redstorm509.stormkit.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares updating N channels through an {@link InterpolatorBank} against N separate {@link Interpolator}s, with every channel kept moving.
+ * Scores are per update of all N channels; divide by N for the per-channel cost.
+ */
+@State(Scope.Thread)
+public class InterpolatorBankBenchmark {
+	@Param({ "4", "16", "64" })
+	public int channelCount;
+
+	@Param({ "Exponential", "CriticallyDamped" })
+	public String mode;
+
+	private InterpolatorBank bank;
+	private Interpolator[] interpolators;
+	private double[] positions;
+	private int step;
+
+	@Setup
+	public void setup() {
+		Interpolator.Mode interpolatorMode = Interpolator.Mode.valueOf(mode);
+		bank = new InterpolatorBank(channelCount, 4.0, interpolatorMode);
+		interpolators = new Interpolator[channelCount];
+		positions = new double[channelCount];
+		for (int i = 0; i < channelCount; i++) {
+			double scale = 4.0 + 0.1 * i;
+			bank.setScale(i, scale);
+			interpolators[i] = new Interpolator(scale, interpolatorMode);
+		}
+		step = 0;
+	}
+
+	// Flip every set point every 256 steps so no channel fully settles.
+	private double nextSetPoint() {
+		return (++step & 0x100) == 0 ? 1.0 : -1.0;
+	}
+
+	@Benchmark
+	public double[] bank() {
+		double setPoint = nextSetPoint();
+		for (int i = 0; i < channelCount; i++) {
+			bank.setPoint(i, setPoint);
+		}
+		bank.update(0.02);
+		bank.getPositions(positions);
+		return positions;
+	}
+
+	@Benchmark
+	public double[] separateInterpolators() {
+		double setPoint = nextSetPoint();
+		for (int i = 0; i < channelCount; i++) {
+			interpolators[i].setPoint(setPoint);
+			positions[i] = interpolators[i].update(0.02);
+		}
+		return positions;
+	}
+}
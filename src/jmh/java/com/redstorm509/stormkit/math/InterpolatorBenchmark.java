@@ -0,0 +1,34 @@
+package com.redstorm509.stormkit.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of a single interpolator step at the default robot loop period, in each mode.
+ */
+@State(Scope.Thread)
+public class InterpolatorBenchmark {
+	@Param({ "Linear", "Exponential", "CriticallyDamped" })
+	public String mode;
+
+	private Interpolator interpolator;
+	private int step;
+
+	@Setup
+	public void setup() {
+		interpolator = new Interpolator(4.0, Interpolator.Mode.valueOf(mode));
+		step = 0;
+	}
+
+	@Benchmark
+	public double update() {
+		// Flip the set point every 256 steps so the interpolator never fully settles.
+		if ((++step & 0xFF) == 0) {
+			interpolator.setPoint((step & 0x100) == 0 ? 1.0 : -1.0);
+		}
+		return interpolator.update(0.02);
+	}
+}
@@ -0,0 +1,49 @@
+package com.redstorm509.stormkit.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures sampling a motion profile as a loop would, and re-planning it mid-motion, for trapezoidal and S-curve profiles.
+ */
+@State(Scope.Thread)
+public class MotionProfileBenchmark {
+	private static final double PERIOD = 0.005;
+
+	@Param({ "trapezoid", "scurve" })
+	public String shape;
+
+	private MotionProfile profile;
+	private double time;
+	private double goal;
+
+	@Setup
+	public void setup() {
+		profile = "scurve".equals(shape) ? new MotionProfile(2.0, 4.0, 20.0) : new MotionProfile(2.0, 4.0);
+		goal = 1.5;
+		time = 0.0;
+		profile.plan(time, 0.0, 0.0, goal);
+	}
+
+	@Benchmark
+	public double sample() {
+		time += PERIOD;
+		if (profile.isFinished(time)) {
+			goal = -goal;
+			profile.plan(time, profile.getGoal(), 0.0, goal);
+		}
+		profile.sample(time);
+		return profile.getPosition();
+	}
+
+	@Benchmark
+	public double replan() {
+		time += PERIOD;
+		goal = -goal;
+		profile.replan(time, goal);
+		return profile.getDurationSeconds();
+	}
+}
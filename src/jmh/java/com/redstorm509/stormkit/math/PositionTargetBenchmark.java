@@ -0,0 +1,27 @@
+package com.redstorm509.stormkit.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of a rate-limited target update, including its FPGA timestamp reads.
+ */
+@State(Scope.Thread)
+public class PositionTargetBenchmark {
+	private PositionTarget target;
+	private double percent;
+
+	@Setup
+	public void setup() {
+		target = new PositionTarget(0.0, -1.0, 1.0, 2.0);
+		percent = 0.5;
+	}
+
+	@Benchmark
+	public double update() {
+		percent = -percent;
+		return target.update(percent);
+	}
+}
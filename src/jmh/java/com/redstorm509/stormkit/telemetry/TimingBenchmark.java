@@ -0,0 +1,19 @@
+package com.redstorm509.stormkit.telemetry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the overhead of timing an empty span. Run with {@code -Dstormkit.timing=false} to see the disabled cost.
+ */
+@State(Scope.Thread)
+public class TimingBenchmark {
+	private final TimingSpan span = Timing.span("TimingBenchmark/empty");
+
+	@Benchmark
+	public void emptySpan() {
+		long start = span.start();
+		span.end(start);
+	}
+}
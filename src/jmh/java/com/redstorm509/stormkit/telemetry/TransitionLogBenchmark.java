@@ -0,0 +1,45 @@
+package com.redstorm509.stormkit.telemetry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Measures the cost of recording a transition, with the writer thread flushing to a temporary file in the background.
+ */
+@State(Scope.Thread)
+public class TransitionLogBenchmark {
+	private Path path;
+	private TransitionLog log;
+	private short id;
+	private int state = 0;
+
+	@Setup
+	public void setup() throws IOException {
+		HAL.initialize(500, 0);
+		path = Files.createTempFile("transitions", ".sktl");
+		log = new TransitionLog(path);
+		id = log.register("TransitionLogBenchmark");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		log.close();
+		Files.deleteIfExists(path);
+	}
+
+	@Benchmark
+	public void append() {
+		int from = state;
+		state = (state + 1) & 7;
+		log.append(id, from, state);
+	}
+}
@@ -0,0 +1,48 @@
+package com.redstorm509.stormkit.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures recording and time lookups in a full TimeSeriesBuffer of 100 Hz samples.
+ */
+@State(Scope.Thread)
+public class TimeSeriesBufferBenchmark {
+	private static final double PERIOD = 0.01;
+
+	@Param({ "64", "512", "4096" })
+	public int capacity;
+
+	private TimeSeriesBuffer buffer;
+	private double time;
+	private double queryOffset;
+
+	@Setup
+	public void setup() {
+		buffer = new TimeSeriesBuffer(capacity);
+		for (int i = 0; i < capacity; i++) {
+			buffer.add(i * PERIOD, i);
+		}
+		time = capacity * PERIOD;
+		queryOffset = 0.0;
+	}
+
+	@Benchmark
+	public boolean add() {
+		time += PERIOD;
+		return buffer.add(time, time);
+	}
+
+	@Benchmark
+	public double getValueAt() {
+		// Walk the query back through the buffer so the binary search doesn't always take the same path.
+		queryOffset += 0.37 * PERIOD;
+		if (queryOffset > capacity * PERIOD) {
+			queryOffset = 0.0;
+		}
+		return buffer.getValueAt(buffer.getNewestTimestamp() - queryOffset);
+	}
+}
@@ -6,6 +6,7 @@ import edu.wpi.first.util.sendable.SendableBuilder;
 /** Implements a PIDF control loop. */
 public class PIDFController extends PIDController {
 	private double kF = 0.0d;
+	private double kV = 0.0d;
 
 	/**
 	 * Allocates a PIDFController with the given constants for kp, ki, kd, and kf and a default period of
@@ -53,6 +54,24 @@ public class PIDFController extends PIDController {
 		this.kF = kf;
 	}
 
+	/**
+	 * Get the velocity feedforward coefficient.
+	 *
+	 * @return velocity feedforward coefficient
+	 */
+	public double getV() {
+		return kV;
+	}
+
+	/**
+	 * Sets the velocity feedforward coefficient, applied to the setpoint velocity passed to {@link PIDFController#calculate(double, double, double)}.
+	 *
+	 * @param kv velocity feedforward coefficient
+	 */
+	public void setV(double kv) {
+		this.kV = kv;
+	}
+
 	/**
 	 * Sets the PIDF Controller gain parameters.
 	 *
@@ -79,9 +98,24 @@ public class PIDFController extends PIDController {
 		return super.calculate(measurement) + measurement * kF;
 	}
 
+	/**
+	 * Returns the next output of the PID controller for a moving setpoint, such as a sample of a
+	 * {@link com.redstorm509.stormkit.math.MotionProfile}.
+	 *
+	 * @param measurement The current measurement of the process variable.
+	 * @param setpoint The new setpoint of the controller.
+	 * @param setpointVelocity The rate of change of the setpoint, multiplied by the velocity feedforward coefficient.
+	 * @return The next controller output.
+	 */
+	public double calculate(double measurement, double setpoint, double setpointVelocity) {
+		setSetpoint(setpoint);
+		return calculate(measurement) + setpointVelocity * kV;
+	}
+
 	@Override
 	public void initSendable(SendableBuilder builder) {
         super.initSendable(builder);
         builder.addDoubleProperty("f", this::getF, this::setF);
+        builder.addDoubleProperty("v", this::getV, this::setV);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,354 @@
+package com.redstorm509.stormkit;
+
+import java.util.Arrays;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Runs many PIDF control loops that share an update period, e.g. every swerve module's steering loop.
+ * Gains and controller state are kept in struct-of-arrays storage and every output is computed in a single loop, instead of one virtual
+ * {@link PIDFController#calculate(double)} call per mechanism.
+ * Each controller's output matches a {@link PIDFController} with the same configuration and inputs bit-for-bit.
+ */
+public class PIDFControllerBank {
+	private final int size;
+	private final double period;
+
+	private final double[] kp;
+	private final double[] ki;
+	private final double[] kd;
+	private final double[] kf;
+	private final double[] setpoints;
+	private final double[] iZones;
+	private final double[] minimumIntegrals;
+	private final double[] maximumIntegrals;
+	// The integrator range divided by ki, cached since it only changes alongside the gains.
+	private final double[] minimumTotalErrors;
+	private final double[] maximumTotalErrors;
+	private final boolean[] continuous;
+	private final double[] minimumInputs;
+	private final double[] maximumInputs;
+
+	private final double[] measurements;
+	private final double[] errors;
+	private final double[] previousErrors;
+	private final double[] errorDerivatives;
+	private final double[] totalErrors;
+
+	/**
+	 * Allocates a PIDFControllerBank of controllers with zeroed gains and a default period of 0.02 seconds.
+	 *
+	 * @param size The number of controllers in the bank.
+	 */
+	public PIDFControllerBank(int size) {
+		this(size, 0.02);
+	}
+
+	/**
+	 * Allocates a PIDFControllerBank of controllers with zeroed gains.
+	 *
+	 * @param size The number of controllers in the bank.
+	 * @param period The period between controller updates in seconds. Must be non-zero and positive.
+	 */
+	public PIDFControllerBank(int size, double period) {
+		if (size < 1) {
+			throw new IllegalArgumentException("A PIDFControllerBank must have at least one controller, " + size + " given");
+		}
+		if (period <= 0.0) {
+			throw new IllegalArgumentException("Controller period must be a positive number!");
+		}
+
+		this.size = size;
+		this.period = period;
+		this.kp = new double[size];
+		this.ki = new double[size];
+		this.kd = new double[size];
+		this.kf = new double[size];
+		this.setpoints = new double[size];
+		this.iZones = new double[size];
+		this.minimumIntegrals = new double[size];
+		this.maximumIntegrals = new double[size];
+		this.minimumTotalErrors = new double[size];
+		this.maximumTotalErrors = new double[size];
+		this.continuous = new boolean[size];
+		this.minimumInputs = new double[size];
+		this.maximumInputs = new double[size];
+		this.measurements = new double[size];
+		this.errors = new double[size];
+		this.previousErrors = new double[size];
+		this.errorDerivatives = new double[size];
+		this.totalErrors = new double[size];
+
+		// Same defaults as PIDController.
+		Arrays.fill(iZones, Double.POSITIVE_INFINITY);
+		Arrays.fill(minimumIntegrals, -1.0);
+		Arrays.fill(maximumIntegrals, 1.0);
+		for (int i = 0; i < size; i++) {
+			updateTotalErrorRange(i);
+		}
+	}
+
+	/**
+	 * Gets the number of controllers in the bank.
+	 *
+	 * @return The number of controllers.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the period of the controllers in the bank.
+	 *
+	 * @return The period between controller updates in seconds.
+	 */
+	public double getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Sets the PIDF gains of a controller.
+	 *
+	 * @param index The index of the controller.
+	 * @param kp The proportional coefficient.
+	 * @param ki The integral coefficient.
+	 * @param kd The derivative coefficient.
+	 * @param kf The feedforward coefficient.
+	 */
+	public void setPIDF(int index, double kp, double ki, double kd, double kf) {
+		this.kp[index] = kp;
+		this.ki[index] = ki;
+		this.kd[index] = kd;
+		this.kf[index] = kf;
+		updateTotalErrorRange(index);
+	}
+
+	/**
+	 * Gets the proportional coefficient of a controller.
+	 *
+	 * @param index The index of the controller.
+	 * @return proportional coefficient
+	 */
+	public double getP(int index) {
+		return kp[index];
+	}
+
+	/**
+	 * Gets the integral coefficient of a controller.
+	 *
+	 * @param index The index of the controller.
+	 * @return integral coefficient
+	 */
+	public double getI(int index) {
+		return ki[index];
+	}
+
+	/**
+	 * Gets the derivative coefficient of a controller.
+	 *
+	 * @param index The index of the controller.
+	 * @return derivative coefficient
+	 */
+	public double getD(int index) {
+		return kd[index];
+	}
+
+	/**
+	 * Gets the feedforward coefficient of a controller.
+	 *
+	 * @param index The index of the controller.
+	 * @return feedforward coefficient
+	 */
+	public double getF(int index) {
+		return kf[index];
+	}
+
+	/**
+	 * Sets the setpoint of a controller. Like PIDController#setSetpoint, this recomputes the error against the last measurement, which the next update
+	 * then takes its derivative from.
+	 *
+	 * @param index The index of the controller.
+	 * @param setpoint The desired setpoint.
+	 */
+	public void setSetpoint(int index, double setpoint) {
+		setpoints[index] = setpoint;
+		errors[index] = error(index, measurements[index]);
+		errorDerivatives[index] = (errors[index] - previousErrors[index]) / period;
+	}
+
+	/**
+	 * Gets the setpoint of a controller.
+	 *
+	 * @param index The index of the controller.
+	 * @return The current setpoint.
+	 */
+	public double getSetpoint(int index) {
+		return setpoints[index];
+	}
+
+	/**
+	 * Sets the IZone of a controller. When the absolute value of the error exceeds the IZone, the accumulated error is reset.
+	 *
+	 * @param index The index of the controller.
+	 * @param iZone Maximum magnitude of error to allow integral control. Must be non-negative.
+	 */
+	public void setIZone(int index, double iZone) {
+		if (iZone < 0) {
+			throw new IllegalArgumentException("IZone must be a non-negative number!");
+		}
+		iZones[index] = iZone;
+	}
+
+	/**
+	 * Sets the minimum and maximum contributions of the integral term of a controller.
+	 *
+	 * @param index The index of the controller.
+	 * @param minimumIntegral The minimum contribution of the integral term.
+	 * @param maximumIntegral The maximum contribution of the integral term.
+	 */
+	public void setIntegratorRange(int index, double minimumIntegral, double maximumIntegral) {
+		minimumIntegrals[index] = minimumIntegral;
+		maximumIntegrals[index] = maximumIntegral;
+		updateTotalErrorRange(index);
+	}
+
+	/**
+	 * Enables continuous input on a controller, so that the error wraps around between the minimum and maximum input.
+	 *
+	 * @param index The index of the controller.
+	 * @param minimumInput The minimum value expected from the input.
+	 * @param maximumInput The maximum value expected from the input.
+	 */
+	public void enableContinuousInput(int index, double minimumInput, double maximumInput) {
+		continuous[index] = true;
+		minimumInputs[index] = minimumInput;
+		maximumInputs[index] = maximumInput;
+	}
+
+	/**
+	 * Disables continuous input on a controller.
+	 *
+	 * @param index The index of the controller.
+	 */
+	public void disableContinuousInput(int index) {
+		continuous[index] = false;
+	}
+
+	/**
+	 * Gets the error of a controller as of its last update.
+	 *
+	 * @param index The index of the controller.
+	 * @return The error.
+	 */
+	public double getError(int index) {
+		return errors[index];
+	}
+
+	/**
+	 * Gets the error derivative of a controller as of its last update.
+	 *
+	 * @param index The index of the controller.
+	 * @return The error derivative.
+	 */
+	public double getErrorDerivative(int index) {
+		return errorDerivatives[index];
+	}
+
+	/**
+	 * Gets the accumulated error of a controller.
+	 *
+	 * @param index The index of the controller.
+	 * @return The accumulated error.
+	 */
+	public double getAccumulatedError(int index) {
+		return totalErrors[index];
+	}
+
+	/**
+	 * Resets the previous error and the integral term of a controller.
+	 *
+	 * @param index The index of the controller.
+	 */
+	public void reset(int index) {
+		errors[index] = 0.0;
+		previousErrors[index] = 0.0;
+		errorDerivatives[index] = 0.0;
+		totalErrors[index] = 0.0;
+	}
+
+	/**
+	 * Resets the previous error and the integral term of every controller.
+	 */
+	public void reset() {
+		Arrays.fill(errors, 0.0);
+		Arrays.fill(previousErrors, 0.0);
+		Arrays.fill(errorDerivatives, 0.0);
+		Arrays.fill(totalErrors, 0.0);
+	}
+
+	/**
+	 * Returns the next output of a single controller.
+	 *
+	 * @param index The index of the controller.
+	 * @param measurement The current measurement of the process variable.
+	 * @return The next controller output.
+	 */
+	public double calculate(int index, double measurement) {
+		return step(index, measurement);
+	}
+
+	/**
+	 * Computes the next output of every controller in the bank. This does not allocate.
+	 *
+	 * @param measurements The current measurement of each controller's process variable, indexed by controller.
+	 * @param outputs An array of at least {@link PIDFControllerBank#size()} elements to write each controller's output into.
+	 */
+	public void calculate(double[] measurements, double[] outputs) {
+		if (measurements.length < size || outputs.length < size) {
+			throw new IllegalArgumentException("Measurement and output arrays must have at least " + size + " elements");
+		}
+
+		for (int i = 0; i < size; i++) {
+			outputs[i] = step(i, measurements[i]);
+		}
+	}
+
+	/**
+	 * Advances a single controller. The arithmetic mirrors PIDController#calculate operation for operation, so results are bit-identical.
+	 */
+	private double step(int i, double measurement) {
+		double previousError = errors[i];
+		double error = error(i, measurement);
+
+		double errorDerivative = (error - previousError) / period;
+
+		double totalError = totalErrors[i];
+		double gainI = ki[i];
+		if (Math.abs(error) > iZones[i]) {
+			totalError = 0.0;
+		} else if (gainI != 0) {
+			totalError = MathUtil.clamp(totalError + error * period, minimumTotalErrors[i], maximumTotalErrors[i]);
+		}
+
+		measurements[i] = measurement;
+		errors[i] = error;
+		previousErrors[i] = previousError;
+		errorDerivatives[i] = errorDerivative;
+		totalErrors[i] = totalError;
+
+		return (kp[i] * error + gainI * totalError + kd[i] * errorDerivative) + measurement * kf[i];
+	}
+
+	private double error(int i, double measurement) {
+		if (continuous[i]) {
+			double errorBound = (maximumInputs[i] - minimumInputs[i]) / 2.0;
+			return MathUtil.inputModulus(setpoints[i] - measurement, -errorBound, errorBound);
+		}
+		return setpoints[i] - measurement;
+	}
+
+	private void updateTotalErrorRange(int index) {
+		minimumTotalErrors[index] = minimumIntegrals[index] / ki[index];
+		maximumTotalErrors[index] = maximumIntegrals[index] / ki[index];
+	}
+}
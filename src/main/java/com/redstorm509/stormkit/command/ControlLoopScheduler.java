@@ -0,0 +1,346 @@
+package com.redstorm509.stormkit.command;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+import com.redstorm509.stormkit.PIDFController;
+import com.redstorm509.stormkit.telemetry.Timing;
+import com.redstorm509.stormkit.telemetry.TimingSpan;
+import com.redstorm509.stormkit.util.LogHistogram;
+import com.redstorm509.stormkit.util.SnapshotBuffer;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+
+/**
+ * Runs PIDF control loops on a dedicated thread at a higher rate than the main robot loop.
+ * Loops are registered before the scheduler is started, each with its own rate (which must evenly divide the scheduler's base rate), a measurement source, and an output sink.
+ * Setpoints flow to the loop thread, and measurements, outputs, errors and timing statistics flow back to the main loop through lock-free buffers, so neither thread ever waits on the other.
+ * Snapshots are picked up once per main loop in {@link ControlLoopScheduler#periodic()}, so every read within a loop sees the same consistent data.
+ */
+public class ControlLoopScheduler extends SubsystemBase implements AutoCloseable {
+	private static final class ControlLoop {
+		final PIDFController controller;
+		final DoubleSupplier measurementSource;
+		final DoubleConsumer outputSink;
+		final int divisor;
+
+		ControlLoop(PIDFController controller, DoubleSupplier measurementSource, DoubleConsumer outputSink, int divisor) {
+			this.controller = controller;
+			this.measurementSource = measurementSource;
+			this.outputSink = outputSink;
+			this.divisor = divisor;
+		}
+	}
+
+	// Snapshot layout: three values per loop, followed by the timing statistics.
+	private static final int LOOP_STRIDE = 3;
+	private static final int MEASUREMENT = 0;
+	private static final int OUTPUT = 1;
+	private static final int ERROR = 2;
+	private static final int STAT_MIN_PERIOD = 0;
+	private static final int STAT_MAX_PERIOD = 1;
+	private static final int STAT_P99_PERIOD = 2;
+	private static final int STAT_OVERRUNS = 3;
+	private static final int STAT_TICKS = 4;
+	private static final int STAT_COUNT = 5;
+
+	private static final AtomicInteger instanceCount = new AtomicInteger();
+
+	// Each scheduler ticks on its own Notifier thread, and a span is recorded from one thread at a time, so every scheduler has its own.
+	private final TimingSpan tickSpan = Timing.span("ControlLoopScheduler/" + instanceCount.getAndIncrement() + "/tick");
+	private final double frequencyHz;
+	private final long periodNanos;
+	private final ArrayList<ControlLoop> loopList = new ArrayList<>();
+	private ControlLoop[] loops;
+	private AtomicLongArray setpoints;
+	private SnapshotBuffer snapshots;
+	private Notifier notifier;
+
+	// State owned by the loop thread.
+	private long tick = 0;
+	private long lastTickNanos = 0;
+	private long overruns = 0;
+	private double p99PeriodSeconds = 0.0;
+	// The snapshot most recently published, used to carry forward loops that don't run every tick.
+	private double[] lastPublished;
+	// Periods longer than a second are clamped; the loop is badly broken long before then.
+	private final LogHistogram periodHistogram = new LogHistogram(1_000_000_000L);
+	private final int statisticsInterval;
+	private volatile boolean resetStatistics = false;
+	private volatile boolean skipNextPeriod = false;
+
+	/**
+	 * Constructs a ControlLoopScheduler.
+	 *
+	 * @param frequencyHz The base rate of the loop thread in hertz, e.g. 200 or 1000. Every registered loop runs at this rate or an integer fraction of it.
+	 */
+	public ControlLoopScheduler(double frequencyHz) {
+		if (frequencyHz <= 0.0) {
+			throw new IllegalArgumentException("Scheduler frequency must be a positive number!");
+		}
+		this.frequencyHz = frequencyHz;
+		this.periodNanos = Math.round(1e9 / frequencyHz);
+		// Recompute the percentile roughly once per 20 ms robot loop.
+		this.statisticsInterval = Math.max(1, (int) Math.round(frequencyHz * 0.02));
+	}
+
+	/**
+	 * Registers a control loop that runs at the scheduler's base rate.
+	 *
+	 * @param controller The controller. Its period must match the scheduler's base period.
+	 * @param measurementSource Supplies the current measurement of the process variable. Called from the loop thread.
+	 * @param outputSink Receives each controller output. Called from the loop thread.
+	 * @return A handle used to set the loop's setpoint and read back its state.
+	 */
+	public int register(PIDFController controller, DoubleSupplier measurementSource, DoubleConsumer outputSink) {
+		return register(controller, measurementSource, outputSink, frequencyHz);
+	}
+
+	/**
+	 * Registers a control loop.
+	 *
+	 * @param controller The controller. Its period must match the loop's rate.
+	 * @param measurementSource Supplies the current measurement of the process variable. Called from the loop thread.
+	 * @param outputSink Receives each controller output. Called from the loop thread.
+	 * @param rateHz The rate to run the loop at in hertz. Must evenly divide the scheduler's base rate.
+	 * @return A handle used to set the loop's setpoint and read back its state.
+	 */
+	public int register(PIDFController controller, DoubleSupplier measurementSource, DoubleConsumer outputSink, double rateHz) {
+		if (loops != null) {
+			throw new IllegalStateException("Control loops must be registered before the scheduler is started");
+		}
+
+		int divisor = (int) Math.round(frequencyHz / rateHz);
+		if (divisor < 1 || Math.abs(frequencyHz / divisor - rateHz) > 1e-6) {
+			throw new IllegalArgumentException("Loop rate " + rateHz + " Hz does not evenly divide the scheduler rate of " + frequencyHz + " Hz");
+		}
+		if (Math.abs(controller.getPeriod() - divisor / frequencyHz) > 1e-9) {
+			throw new IllegalArgumentException("Controller period " + controller.getPeriod() + " s does not match the loop period of " + (divisor / frequencyHz) + " s");
+		}
+
+		loopList.add(new ControlLoop(controller, measurementSource, outputSink, divisor));
+		return loopList.size() - 1;
+	}
+
+	/**
+	 * Starts running the registered loops on the loop thread. No more loops can be registered afterwards.
+	 */
+	public void start() {
+		if (loops == null) {
+			loops = loopList.toArray(new ControlLoop[0]);
+			setpoints = new AtomicLongArray(loops.length);
+			for (int i = 0; i < loops.length; i++) {
+				setpoints.set(i, Double.doubleToRawLongBits(loops[i].controller.getSetpoint()));
+			}
+			snapshots = new SnapshotBuffer(loops.length * LOOP_STRIDE + STAT_COUNT);
+			lastPublished = new double[loops.length * LOOP_STRIDE + STAT_COUNT];
+
+			notifier = new Notifier(this::runTick);
+			notifier.setName("ControlLoopScheduler");
+		}
+
+		// The time spent stopped isn't a real period.
+		skipNextPeriod = true;
+		notifier.startPeriodic(1.0 / frequencyHz);
+	}
+
+	/**
+	 * Stops the loop thread. The controllers keep their state, and the scheduler can be started again.
+	 */
+	public void stop() {
+		if (notifier != null) {
+			notifier.stop();
+		}
+	}
+
+	@Override
+	public void close() {
+		if (notifier != null) {
+			notifier.close();
+		}
+	}
+
+	/**
+	 * Sets the setpoint of a loop. Takes effect on the loop's next tick.
+	 *
+	 * @param handle The handle returned when the loop was registered.
+	 * @param setpoint The desired setpoint.
+	 */
+	public void setSetpoint(int handle, double setpoint) {
+		if (setpoints == null) {
+			loopList.get(handle).controller.setSetpoint(setpoint);
+		} else {
+			setpoints.set(handle, Double.doubleToRawLongBits(setpoint));
+		}
+	}
+
+	/**
+	 * Gets the latest measurement of a loop as of the current main loop.
+	 *
+	 * @param handle The handle returned when the loop was registered.
+	 * @return The measurement.
+	 */
+	public double getMeasurement(int handle) {
+		return readLoop(handle, MEASUREMENT);
+	}
+
+	/**
+	 * Gets the latest output of a loop as of the current main loop.
+	 *
+	 * @param handle The handle returned when the loop was registered.
+	 * @return The controller output.
+	 */
+	public double getOutput(int handle) {
+		return readLoop(handle, OUTPUT);
+	}
+
+	/**
+	 * Gets the latest error of a loop as of the current main loop.
+	 *
+	 * @param handle The handle returned when the loop was registered.
+	 * @return The controller error.
+	 */
+	public double getError(int handle) {
+		return readLoop(handle, ERROR);
+	}
+
+	/**
+	 * Gets the shortest time between two ticks of the loop thread.
+	 *
+	 * @return The minimum period in seconds.
+	 */
+	public double getMinPeriodSeconds() {
+		return readStatistic(STAT_MIN_PERIOD);
+	}
+
+	/**
+	 * Gets the longest time between two ticks of the loop thread.
+	 *
+	 * @return The maximum period in seconds.
+	 */
+	public double getMaxPeriodSeconds() {
+		return readStatistic(STAT_MAX_PERIOD);
+	}
+
+	/**
+	 * Gets the 99th percentile of the time between ticks of the loop thread, to within about 3%.
+	 *
+	 * @return The 99th percentile period in seconds.
+	 */
+	public double getP99PeriodSeconds() {
+		return readStatistic(STAT_P99_PERIOD);
+	}
+
+	/**
+	 * Gets the number of ticks whose loops took longer to run than the base period.
+	 *
+	 * @return The number of overruns.
+	 */
+	public long getOverrunCount() {
+		return (long) readStatistic(STAT_OVERRUNS);
+	}
+
+	/**
+	 * Gets the number of ticks the loop thread has run.
+	 *
+	 * @return The number of ticks.
+	 */
+	public long getTickCount() {
+		return (long) readStatistic(STAT_TICKS);
+	}
+
+	/**
+	 * Clears the timing statistics. Takes effect on the loop thread's next tick.
+	 */
+	public void resetStatistics() {
+		resetStatistics = true;
+	}
+
+	@Override
+	public void periodic() {
+		if (snapshots != null) {
+			snapshots.update();
+		}
+	}
+
+	private double readLoop(int handle, int field) {
+		if (snapshots == null) {
+			return 0.0;
+		}
+		return snapshots.getReadBuffer()[handle * LOOP_STRIDE + field];
+	}
+
+	private double readStatistic(int field) {
+		if (snapshots == null) {
+			return 0.0;
+		}
+		return snapshots.getReadBuffer()[loops.length * LOOP_STRIDE + field];
+	}
+
+	private void runTick() {
+		long startNanos = System.nanoTime();
+		recordPeriod(startNanos);
+
+		double[] snapshot = snapshots.getWriteBuffer();
+		for (int i = 0; i < loops.length; i++) {
+			ControlLoop loop = loops[i];
+			int base = i * LOOP_STRIDE;
+
+			if (tick % loop.divisor == 0) {
+				double measurement = loop.measurementSource.getAsDouble();
+				loop.controller.setSetpoint(Double.longBitsToDouble(setpoints.get(i)));
+				double output = loop.controller.calculate(measurement);
+				loop.outputSink.accept(output);
+
+				snapshot[base + MEASUREMENT] = measurement;
+				snapshot[base + OUTPUT] = output;
+				snapshot[base + ERROR] = loop.controller.getError();
+			} else {
+				// Loops that didn't run this tick carry their last values into the new snapshot.
+				snapshot[base + MEASUREMENT] = lastPublished[base + MEASUREMENT];
+				snapshot[base + OUTPUT] = lastPublished[base + OUTPUT];
+				snapshot[base + ERROR] = lastPublished[base + ERROR];
+			}
+		}
+		tick++;
+
+		long endNanos = System.nanoTime();
+		if (endNanos - startNanos > periodNanos) {
+			overruns++;
+		}
+		tickSpan.record(endNanos - startNanos);
+
+		int stats = loops.length * LOOP_STRIDE;
+		snapshot[stats + STAT_MIN_PERIOD] = periodHistogram.getMin() * 1e-9;
+		snapshot[stats + STAT_MAX_PERIOD] = periodHistogram.getMax() * 1e-9;
+		snapshot[stats + STAT_P99_PERIOD] = p99PeriodSeconds;
+		snapshot[stats + STAT_OVERRUNS] = overruns;
+		snapshot[stats + STAT_TICKS] = tick;
+
+		lastPublished = snapshot;
+		snapshots.publish();
+	}
+
+	private void recordPeriod(long nowNanos) {
+		if (resetStatistics) {
+			resetStatistics = false;
+			overruns = 0;
+			p99PeriodSeconds = 0.0;
+			periodHistogram.reset();
+		}
+
+		if (skipNextPeriod) {
+			skipNextPeriod = false;
+		} else {
+			periodHistogram.record(nowNanos - lastTickNanos);
+			if (periodHistogram.getTotalCount() % statisticsInterval == 0) {
+				p99PeriodSeconds = periodHistogram.getValueAtPercentile(99.0) * 1e-9;
+			}
+		}
+		lastTickNanos = nowNanos;
+	}
+}
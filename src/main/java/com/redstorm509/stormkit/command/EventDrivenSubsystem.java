@@ -0,0 +1,276 @@
+package com.redstorm509.stormkit.command;
+
+import java.util.ArrayList;
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.wpilibj2.command.InstantCommand;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+
+/**
+ * A {@link StatefulSubsystem} whose states and transitions are registered up front instead of being polled through {@link StatefulSubsystem#getState()}.
+ * Each state has its own enter, exit and update handlers, and leaves either when one of its guards is true or when an event requests a transition it permits.
+ * States can be nested so that children share their parent's handlers and transitions, and further {@link StateMachine}s can be added as orthogonal regions
+ * that run in the same loop. Register everything in the subclass's constructor. The registrations are compiled into arrays indexed by state ordinal on the
+ * first loop, so each loop only checks the guards of the current state and runs its update handlers. See {@link StateMachine}.
+ *
+ * <p>
+ * In modes whose policy is {@link StatefulSubsystem.ModePolicy#Alternate}, the subsystem and its regions use their alternate transitions instead.
+ */
+public abstract class EventDrivenSubsystem<S extends Enum<S>> extends StatefulSubsystem<S> {
+	private final StateMachine<S> machine;
+	private final ArrayList<StateMachine<?>> regionList = new ArrayList<>();
+	private StateMachine<?>[] regions;
+	private boolean usingAlternate = false;
+
+	/**
+	 * Constructs an EventDrivenSubsystem.
+	 *
+	 * @param stateType The enum of states.
+	 * @param startingState The initial state of the subsystem. Its enter handler runs on the first loop.
+	 */
+	public EventDrivenSubsystem(Class<S> stateType, S startingState) {
+		super(startingState);
+		this.machine = new StateMachine<>(stateType, startingState);
+	}
+
+	/**
+	 * Sets the handler run once when a state is entered.
+	 *
+	 * @param state The state.
+	 * @param handler The handler.
+	 */
+	protected final void onEnter(S state, Runnable handler) {
+		machine.onEnter(state, handler);
+	}
+
+	/**
+	 * Sets the handler run once when a state is exited.
+	 *
+	 * @param state The state.
+	 * @param handler The handler.
+	 */
+	protected final void onExit(S state, Runnable handler) {
+		machine.onExit(state, handler);
+	}
+
+	/**
+	 * Sets the handler run every loop while in a state or any of its children, including the loop it was entered on.
+	 *
+	 * @param state The state.
+	 * @param handler The handler.
+	 */
+	protected final void onUpdate(S state, Runnable handler) {
+		machine.onUpdate(state, handler);
+	}
+
+	/**
+	 * Nests a state under a parent, so that it shares the parent's handlers and transitions. See {@link StateMachine#setParent(Enum, Enum)}.
+	 *
+	 * @param child The child state.
+	 * @param parent The parent state.
+	 */
+	protected final void setParent(S child, S parent) {
+		machine.setParent(child, parent);
+	}
+
+	/**
+	 * Adds a transition taken when its guard is true. Guards are only checked while in their source state or one of its children, in the order they were
+	 * added, and the first one that is true wins.
+	 *
+	 * @param from The source state.
+	 * @param to The target state.
+	 * @param guard The condition for the transition.
+	 */
+	protected final void addTransition(S from, S to, BooleanSupplier guard) {
+		machine.addTransition(from, to, guard);
+	}
+
+	/**
+	 * Permits a transition to be taken by an event through {@link EventDrivenSubsystem#requestState(Enum)}.
+	 *
+	 * @param from The source state.
+	 * @param to The target state.
+	 */
+	protected final void addTransition(S from, S to) {
+		machine.addTransition(from, to);
+	}
+
+	/**
+	 * Adds a transition used instead of the primary ones in modes whose policy is {@link StatefulSubsystem.ModePolicy#Alternate}, taken when its guard is
+	 * true.
+	 *
+	 * @param from The source state.
+	 * @param to The target state.
+	 * @param guard The condition for the transition.
+	 */
+	protected final void addAlternateTransition(S from, S to, BooleanSupplier guard) {
+		machine.addAlternateTransition(from, to, guard);
+	}
+
+	/**
+	 * Permits a transition to be requested in modes whose policy is {@link StatefulSubsystem.ModePolicy#Alternate}.
+	 *
+	 * @param from The source state.
+	 * @param to The target state.
+	 */
+	protected final void addAlternateTransition(S from, S to) {
+		machine.addAlternateTransition(from, to);
+	}
+
+	/**
+	 * Adds an orthogonal region: a state machine with its own states that steps every loop after this subsystem's own states have been updated.
+	 *
+	 * @param region The region's state machine, with its states and transitions registered.
+	 * @return The region.
+	 */
+	protected final <R extends Enum<R>> StateMachine<R> addRegion(StateMachine<R> region) {
+		if (regions != null) {
+			throw new IllegalStateException("Regions must be added before the subsystem first runs");
+		}
+		regionList.add(region);
+		return region;
+	}
+
+	/**
+	 * Requests a transition, taken on the next loop if the state the subsystem is in then permits it. Otherwise the request is dropped. Only the latest request
+	 * is kept. Requests take priority over guards. This can be called from any thread, e.g. a sensor's polling thread.
+	 *
+	 * @param state The state to transition to.
+	 */
+	public final void requestState(S state) {
+		machine.requestState(state);
+	}
+
+	/**
+	 * Requests a transition whenever a trigger becomes true. See {@link EventDrivenSubsystem#requestState(Enum)}.
+	 *
+	 * @param trigger The trigger, e.g. a button or a sensor threshold.
+	 * @param state The state to transition to.
+	 */
+	public final void requestStateOn(Trigger trigger, S state) {
+		trigger.onTrue(new InstantCommand(() -> requestState(state)));
+	}
+
+	/**
+	 * Gets the state the subsystem is in.
+	 *
+	 * @return The current state.
+	 */
+	public final S getCurrentState() {
+		return currentState;
+	}
+
+	/**
+	 * Gets the state machine of the subsystem's own states, for its transition counts and the time spent in each state.
+	 *
+	 * @return The state machine.
+	 */
+	public final StateMachine<S> getStateMachine() {
+		return machine;
+	}
+
+	/**
+	 * Finds the next state from the pending request and the current state's guards. This is called periodically in the
+	 * {@link StatefulSubsystem#manageState()} method.
+	 *
+	 * @return The next state.
+	 */
+	@Override
+	public final S getState() {
+		if (regions == null) {
+			compileRegions();
+		}
+		selectTransitions(false);
+		return machine.nextState();
+	}
+
+	/**
+	 * Finds the next state like {@link EventDrivenSubsystem#getState()}, using the alternate transitions of the subsystem and its regions.
+	 *
+	 * @return The next state.
+	 */
+	@Override
+	public final S getAlternateState() {
+		if (regions == null) {
+			compileRegions();
+		}
+		selectTransitions(true);
+		return machine.nextState();
+	}
+
+	/**
+	 * Runs the exit handlers of the states being left and the enter handlers of the states being entered. This is called when a new state is entered in the
+	 * {@link StatefulSubsystem#manageState()} method.
+	 *
+	 * @param state The new state.
+	 */
+	@Override
+	public final void onStateEnter(S state) {
+		machine.transitionTo(state);
+	}
+
+	/**
+	 * Does nothing; the exit handlers run together with the enter handlers, since which states are left depends on the state being entered.
+	 *
+	 * @param state The old state.
+	 */
+	@Override
+	public final void onStateExit(S state) {
+	}
+
+	/**
+	 * Runs the update handlers of the current state, then steps every region. This is called periodically in the {@link StatefulSubsystem#manageState()}
+	 * method.
+	 *
+	 * @param state The current state.
+	 */
+	@Override
+	public final void onStateUpdate(S state) {
+		machine.update();
+		if (regions == null) {
+			compileRegions();
+		}
+		for (int i = 0; i < regions.length; i++) {
+			regions[i].step();
+		}
+	}
+
+	/**
+	 * Steps the regions' transitions on a loop whose update is skipped to pay back an overrun, so the regions keep reacting while their update handlers wait.
+	 */
+	@Override
+	final void onUpdateDeferred() {
+		if (regions == null) {
+			compileRegions();
+		}
+		for (int i = 0; i < regions.length; i++) {
+			regions[i].stepTransitions();
+		}
+	}
+
+	/**
+	 * Returns whether any regions have been added. Region transitions come from their live guards and aren't logged, so {@link TransitionReplay} can't
+	 * reproduce them.
+	 */
+	boolean hasRegions() {
+		return !regionList.isEmpty();
+	}
+
+	private void selectTransitions(boolean alternate) {
+		if (alternate == usingAlternate) {
+			return;
+		}
+		usingAlternate = alternate;
+		machine.useAlternateTransitions(alternate);
+		for (int i = 0; i < regions.length; i++) {
+			regions[i].useAlternateTransitions(alternate);
+		}
+	}
+
+	private void compileRegions() {
+		regions = regionList.toArray(new StateMachine<?>[0]);
+		for (StateMachine<?> region : regions) {
+			region.compile();
+		}
+	}
+}
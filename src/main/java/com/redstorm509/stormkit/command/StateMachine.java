@@ -0,0 +1,510 @@
+package com.redstorm509.stormkit.command;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A table-driven state machine over an enum of states, used by {@link EventDrivenSubsystem} both for its own states and for any orthogonal regions it runs.
+ * Each state has enter, exit and update handlers, and leaves either when one of its guards is true or when {@link StateMachine#requestState(Enum)} asks for a
+ * transition it permits.
+ *
+ * <p>
+ * States can be nested under a parent with {@link StateMachine#setParent(Enum, Enum)}. A child shares its ancestors' handlers and transitions: the ancestors'
+ * update handlers run before its own, their guards are checked after its own, and their enter and exit handlers only run when a transition crosses into or
+ * out of them. Everything is registered up front and compiled into flat arrays indexed by state ordinal, so a loop costs the same however deep or wide the
+ * machine is.
+ *
+ * <p>
+ * A second, alternate set of transitions can be registered, e.g. for autonomous, and swapped in with {@link StateMachine#useAlternateTransitions(boolean)}.
+ * The states and their handlers are shared between the two.
+ */
+public class StateMachine<S extends Enum<S>> {
+	private static final int NO_REQUEST = -1;
+	private static final int NO_PARENT = -1;
+	private static final Runnable NO_HANDLER = () -> {
+	};
+
+	private static final class Transition {
+		final int from;
+		final int to;
+		final BooleanSupplier guard;
+		final boolean alternate;
+
+		Transition(int from, int to, BooleanSupplier guard, boolean alternate) {
+			this.from = from;
+			this.to = to;
+			this.guard = guard;
+			this.alternate = alternate;
+		}
+	}
+
+	// Guards are the state's own followed by its ancestors', and permitted holds which states each state may be sent to by a request.
+	private static final class TransitionTable {
+		final BooleanSupplier[][] guards;
+		final int[][] guardTargets;
+		final boolean[] permitted;
+
+		TransitionTable(BooleanSupplier[][] guards, int[][] guardTargets, boolean[] permitted) {
+			this.guards = guards;
+			this.guardTargets = guardTargets;
+			this.permitted = permitted;
+		}
+	}
+
+	private final S[] states;
+	private final Runnable[] enterHandlers;
+	private final Runnable[] exitHandlers;
+	private final Runnable[] updateHandlers;
+	private final int[] parents;
+	private final ArrayList<Transition> transitionList = new ArrayList<>();
+	private final AtomicInteger requestedState = new AtomicInteger(NO_REQUEST);
+	private S currentState;
+	private boolean started = false;
+
+	// The compiled tables. Chains are the update handlers of each state, and the exit and enter handlers to run for each pair of states.
+	private TransitionTable primaryTable;
+	private TransitionTable alternateTable;
+	private TransitionTable table;
+	private boolean alternate = false;
+	private Runnable[][] updateChains;
+	private Runnable[][] transitionChains;
+	// Each state followed by its ancestors, and the states each transition enters, for the statistics.
+	private int[][] lineages;
+	private int[][] enteredStates;
+
+	// Statistics. Time in a state includes the time spent in its children.
+	private final long[] entryCounts;
+	private final long[] nanosInState;
+	private long transitionCount = 0;
+	private long enteredAtNanos;
+
+	/**
+	 * Constructs a StateMachine.
+	 *
+	 * @param stateType The enum of states.
+	 * @param startingState The initial state. Its enter handlers run on the first step.
+	 */
+	public StateMachine(Class<S> stateType, S startingState) {
+		this.states = stateType.getEnumConstants();
+		this.currentState = startingState;
+		this.enterHandlers = newHandlers(states.length);
+		this.exitHandlers = newHandlers(states.length);
+		this.updateHandlers = newHandlers(states.length);
+		this.parents = new int[states.length];
+		for (int i = 0; i < states.length; i++) {
+			parents[i] = NO_PARENT;
+		}
+		this.entryCounts = new long[states.length];
+		this.nanosInState = new long[states.length];
+	}
+
+	/**
+	 * Sets the handler run once when a state is entered.
+	 *
+	 * @param state The state.
+	 * @param handler The handler.
+	 */
+	public void onEnter(S state, Runnable handler) {
+		checkNotCompiled();
+		enterHandlers[state.ordinal()] = handler;
+	}
+
+	/**
+	 * Sets the handler run once when a state is exited.
+	 *
+	 * @param state The state.
+	 * @param handler The handler.
+	 */
+	public void onExit(S state, Runnable handler) {
+		checkNotCompiled();
+		exitHandlers[state.ordinal()] = handler;
+	}
+
+	/**
+	 * Sets the handler run every loop while in a state or any of its children, including the loop it was entered on.
+	 *
+	 * @param state The state.
+	 * @param handler The handler.
+	 */
+	public void onUpdate(S state, Runnable handler) {
+		checkNotCompiled();
+		updateHandlers[state.ordinal()] = handler;
+	}
+
+	/**
+	 * Nests a state under a parent, so that it shares the parent's handlers and transitions.
+	 *
+	 * @param child The child state.
+	 * @param parent The parent state.
+	 */
+	public void setParent(S child, S parent) {
+		checkNotCompiled();
+		for (int ancestor = parent.ordinal(); ancestor != NO_PARENT; ancestor = parents[ancestor]) {
+			if (ancestor == child.ordinal()) {
+				throw new IllegalArgumentException("Making " + parent + " the parent of " + child + " would create a cycle");
+			}
+		}
+		parents[child.ordinal()] = parent.ordinal();
+	}
+
+	/**
+	 * Adds a transition taken when its guard is true. Guards are only checked while in their source state or one of its children, in the order they were
+	 * added, and the first one that is true wins.
+	 *
+	 * @param from The source state.
+	 * @param to The target state.
+	 * @param guard The condition for the transition.
+	 */
+	public void addTransition(S from, S to, BooleanSupplier guard) {
+		checkNotCompiled();
+		transitionList.add(new Transition(from.ordinal(), to.ordinal(), guard, false));
+	}
+
+	/**
+	 * Permits a transition to be taken by an event through {@link StateMachine#requestState(Enum)}, from the source state or any of its children.
+	 *
+	 * @param from The source state.
+	 * @param to The target state.
+	 */
+	public void addTransition(S from, S to) {
+		addTransition(from, to, null);
+	}
+
+	/**
+	 * Adds a transition to the alternate set, taken when its guard is true. See {@link StateMachine#addTransition(Enum, Enum, BooleanSupplier)}.
+	 *
+	 * @param from The source state.
+	 * @param to The target state.
+	 * @param guard The condition for the transition.
+	 */
+	public void addAlternateTransition(S from, S to, BooleanSupplier guard) {
+		checkNotCompiled();
+		transitionList.add(new Transition(from.ordinal(), to.ordinal(), guard, true));
+	}
+
+	/**
+	 * Permits a transition to be requested while the alternate set is in use. See {@link StateMachine#addTransition(Enum, Enum)}.
+	 *
+	 * @param from The source state.
+	 * @param to The target state.
+	 */
+	public void addAlternateTransition(S from, S to) {
+		addAlternateTransition(from, to, null);
+	}
+
+	/**
+	 * Selects which set of transitions is used from the next step on. The current state is kept.
+	 *
+	 * @param alternate Whether to use the alternate transitions rather than the primary ones.
+	 */
+	public void useAlternateTransitions(boolean alternate) {
+		this.alternate = alternate;
+		if (table != null) {
+			table = alternate ? alternateTable : primaryTable;
+		}
+	}
+
+	/**
+	 * Requests a transition, taken on the next step if the state the machine is in then permits it. Otherwise the request is dropped. Only the latest request
+	 * is kept. Requests take priority over guards. This can be called from any thread.
+	 *
+	 * @param state The state to transition to.
+	 */
+	public void requestState(S state) {
+		requestedState.set(state.ordinal());
+	}
+
+	/**
+	 * Gets the state the machine is in.
+	 *
+	 * @return The current state.
+	 */
+	public S getState() {
+		return currentState;
+	}
+
+	/**
+	 * Returns whether the machine is in a state or one of its children.
+	 *
+	 * @param state The state.
+	 * @return Whether the state is active.
+	 */
+	public boolean isIn(S state) {
+		for (int i = currentState.ordinal(); i != NO_PARENT; i = parents[i]) {
+			if (i == state.ordinal()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs one loop: takes at most one transition, then runs the update handlers of the current state.
+	 */
+	public void step() {
+		stepTransitions();
+		update();
+	}
+
+	/**
+	 * Runs the transition half of a loop: takes at most one transition, running its exit and enter handlers, but not the update handlers.
+	 */
+	public void stepTransitions() {
+		S next = nextState();
+		if (next != currentState) {
+			transitionTo(next);
+		}
+	}
+
+	/**
+	 * Compiles the registered states and transitions into the dispatch table. Nothing can be registered afterwards. This is done on the first step if it
+	 * hasn't been done already.
+	 */
+	public void compile() {
+		if (table != null) {
+			return;
+		}
+
+		int n = states.length;
+		lineages = new int[n][];
+		for (int i = 0; i < n; i++) {
+			int depth = 0;
+			for (int s = i; s != NO_PARENT; s = parents[s]) {
+				depth++;
+			}
+			lineages[i] = new int[depth];
+			for (int s = i, d = 0; s != NO_PARENT; s = parents[s], d++) {
+				lineages[i][d] = s;
+			}
+		}
+
+		updateChains = new Runnable[n][];
+		for (int i = 0; i < n; i++) {
+			ArrayList<Runnable> chain = new ArrayList<>();
+			for (int d = lineages[i].length - 1; d >= 0; d--) {
+				addHandler(chain, updateHandlers[lineages[i][d]]);
+			}
+			updateChains[i] = chain.toArray(new Runnable[0]);
+		}
+
+		transitionChains = new Runnable[n * n][];
+		enteredStates = new int[n * n][];
+		for (int from = 0; from < n; from++) {
+			for (int to = 0; to < n; to++) {
+				int common = commonAncestor(from, to);
+				ArrayList<Runnable> chain = new ArrayList<>();
+				for (int s = from; s != common; s = parents[s]) {
+					addHandler(chain, exitHandlers[s]);
+				}
+				int entered = 0;
+				for (int s = to; s != common; s = parents[s]) {
+					entered++;
+				}
+				int[] enteredOrder = new int[entered];
+				for (int s = to, d = entered - 1; s != common; s = parents[s], d--) {
+					enteredOrder[d] = s;
+				}
+				for (int s : enteredOrder) {
+					addHandler(chain, enterHandlers[s]);
+				}
+				transitionChains[from * n + to] = chain.toArray(new Runnable[0]);
+				enteredStates[from * n + to] = enteredOrder;
+			}
+		}
+
+		primaryTable = compileTable(false);
+		alternateTable = compileTable(true);
+		table = alternate ? alternateTable : primaryTable;
+		transitionList.clear();
+	}
+
+	private TransitionTable compileTable(boolean alternateSet) {
+		int n = states.length;
+		// A state's own transitions come first, then each ancestor's in turn, so the most specific guard wins.
+		boolean[] permitted = new boolean[n * n];
+		BooleanSupplier[][] guards = new BooleanSupplier[n][];
+		int[][] guardTargets = new int[n][];
+		for (int i = 0; i < n; i++) {
+			ArrayList<Transition> inherited = new ArrayList<>();
+			for (int ancestor : lineages[i]) {
+				for (Transition transition : transitionList) {
+					// An inherited transition back into the state itself would only block the ones after it.
+					if (transition.alternate != alternateSet || transition.from != ancestor || transition.to == i) {
+						continue;
+					}
+					if (transition.guard == null) {
+						permitted[i * n + transition.to] = true;
+					} else {
+						inherited.add(transition);
+					}
+				}
+			}
+			guards[i] = new BooleanSupplier[inherited.size()];
+			guardTargets[i] = new int[inherited.size()];
+			for (int j = 0; j < inherited.size(); j++) {
+				guards[i][j] = inherited.get(j).guard;
+				guardTargets[i][j] = inherited.get(j).to;
+			}
+		}
+		return new TransitionTable(guards, guardTargets, permitted);
+	}
+
+	/**
+	 * Gets the number of transitions taken.
+	 *
+	 * @return The number of transitions.
+	 */
+	public long getTransitionCount() {
+		return transitionCount;
+	}
+
+	/**
+	 * Gets the number of times a state has been entered. Moving between the children of a state doesn't enter it again.
+	 *
+	 * @param state The state.
+	 * @return The number of entries.
+	 */
+	public long getEntryCount(S state) {
+		return entryCounts[state.ordinal()];
+	}
+
+	/**
+	 * Gets the total time spent in a state, including time spent in its children.
+	 *
+	 * @param state The state.
+	 * @return The time in seconds.
+	 */
+	public double getTimeInStateSeconds(S state) {
+		long nanos = nanosInState[state.ordinal()];
+		if (started && isIn(state)) {
+			nanos += System.nanoTime() - enteredAtNanos;
+		}
+		return nanos * 1e-9;
+	}
+
+	/**
+	 * Clears the transition and entry counts and the time spent in each state.
+	 */
+	public void resetStatistics() {
+		transitionCount = 0;
+		for (int i = 0; i < states.length; i++) {
+			entryCounts[i] = 0;
+			nanosInState[i] = 0;
+		}
+		enteredAtNanos = System.nanoTime();
+	}
+
+	/**
+	 * Finds the next state from the pending request and the current state's guards, without taking the transition.
+	 *
+	 * @return The next state.
+	 */
+	S nextState() {
+		if (!started) {
+			start();
+		}
+
+		int from = currentState.ordinal();
+		if (requestedState.get() != NO_REQUEST) {
+			int requested = requestedState.getAndSet(NO_REQUEST);
+			if (requested != NO_REQUEST && requested != from && table.permitted[from * states.length + requested]) {
+				return states[requested];
+			}
+		}
+
+		BooleanSupplier[] stateGuards = table.guards[from];
+		for (int i = 0; i < stateGuards.length; i++) {
+			if (stateGuards[i].getAsBoolean()) {
+				return states[table.guardTargets[from][i]];
+			}
+		}
+		return currentState;
+	}
+
+	/**
+	 * Leaves the current state for another, running the exit handlers of every state left and the enter handlers of every state entered.
+	 *
+	 * @param next The state to enter.
+	 */
+	void transitionTo(S next) {
+		if (!started) {
+			start();
+		}
+
+		int from = currentState.ordinal();
+		int index = from * states.length + next.ordinal();
+
+		long now = System.nanoTime();
+		for (int s : lineages[from]) {
+			nanosInState[s] += now - enteredAtNanos;
+		}
+		enteredAtNanos = now;
+		for (int s : enteredStates[index]) {
+			entryCounts[s]++;
+		}
+		transitionCount++;
+
+		Runnable[] chain = transitionChains[index];
+		for (int i = 0; i < chain.length; i++) {
+			chain[i].run();
+		}
+		currentState = next;
+	}
+
+	/**
+	 * Runs the update handlers of the current state, outermost ancestor first.
+	 */
+	void update() {
+		if (!started) {
+			start();
+		}
+
+		Runnable[] chain = updateChains[currentState.ordinal()];
+		for (int i = 0; i < chain.length; i++) {
+			chain[i].run();
+		}
+	}
+
+	private void start() {
+		compile();
+		started = true;
+		enteredAtNanos = System.nanoTime();
+		int[] lineage = lineages[currentState.ordinal()];
+		for (int d = lineage.length - 1; d >= 0; d--) {
+			entryCounts[lineage[d]]++;
+			enterHandlers[lineage[d]].run();
+		}
+	}
+
+	private int commonAncestor(int a, int b) {
+		for (int s : lineages[a]) {
+			for (int t : lineages[b]) {
+				if (s == t) {
+					return s;
+				}
+			}
+		}
+		return NO_PARENT;
+	}
+
+	private void checkNotCompiled() {
+		if (table != null) {
+			throw new IllegalStateException("States and transitions must be registered before the state machine is compiled");
+		}
+	}
+
+	private static void addHandler(ArrayList<Runnable> chain, Runnable handler) {
+		if (handler != NO_HANDLER) {
+			chain.add(handler);
+		}
+	}
+
+	private static Runnable[] newHandlers(int count) {
+		Runnable[] handlers = new Runnable[count];
+		for (int i = 0; i < count; i++) {
+			handlers[i] = NO_HANDLER;
+		}
+		return handlers;
+	}
+}
@@ -1,5 +1,11 @@
 package com.redstorm509.stormkit.command;
 
+import java.util.Objects;
+
+import com.redstorm509.stormkit.telemetry.Timing;
+import com.redstorm509.stormkit.telemetry.TimingSpan;
+import com.redstorm509.stormkit.telemetry.TransitionLog;
+
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
@@ -8,8 +14,45 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
  * This generic class takes in an enum that represents the state of the subsytem, and provides interfaces for triggering code when states are entered and exited.
  */
 public abstract class StatefulSubsystem<T extends Comparable<T>> extends SubsystemBase {
+	/**
+	 * The robot modes a subsystem can behave differently in.
+	 */
+	public enum Mode {
+		Autonomous,
+		Teleop,
+		Test
+	}
+
+	/**
+	 * How a subsystem's states are managed in a mode.
+	 */
+	public enum ModePolicy {
+		/** States change through {@link StatefulSubsystem#getState()} and are updated as usual. */
+		Run,
+		/** Nothing runs; the subsystem stays in its current state without updates. */
+		Freeze,
+		/** States change through {@link StatefulSubsystem#getAlternateState()} instead, and are updated as usual. */
+		Alternate
+	}
+
+	private static volatile TransitionLog transitionLog;
+
 	protected T currentState;
-	
+	private final TimingSpan periodicSpan;
+	// The log this subsystem registered with, and the id it was given.
+	private TransitionLog registeredLog;
+	private short logId;
+	// Indexed by Mode ordinal. Autonomous freezes by default, as it always has.
+	private final ModePolicy[] modePolicies = { ModePolicy.Freeze, ModePolicy.Run, ModePolicy.Run };
+	private long tickBudgetNanos = 0;
+	private boolean deferOverruns = false;
+	// How far over budget past updates ran, paid back by skipping updates when overruns are deferred.
+	private long budgetDebtNanos = 0;
+	private long updateStartNanos;
+	private boolean overran = false;
+	private long overrunCount = 0;
+	private long deferredCount = 0;
+
     /**
      * Constructs an StatefulSubsystem with the given initial state.
      *
@@ -17,30 +60,196 @@ public abstract class StatefulSubsystem<T extends Comparable<T>> extends Subsyst
      */
 	public StatefulSubsystem(T startingState) {
 		this.currentState = startingState;
+		this.periodicSpan = Timing.span(getName() + "/periodic");
 	}
 
 	/**
-     * Detects state changes and calls the enter/exit callbacks. This is called from the {@link StatefulSubsystem#periodic()} method.
+     * Detects state changes and calls the enter/exit callbacks, following the policy for the current mode. This is called from the {@link StatefulSubsystem#periodic()} method.
      */
 	public void manageState() {
-		if (DriverStation.isAutonomous()) {
-			return;
+		T newState;
+		switch (modePolicies[getMode().ordinal()]) {
+			case Freeze:
+				return;
+			case Alternate:
+				newState = getAlternateState();
+				break;
+			default:
+				newState = getState();
+				break;
 		}
 
-		T newState = getState();
+		changeState(newState);
+		updateWithinBudget();
+	}
 
-		if (newState != currentState) {
+	/**
+	 * Moves to a state, calling the callbacks as if {@link StatefulSubsystem#getState()} had returned it, without a tick budget. Used by {@link TransitionReplay}.
+	 *
+	 * @param newState The next state.
+	 */
+	void applyState(T newState) {
+		changeState(newState);
+		onStateUpdate(currentState);
+	}
+
+	private void changeState(T newState) {
+		if (!Objects.equals(newState, currentState)) {
+			logTransition(currentState, newState);
 			onStateExit(currentState);
 			onStateEnter(newState);
 			currentState = newState;
 		}
+	}
 
+	private void updateWithinBudget() {
+		if (tickBudgetNanos <= 0) {
+			onStateUpdate(currentState);
+			return;
+		}
+
+		if (deferOverruns && budgetDebtNanos > 0) {
+			// Skipping this update gives its whole budget back to the loop.
+			budgetDebtNanos = Math.max(0, budgetDebtNanos - tickBudgetNanos);
+			deferredCount++;
+			onUpdateDeferred();
+			return;
+		}
+
+		updateStartNanos = System.nanoTime();
 		onStateUpdate(currentState);
+		long elapsed = System.nanoTime() - updateStartNanos;
+		overran = elapsed > tickBudgetNanos;
+		if (overran) {
+			overrunCount++;
+			budgetDebtNanos += elapsed - tickBudgetNanos;
+		}
+	}
+
+	/**
+	 * Called instead of {@link StatefulSubsystem#onStateUpdate(Comparable)} on a loop whose update is skipped to pay back an overrun, for transitions that
+	 * subclasses take during the update.
+	 */
+	void onUpdateDeferred() {
+	}
+
+	/**
+	 * Gets the mode the robot is in, as far as mode policies are concerned.
+	 *
+	 * @return The current mode.
+	 */
+	public static Mode getMode() {
+		if (DriverStation.isAutonomous()) {
+			return Mode.Autonomous;
+		}
+		if (DriverStation.isTest()) {
+			return Mode.Test;
+		}
+		return Mode.Teleop;
+	}
+
+	/**
+	 * Sets how states are managed in a mode. By default states are frozen in autonomous and run in teleop and test.
+	 *
+	 * @param mode The mode.
+	 * @param policy The policy.
+	 */
+	public void setModePolicy(Mode mode, ModePolicy policy) {
+		modePolicies[mode.ordinal()] = policy;
+	}
+
+	/**
+	 * Gets how states are managed in a mode.
+	 *
+	 * @param mode The mode.
+	 * @return The policy.
+	 */
+	public ModePolicy getModePolicy(Mode mode) {
+		return modePolicies[mode.ordinal()];
+	}
+
+	/**
+	 * Sets how long {@link StatefulSubsystem#onStateUpdate(Comparable)} may take each loop. An update that takes longer is flagged as an overrun. If overruns
+	 * are deferred, the time an update ran over is paid back by skipping the updates of following loops, one budget per loop, so a heavy update can't keep
+	 * stealing time from the rest of the robot loop. Transitions still happen while updates are skipped, including those of an
+	 * {@link EventDrivenSubsystem}'s regions; only update handlers are skipped.
+	 *
+	 * @param budgetSeconds The budget in seconds, or 0 for no budget.
+	 * @param deferOverruns Whether to skip updates to pay back overruns.
+	 */
+	public void setTickBudget(double budgetSeconds, boolean deferOverruns) {
+		this.tickBudgetNanos = (long) (budgetSeconds * 1e9);
+		this.deferOverruns = deferOverruns;
+		this.budgetDebtNanos = 0;
+	}
+
+	/**
+	 * Returns whether the most recent update ran over the tick budget.
+	 *
+	 * @return Whether the last update overran.
+	 */
+	public boolean isOverrun() {
+		return overran;
+	}
+
+	/**
+	 * Gets the number of updates that ran over the tick budget.
+	 *
+	 * @return The number of overruns.
+	 */
+	public long getOverrunCount() {
+		return overrunCount;
+	}
+
+	/**
+	 * Gets the number of updates skipped to pay back overruns.
+	 *
+	 * @return The number of deferred updates.
+	 */
+	public long getDeferredCount() {
+		return deferredCount;
+	}
+
+	/**
+	 * Returns whether the update in progress has used up its tick budget, so that long-running work inside {@link StatefulSubsystem#onStateUpdate(Comparable)}
+	 * can stop early and pick up again next loop.
+	 *
+	 * @return Whether the update is over budget. Always false without a budget.
+	 */
+	protected boolean isOverBudget() {
+		return tickBudgetNanos > 0 && System.nanoTime() - updateStartNanos > tickBudgetNanos;
+	}
+
+	/**
+	 * Sets the log that every StatefulSubsystem records its transitions to. States are logged by ordinal, so states that aren't enums are logged as -1.
+	 *
+	 * @param log The log, or null to stop logging.
+	 */
+	public static void setTransitionLog(TransitionLog log) {
+		transitionLog = log;
+	}
+
+	private void logTransition(T from, T to) {
+		TransitionLog log = transitionLog;
+		if (log == null) {
+			return;
+		}
+		if (log != registeredLog) {
+			logId = log.register(getName());
+			registeredLog = log;
+		}
+		log.append(logId, ordinalOf(from), ordinalOf(to));
+	}
+
+	private static int ordinalOf(Object state) {
+		return state instanceof Enum<?> ? ((Enum<?>) state).ordinal() : -1;
 	}
 
 	@Override
 	public void periodic() {
+		long start = periodicSpan.start();
 		manageState();
+		periodicSpan.end(start);
 	}
 
 	/**
@@ -49,6 +258,15 @@ public abstract class StatefulSubsystem<T extends Comparable<T>> extends Subsyst
      */
 	abstract public T getState();
 
+	/**
+     * Returns the next state under the alternate rules used in modes whose policy is {@link ModePolicy#Alternate}, e.g. an autonomous state machine.
+     * This is called periodically in the {@link StatefulSubsystem#manageState()} method instead of {@link StatefulSubsystem#getState()}. Defaults to {@link StatefulSubsystem#getState()}.
+	 * @return The next state.
+     */
+	public T getAlternateState() {
+		return getState();
+	}
+
 	/**
      * Called once as the subsystem's state is changed. This is called when a new state is entered in the {@link StatefulSubsystem#manageState()} method.
 	 * @param state The new state.
@@ -0,0 +1,123 @@
+package com.redstorm509.stormkit.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.redstorm509.stormkit.telemetry.TransitionLog;
+
+/**
+ * Runs a {@link StatefulSubsystem} through the transitions recorded for it in a {@link TransitionLog}, instead of the states its
+ * {@link StatefulSubsystem#getState()} would return. Each call to {@link TransitionReplay#tick(double)} is one loop of the subsystem at a point in log time,
+ * so stepping through a log at a fixed period calls the same enter, exit and update callbacks in the same order on every run. Use it offline, e.g. in a
+ * simulation or test, to reproduce what a subsystem did during a match.
+ *
+ * <p>
+ * Only the subsystem's own transitions are logged, so an {@link EventDrivenSubsystem} with regions can't be replayed: its regions would step from their live
+ * guards rather than from the log.
+ */
+public class TransitionReplay<T extends Enum<T>> {
+	private final StatefulSubsystem<T> subsystem;
+	private final T[] states;
+	private final TransitionLog.Entry[] entries;
+	private int next = 0;
+	private int mismatchCount = 0;
+
+	/**
+	 * Constructs a TransitionReplay.
+	 *
+	 * @param subsystem The subsystem to drive. It should start in the state it started in when the log was recorded.
+	 * @param stateType The enum of the subsystem's states.
+	 * @param log The transitions read from the log with {@link TransitionLog#read(java.nio.file.Path)}.
+	 * @param subsystemName The name the subsystem was logged under; only its transitions are replayed.
+	 * @throws IllegalArgumentException If the subsystem is an {@link EventDrivenSubsystem} with regions.
+	 */
+	public TransitionReplay(StatefulSubsystem<T> subsystem, Class<T> stateType, List<TransitionLog.Entry> log, String subsystemName) {
+		if (subsystem instanceof EventDrivenSubsystem && ((EventDrivenSubsystem<T>) subsystem).hasRegions()) {
+			throw new IllegalArgumentException("Can't replay " + subsystemName + ": region transitions aren't logged, so its regions wouldn't replay deterministically");
+		}
+		this.subsystem = subsystem;
+		this.states = stateType.getEnumConstants();
+		ArrayList<TransitionLog.Entry> matching = new ArrayList<>();
+		for (TransitionLog.Entry entry : log) {
+			if (entry.subsystem.equals(subsystemName)) {
+				if (entry.toOrdinal < 0 || entry.toOrdinal >= states.length) {
+					throw new IllegalArgumentException("State ordinal " + entry.toOrdinal + " is not a " + stateType.getSimpleName());
+				}
+				matching.add(entry);
+			}
+		}
+		this.entries = matching.toArray(new TransitionLog.Entry[0]);
+	}
+
+	/**
+	 * Runs one loop of the subsystem. If the next recorded transition happened at or before the given time, it is taken; a loop takes at most one, as
+	 * {@link StatefulSubsystem#manageState()} does.
+	 *
+	 * @param timestampSeconds The log time of the loop, in seconds since the log was opened.
+	 * @return Whether a transition was taken.
+	 */
+	public boolean tick(double timestampSeconds) {
+		if (next < entries.length && entries[next].timestampSeconds <= timestampSeconds) {
+			TransitionLog.Entry entry = entries[next++];
+			if (entry.fromOrdinal != subsystem.currentState.ordinal()) {
+				mismatchCount++;
+			}
+			subsystem.applyState(states[entry.toOrdinal]);
+			return true;
+		}
+
+		subsystem.applyState(subsystem.currentState);
+		return false;
+	}
+
+	/**
+	 * Runs the subsystem through the rest of the log, one loop per period, starting at the time of the next transition.
+	 *
+	 * @param periodSeconds The loop period in seconds, e.g. 0.02.
+	 * @return The number of loops run.
+	 */
+	public long runToEnd(double periodSeconds) {
+		if (periodSeconds <= 0.0) {
+			throw new IllegalArgumentException("Period must be a positive number!");
+		}
+		if (!hasNext()) {
+			return 0;
+		}
+
+		double start = getNextTimestampSeconds();
+		long loops = 0;
+		while (hasNext()) {
+			// Multiplying rather than accumulating keeps the loop times identical from run to run.
+			tick(start + loops * periodSeconds);
+			loops++;
+		}
+		return loops;
+	}
+
+	/**
+	 * Returns whether there are transitions left to replay.
+	 *
+	 * @return Whether any transitions remain.
+	 */
+	public boolean hasNext() {
+		return next < entries.length;
+	}
+
+	/**
+	 * Gets the time of the next transition to replay.
+	 *
+	 * @return The log time in seconds, or NaN if none remain.
+	 */
+	public double getNextTimestampSeconds() {
+		return hasNext() ? entries[next].timestampSeconds : Double.NaN;
+	}
+
+	/**
+	 * Gets the number of recorded transitions whose source state didn't match the state the subsystem was in, e.g. because it started in a different state.
+	 *
+	 * @return The number of mismatches.
+	 */
+	public int getMismatchCount() {
+		return mismatchCount;
+	}
+}
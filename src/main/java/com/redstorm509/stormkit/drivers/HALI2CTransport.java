@@ -0,0 +1,52 @@
+package com.redstorm509.stormkit.drivers;
+
+import java.nio.ByteBuffer;
+
+import com.redstorm509.stormkit.interfaces.II2CTransport;
+
+import edu.wpi.first.hal.I2CJNI;
+
+/**
+ * The default I2C transport, which talks to the hardware (or WPILib's simulation) through the HAL.
+ */
+public class HALI2CTransport implements II2CTransport {
+	@Override
+	public void initialize(int port) {
+		I2CJNI.i2CInitialize(port);
+	}
+
+	@Override
+	public int transaction(int port, byte address, byte[] dataToSend, byte sendSize, byte[] dataReceived, byte receiveSize) {
+		return I2CJNI.i2CTransactionB(port, address, dataToSend, sendSize, dataReceived, receiveSize);
+	}
+
+	@Override
+	public int transaction(int port, byte address, ByteBuffer dataToSend, byte sendSize, ByteBuffer dataReceived, byte receiveSize) {
+		return I2CJNI.i2CTransaction(port, address, dataToSend, sendSize, dataReceived, receiveSize);
+	}
+
+	@Override
+	public int write(int port, byte address, byte[] data, byte size) {
+		return I2CJNI.i2CWriteB(port, address, data, size);
+	}
+
+	@Override
+	public int write(int port, byte address, ByteBuffer data, byte size) {
+		return I2CJNI.i2CWrite(port, address, data, size);
+	}
+
+	@Override
+	public int read(int port, byte address, byte[] buffer, byte count) {
+		return I2CJNI.i2CReadB(port, address, buffer, count);
+	}
+
+	@Override
+	public int read(int port, byte address, ByteBuffer buffer, byte count) {
+		return I2CJNI.i2CRead(port, address, buffer, count);
+	}
+
+	@Override
+	public void close(int port) {
+		I2CJNI.i2CClose(port);
+	}
+}
@@ -0,0 +1,411 @@
+package com.redstorm509.stormkit.drivers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import com.redstorm509.stormkit.interfaces.II2CTransport;
+
+/**
+ * Coordinates every device on one I2C port. The port is initialized when the first {@link I2CUtil} on it is created and closed when the last one is closed,
+ * and all transactions on the port are serialized through a single fair lock, so devices are served in the order they asked for the bus.
+ * The bus can also run a round-robin polling schedule, which gives each registered poller one turn per cycle on a shared thread instead of one thread per
+ * device. Bus time and latency are tracked per device.
+ */
+public final class I2CBus {
+	/**
+	 * Bus statistics for a single device address. Updated by whichever thread holds the bus, and safe to read from any thread.
+	 */
+	public static final class Device {
+		private final byte address;
+		private volatile long transactions = 0;
+		private volatile long failures = 0;
+		private volatile long busyNanos = 0;
+		private volatile long latencyNanos = 0;
+		private volatile long maxLatencyNanos = 0;
+
+		private Device(byte address) {
+			this.address = address;
+		}
+
+		/**
+		 * Gets the 7-bit address of the device.
+		 *
+		 * @return Device address.
+		 */
+		public byte getAddress() {
+			return address;
+		}
+
+		/**
+		 * Gets the number of transactions the device has completed since the statistics were last reset.
+		 *
+		 * @return The number of transactions.
+		 */
+		public long getTransactionCount() {
+			return transactions;
+		}
+
+		/**
+		 * Gets the number of transactions that were aborted since the statistics were last reset.
+		 *
+		 * @return The number of failed transactions.
+		 */
+		public long getFailureCount() {
+			return failures;
+		}
+
+		/**
+		 * Gets the total time the device has held the bus since the statistics were last reset.
+		 *
+		 * @return The time in seconds.
+		 */
+		public double getBusySeconds() {
+			return busyNanos * 1e-9;
+		}
+
+		/**
+		 * Gets the average time from requesting the bus to completing a transaction, including time spent waiting for other devices.
+		 *
+		 * @return The average latency in seconds.
+		 */
+		public double getAverageLatencySeconds() {
+			long count = transactions;
+			return count == 0 ? 0.0 : latencyNanos * 1e-9 / count;
+		}
+
+		/**
+		 * Gets the longest time from requesting the bus to completing a transaction.
+		 *
+		 * @return The maximum latency in seconds.
+		 */
+		public double getMaxLatencySeconds() {
+			return maxLatencyNanos * 1e-9;
+		}
+
+		private void record(long busy, long latency, boolean success) {
+			transactions++;
+			if (!success) {
+				failures++;
+			}
+			busyNanos += busy;
+			latencyNanos += latency;
+			if (latency > maxLatencyNanos) {
+				maxLatencyNanos = latency;
+			}
+		}
+
+		private void reset() {
+			transactions = 0;
+			failures = 0;
+			busyNanos = 0;
+			latencyNanos = 0;
+			maxLatencyNanos = 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Device(0x%02x, %d transactions, %d failed, avg %.3f ms, max %.3f ms)", address, transactions, failures,
+					getAverageLatencySeconds() * 1e3, getMaxLatencySeconds() * 1e3);
+		}
+	}
+
+	private static final HashMap<Integer, I2CBus> buses = new HashMap<>();
+	private static final HashMap<Integer, II2CTransport> transports = new HashMap<>();
+	private static final II2CTransport defaultTransport = new HALI2CTransport();
+
+	private final int port;
+	private final II2CTransport transport;
+	private final ReentrantLock lock = new ReentrantLock(true);
+	private final ArrayList<Device> devices = new ArrayList<>();
+	private int references = 0;
+	// Owned by the thread holding the lock.
+	private long acquiredNanos;
+	private volatile long statisticsStartNanos = System.nanoTime();
+
+	private final ArrayList<BooleanSupplier> pollers = new ArrayList<>();
+	private volatile Thread pollingThread;
+	private volatile boolean polling = false;
+
+	private I2CBus(int port, II2CTransport transport) {
+		this.port = port;
+		this.transport = transport;
+	}
+
+	/**
+	 * Sets the transport used to reach the devices on a port, e.g. a simulated bus. Must be called while nothing is using the port.
+	 *
+	 * @param port The I2C port.
+	 * @param transport The transport, or null to go back to the HAL.
+	 */
+	public static void setTransport(int port, II2CTransport transport) {
+		synchronized (buses) {
+			if (buses.containsKey(port)) {
+				throw new IllegalStateException("Can't change the transport of I2C port " + port + " while it is in use");
+			}
+			if (transport == null) {
+				transports.remove(port);
+			} else {
+				transports.put(port, transport);
+			}
+		}
+	}
+
+	/**
+	 * Gets the bus for a port, initializing the port if nothing else is using it. Every call must be balanced by a call to {@link I2CBus#release()}.
+	 *
+	 * @param port The I2C port.
+	 * @return The bus shared by every device on the port.
+	 */
+	public static I2CBus acquire(int port) {
+		synchronized (buses) {
+			I2CBus bus = buses.get(port);
+			if (bus == null) {
+				bus = new I2CBus(port, transports.getOrDefault(port, defaultTransport));
+				buses.put(port, bus);
+			}
+			if (bus.references == 0) {
+				bus.transport.initialize(port);
+			}
+			bus.references++;
+			return bus;
+		}
+	}
+
+	/**
+	 * Releases a reference to the bus. The polling schedule is stopped and the port is closed when the last reference is released.
+	 */
+	public void release() {
+		synchronized (buses) {
+			if (references == 0) {
+				throw new IllegalStateException("I2C port " + port + " was released more times than it was acquired");
+			}
+			references--;
+			if (references > 0) {
+				return;
+			}
+			buses.remove(port);
+
+			// Closing under the lock keeps acquire from initializing the port again before this bus has finished closing it.
+			stopPolling();
+			transport.close(port);
+		}
+	}
+
+	/**
+	 * Returns I2C port.
+	 *
+	 * @return I2C port.
+	 */
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * Returns the transport that carries this bus's transactions.
+	 *
+	 * @return I2C transport.
+	 */
+	public II2CTransport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * Gets the statistics of a device on the bus, registering it if it hasn't been seen before.
+	 *
+	 * @param address The 7-bit address of the device.
+	 * @return The device's statistics.
+	 */
+	public Device getDevice(byte address) {
+		synchronized (devices) {
+			for (Device device : devices) {
+				if (device.address == address) {
+					return device;
+				}
+			}
+			Device device = new Device(address);
+			devices.add(device);
+			return device;
+		}
+	}
+
+	/**
+	 * Gets every device that has used the bus.
+	 *
+	 * @return The devices' statistics.
+	 */
+	public List<Device> getDevices() {
+		synchronized (devices) {
+			return List.copyOf(devices);
+		}
+	}
+
+	/**
+	 * Gets the fraction of time a device has held the bus since the statistics were last reset.
+	 *
+	 * @param device The device.
+	 * @return The device's utilization, between 0 and 1.
+	 */
+	public double getUtilization(Device device) {
+		long elapsed = System.nanoTime() - statisticsStartNanos;
+		return elapsed <= 0 ? 0.0 : (double) device.busyNanos / elapsed;
+	}
+
+	/**
+	 * Gets the fraction of time any device has held the bus since the statistics were last reset.
+	 *
+	 * @return The bus utilization, between 0 and 1.
+	 */
+	public double getUtilization() {
+		double utilization = 0.0;
+		for (Device device : getDevices()) {
+			utilization += getUtilization(device);
+		}
+		return utilization;
+	}
+
+	/**
+	 * Clears the statistics of every device on the bus.
+	 */
+	public void resetStatistics() {
+		lock.lock();
+		try {
+			for (Device device : getDevices()) {
+				device.reset();
+			}
+			statisticsStartNanos = System.nanoTime();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits for the bus. Must be followed by {@link I2CBus#record} and then {@link I2CBus#unlock()}.
+	 *
+	 * @return The time the bus was requested, in nanoseconds.
+	 */
+	long lock() {
+		long requestedNanos = System.nanoTime();
+		lock.lock();
+		acquiredNanos = System.nanoTime();
+		return requestedNanos;
+	}
+
+	/**
+	 * Records a completed transaction against a device.
+	 *
+	 * @return Whether the transaction succeeded, for chaining.
+	 */
+	boolean record(Device device, long requestedNanos, boolean success) {
+		long now = System.nanoTime();
+		device.record(now - acquiredNanos, now - requestedNanos, success);
+		return success;
+	}
+
+	void unlock() {
+		lock.unlock();
+	}
+
+	/**
+	 * Adds a poller to the round-robin schedule. Each cycle, every poller gets one call in the order they were added.
+	 *
+	 * @param poller Polls a device once, returning whether it found work to do. Called from the polling thread.
+	 */
+	public void addPoller(BooleanSupplier poller) {
+		synchronized (pollers) {
+			pollers.add(poller);
+		}
+	}
+
+	/**
+	 * Removes a poller from the round-robin schedule. Once this returns, the poller is not running and won't be called again. Removing the last poller stops
+	 * the polling thread.
+	 *
+	 * @param poller The poller to remove.
+	 */
+	public synchronized void removePoller(BooleanSupplier poller) {
+		boolean empty;
+		synchronized (pollers) {
+			pollers.remove(poller);
+			empty = pollers.isEmpty();
+		}
+		if (empty) {
+			stopPolling();
+		}
+	}
+
+	/**
+	 * Starts calling the registered pollers in turn on a background thread. The thread only sleeps after a full cycle in which no poller found work.
+	 *
+	 * @param idlePeriodSeconds How long to sleep after an idle cycle.
+	 */
+	public synchronized void startPolling(double idlePeriodSeconds) {
+		if (pollingThread != null) {
+			return;
+		}
+
+		long idlePeriodNanos = (long) (idlePeriodSeconds * 1e9);
+		polling = true;
+		pollingThread = new Thread(() -> runSchedule(idlePeriodNanos), "I2CBus-" + port);
+		pollingThread.setDaemon(true);
+		pollingThread.start();
+	}
+
+	/**
+	 * Stops the polling thread, waiting for it to finish its current poller. Called when the last poller is removed and when the port is closed.
+	 */
+	public synchronized void stopPolling() {
+		if (pollingThread == null) {
+			return;
+		}
+
+		polling = false;
+		// A poller stopping the schedule from the polling thread can't wait for itself; the thread exits once the poller returns.
+		if (pollingThread != Thread.currentThread()) {
+			LockSupport.unpark(pollingThread);
+			try {
+				pollingThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		pollingThread = null;
+	}
+
+	/**
+	 * Returns whether the polling schedule is running.
+	 *
+	 * @return Whether the polling thread is running.
+	 */
+	public boolean isPolling() {
+		return polling;
+	}
+
+	private void runSchedule(long idlePeriodNanos) {
+		// A thread stopped from inside a poller may still be running when a new one starts, so each thread also checks it is still the current one.
+		Thread self = Thread.currentThread();
+		while (polling && pollingThread == self) {
+			boolean busy = false;
+			for (int i = 0; polling && pollingThread == self; i++) {
+				// Holding the list while a poller runs is what lets removePoller guarantee it has stopped.
+				synchronized (pollers) {
+					if (i >= pollers.size()) {
+						break;
+					}
+					busy |= pollers.get(i).getAsBoolean();
+				}
+			}
+			if (!busy) {
+				LockSupport.parkNanos(idlePeriodNanos);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("I2CBus(port %d, %d devices, %.1f%% utilized)", port, getDevices().size(), getUtilization() * 100.0);
+	}
+}
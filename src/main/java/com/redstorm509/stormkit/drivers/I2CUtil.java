@@ -4,24 +4,35 @@
 
 package com.redstorm509.stormkit.drivers;
 
-import edu.wpi.first.hal.I2CJNI;
+import java.nio.ByteBuffer;
+
+import com.redstorm509.stormkit.interfaces.II2CTransport;
+
 import edu.wpi.first.hal.util.BoundaryException;
 import edu.wpi.first.wpilibj.I2C;
 
 public class I2CUtil implements AutoCloseable {
 	private final int port;
 	private final byte devAddr;
+	private final I2CBus bus;
+	private final I2CBus.Device device;
+	private final II2CTransport transport;
+	private boolean closed = false;
+	// Scratch space for register prefixes and staged payloads, guarded by the bus lock, so the convenience methods never allocate.
+	private final byte[] sendArray = new byte[Byte.MAX_VALUE];
+	private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(Byte.MAX_VALUE);
+	private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(Byte.MAX_VALUE);
 
 	public I2CUtil(I2C.Port port, byte devAddr) {
-		this.port = port.value;
-		this.devAddr = devAddr;
-		I2CJNI.i2CInitialize(this.port);
+		this(port.value, devAddr);
 	}
 
 	public I2CUtil(int port, byte devAddr) {
 		this.port = port;
 		this.devAddr = devAddr;
-		I2CJNI.i2CInitialize(this.port);
+		this.bus = I2CBus.acquire(port);
+		this.device = bus.getDevice(devAddr);
+		this.transport = bus.getTransport();
 	}
 
 	/**
@@ -33,6 +44,33 @@ public class I2CUtil implements AutoCloseable {
 		return port;
 	}
 
+	/**
+	 * Returns the 7-bit address of the device.
+	 *
+	 * @return Device address.
+	 */
+	public byte getDeviceAddress() {
+		return devAddr;
+	}
+
+	/**
+	 * Returns the bus shared by every device on this port.
+	 *
+	 * @return I2C bus.
+	 */
+	public I2CBus getBus() {
+		return bus;
+	}
+
+	/**
+	 * Returns this device's bus utilization and latency statistics.
+	 *
+	 * @return Device statistics.
+	 */
+	public I2CBus.Device getStatistics() {
+		return device;
+	}
+
 	/**
 	 * Generic transaction.
 	 *
@@ -48,14 +86,20 @@ public class I2CUtil implements AutoCloseable {
 	 * @param receiveSize  Number of bytes to read from the device.
 	 * @return True for success, false for aborted.
 	 */
-	public synchronized boolean transaction(byte[] dataToSend, byte sendSize, byte[] dataReceived, byte receiveSize) {
+	public boolean transaction(byte[] dataToSend, byte sendSize, byte[] dataReceived, byte receiveSize) {
 		if (dataToSend.length < sendSize) {
 			throw new IllegalArgumentException("dataToSend is too small, must be at least " + sendSize);
 		}
 		if (dataReceived.length < receiveSize) {
 			throw new IllegalArgumentException("dataReceived is too small, must be at least " + receiveSize);
 		}
-		return I2CJNI.i2CTransactionB(port, devAddr, dataToSend, sendSize, dataReceived, receiveSize) >= 0;
+
+		long requestedNanos = bus.lock();
+		try {
+			return bus.record(device, requestedNanos, transport.transaction(port, devAddr, dataToSend, sendSize, dataReceived, receiveSize) >= 0);
+		} finally {
+			bus.unlock();
+		}
 	}
 
 	/**
@@ -68,11 +112,17 @@ public class I2CUtil implements AutoCloseable {
 	 * @param data The data to write to the device.
 	 * @return True for success, false for aborted.
 	 */
-	public synchronized boolean write(byte[] data) {
+	public boolean write(byte[] data) {
 		if (data.length > Byte.MAX_VALUE) {
 			throw new IllegalArgumentException("buffer is too large, must be at most " + Byte.MAX_VALUE);
 		}
-		return I2CJNI.i2CWriteB(port, devAddr, data, (byte) data.length) >= 0;
+
+		long requestedNanos = bus.lock();
+		try {
+			return bus.record(device, requestedNanos, transport.write(port, devAddr, data, (byte) data.length) >= 0);
+		} finally {
+			bus.unlock();
+		}
 	}
 
 	/**
@@ -95,7 +145,12 @@ public class I2CUtil implements AutoCloseable {
 			throw new IllegalArgumentException("buffer is too small, must be at least " + count);
 		}
 
-		return I2CJNI.i2CReadB(port, devAddr, buffer, count) >= 0;
+		long requestedNanos = bus.lock();
+		try {
+			return bus.record(device, requestedNanos, transport.read(port, devAddr, buffer, count) >= 0);
+		} finally {
+			bus.unlock();
+		}
 	}
 
 	/**
@@ -120,10 +175,13 @@ public class I2CUtil implements AutoCloseable {
 			throw new IllegalArgumentException("buffer is too small, must be at least " + count);
 		}
 
-		byte[] registerAddressArray = new byte[1];
-		registerAddressArray[0] = registerAddress;
-
-		return transaction(registerAddressArray, (byte) 1, buffer, count);
+		long requestedNanos = bus.lock();
+		try {
+			sendArray[0] = registerAddress;
+			return bus.record(device, requestedNanos, transport.transaction(port, devAddr, sendArray, (byte) 1, buffer, count) >= 0);
+		} finally {
+			bus.unlock();
+		}
 	}
 
 	/**
@@ -148,11 +206,14 @@ public class I2CUtil implements AutoCloseable {
 			throw new IllegalArgumentException("buffer is too small, must be at least " + count);
 		}
 
-		byte[] registerAddressArray = new byte[2];
-		registerAddressArray[0] = (byte) (registerAddress >>> 8);
-		registerAddressArray[1] = (byte) (registerAddress);
-
-		return transaction(registerAddressArray, (byte) 2, buffer, count);
+		long requestedNanos = bus.lock();
+		try {
+			sendArray[0] = (byte) (registerAddress >>> 8);
+			sendArray[1] = (byte) (registerAddress);
+			return bus.record(device, requestedNanos, transport.transaction(port, devAddr, sendArray, (byte) 2, buffer, count) >= 0);
+		} finally {
+			bus.unlock();
+		}
 	}
 
 	/**
@@ -167,11 +228,15 @@ public class I2CUtil implements AutoCloseable {
 	 * @param data            The byte to write to the register on the device.
 	 * @return True for success, false for aborted.
 	 */
-	public synchronized boolean writeToAddress8bit(byte registerAddress, byte data) {
-		byte[] buffer = new byte[2];
-		buffer[0] = (byte) registerAddress;
-		buffer[1] = (byte) data;
-		return I2CJNI.i2CWriteB(port, devAddr, buffer, (byte) 2) >= 0;
+	public boolean writeToAddress8bit(byte registerAddress, byte data) {
+		long requestedNanos = bus.lock();
+		try {
+			sendArray[0] = registerAddress;
+			sendArray[1] = data;
+			return bus.record(device, requestedNanos, transport.write(port, devAddr, sendArray, (byte) 2) >= 0);
+		} finally {
+			bus.unlock();
+		}
 	}
 
 	/**
@@ -186,11 +251,19 @@ public class I2CUtil implements AutoCloseable {
 	 * @param data            The bytes to write to the register on the device.
 	 * @return True for success, false for aborted.
 	 */
-	public synchronized boolean writeToAddress8bit(byte registerAddress, byte[] data) {
-		byte[] buffer = new byte[data.length + 1];
-		buffer[0] = (byte) registerAddress;
-		System.arraycopy(data, 0, buffer, 1, data.length);
-		return I2CJNI.i2CWriteB(port, devAddr, buffer, (byte) (data.length + 1)) >= 0;
+	public boolean writeToAddress8bit(byte registerAddress, byte[] data) {
+		if (data.length > Byte.MAX_VALUE - 1) {
+			throw new IllegalArgumentException("data is too large, must be at most " + (Byte.MAX_VALUE - 1));
+		}
+
+		long requestedNanos = bus.lock();
+		try {
+			sendArray[0] = registerAddress;
+			System.arraycopy(data, 0, sendArray, 1, data.length);
+			return bus.record(device, requestedNanos, transport.write(port, devAddr, sendArray, (byte) (data.length + 1)) >= 0);
+		} finally {
+			bus.unlock();
+		}
 	}
 
 	/**
@@ -205,12 +278,16 @@ public class I2CUtil implements AutoCloseable {
 	 * @param data            The byte to write to the register on the device.
 	 * @return True for success, false for aborted.
 	 */
-	public synchronized boolean writeToAddress16bit(short registerAddress, byte data) {
-		byte[] buffer = new byte[3];
-		buffer[0] = (byte) (registerAddress >>> 8);
-		buffer[1] = (byte) (registerAddress);
-		buffer[2] = (byte) data;
-		return I2CJNI.i2CWriteB(port, devAddr, buffer, (byte) 3) >= 0;
+	public boolean writeToAddress16bit(short registerAddress, byte data) {
+		long requestedNanos = bus.lock();
+		try {
+			sendArray[0] = (byte) (registerAddress >>> 8);
+			sendArray[1] = (byte) (registerAddress);
+			sendArray[2] = data;
+			return bus.record(device, requestedNanos, transport.write(port, devAddr, sendArray, (byte) 3) >= 0);
+		} finally {
+			bus.unlock();
+		}
 	}
 
 	/**
@@ -225,16 +302,238 @@ public class I2CUtil implements AutoCloseable {
 	 * @param data            The bytes to write to the register on the device.
 	 * @return True for success, false for aborted.
 	 */
-	public synchronized boolean writeToAddress16bit(short registerAddress, byte[] data) {
-		byte[] buffer = new byte[data.length + 2];
-		buffer[0] = (byte) (registerAddress >>> 8);
-		buffer[1] = (byte) (registerAddress);
-		System.arraycopy(data, 0, buffer, 2, data.length);
-		return I2CJNI.i2CWriteB(port, devAddr, buffer, (byte) (data.length + 2)) >= 0;
+	public boolean writeToAddress16bit(short registerAddress, byte[] data) {
+		if (data.length > Byte.MAX_VALUE - 2) {
+			throw new IllegalArgumentException("data is too large, must be at most " + (Byte.MAX_VALUE - 2));
+		}
+
+		long requestedNanos = bus.lock();
+		try {
+			sendArray[0] = (byte) (registerAddress >>> 8);
+			sendArray[1] = (byte) (registerAddress);
+			System.arraycopy(data, 0, sendArray, 2, data.length);
+			return bus.record(device, requestedNanos, transport.write(port, devAddr, sendArray, (byte) (data.length + 2)) >= 0);
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	/**
+	 * Generic transaction using direct buffers.
+	 *
+	 * <p>
+	 * Behaves like {@link #transaction(byte[], byte, byte[], byte)}, but data is
+	 * sent from and received into caller-owned direct buffers, so nothing is
+	 * allocated or copied when both offsets are zero. The buffers' positions and
+	 * limits are ignored and left unchanged.
+	 *
+	 * @param dataToSend    Direct buffer of data to send as part of the transaction.
+	 * @param sendOffset    Index of the first byte to send.
+	 * @param sendSize      Number of bytes to send as part of the transaction.
+	 * @param dataReceived  Direct buffer to read data into.
+	 * @param receiveOffset Index to store the first byte read at.
+	 * @param receiveSize   Number of bytes to read from the device.
+	 * @return True for success, false for aborted.
+	 */
+	public boolean transaction(ByteBuffer dataToSend, int sendOffset, int sendSize, ByteBuffer dataReceived, int receiveOffset, int receiveSize) {
+		checkBuffer(dataToSend, sendOffset, sendSize, "dataToSend");
+		checkBuffer(dataReceived, receiveOffset, receiveSize, "dataReceived");
+
+		long requestedNanos = bus.lock();
+		try {
+			ByteBuffer send = dataToSend;
+			if (sendOffset != 0) {
+				sendBuffer.put(0, dataToSend, sendOffset, sendSize);
+				send = sendBuffer;
+			}
+			ByteBuffer receive = receiveOffset == 0 ? dataReceived : receiveBuffer;
+			boolean success = bus.record(device, requestedNanos, transport.transaction(port, devAddr, send, (byte) sendSize, receive, (byte) receiveSize) >= 0);
+			return finishReceive(success, receive, dataReceived, receiveOffset, receiveSize);
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	/**
+	 * Execute a write transaction with the device from a direct buffer.
+	 *
+	 * @param data   Direct buffer of data to write to the device.
+	 * @param offset Index of the first byte to write.
+	 * @param length Number of bytes to write.
+	 * @return True for success, false for aborted.
+	 */
+	public boolean write(ByteBuffer data, int offset, int length) {
+		checkBuffer(data, offset, length, "data");
+
+		long requestedNanos = bus.lock();
+		try {
+			ByteBuffer send = data;
+			if (offset != 0) {
+				sendBuffer.put(0, data, offset, length);
+				send = sendBuffer;
+			}
+			return bus.record(device, requestedNanos, transport.write(port, devAddr, send, (byte) length) >= 0);
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	/**
+	 * Execute a read only transaction with the device into a direct buffer.
+	 *
+	 * @param buffer Direct buffer to store the data read from the device.
+	 * @param offset Index to store the first byte read at.
+	 * @param count  The number of bytes to read in the transaction.
+	 * @return True for success, false for aborted.
+	 */
+	public boolean read(ByteBuffer buffer, int offset, int count) {
+		if (count < 1) {
+			throw new BoundaryException("Value must be at least 1, " + count + " given");
+		}
+		checkBuffer(buffer, offset, count, "buffer");
+
+		long requestedNanos = bus.lock();
+		try {
+			ByteBuffer receive = offset == 0 ? buffer : receiveBuffer;
+			boolean success = bus.record(device, requestedNanos, transport.read(port, devAddr, receive, (byte) count) >= 0);
+			return finishReceive(success, receive, buffer, offset, count);
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	/**
+	 * Execute a read transaction with the device into a direct buffer.
+	 *
+	 * @param registerAddress The register to read first in the transaction.
+	 * @param buffer          Direct buffer to store the data read from the device.
+	 * @param offset          Index to store the first byte read at.
+	 * @param count           The number of bytes to read in the transaction.
+	 * @return True for success, false for aborted.
+	 */
+	public boolean readFromAddress8bit(byte registerAddress, ByteBuffer buffer, int offset, int count) {
+		if (count < 1) {
+			throw new BoundaryException("Value must be at least 1, " + count + " given");
+		}
+		checkBuffer(buffer, offset, count, "buffer");
+
+		long requestedNanos = bus.lock();
+		try {
+			sendBuffer.put(0, registerAddress);
+			ByteBuffer receive = offset == 0 ? buffer : receiveBuffer;
+			boolean success = bus.record(device, requestedNanos, transport.transaction(port, devAddr, sendBuffer, (byte) 1, receive, (byte) count) >= 0);
+			return finishReceive(success, receive, buffer, offset, count);
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	/**
+	 * Execute a read transaction with the device into a direct buffer.
+	 *
+	 * @param registerAddress The register to read first in the transaction.
+	 * @param buffer          Direct buffer to store the data read from the device.
+	 * @param offset          Index to store the first byte read at.
+	 * @param count           The number of bytes to read in the transaction.
+	 * @return True for success, false for aborted.
+	 */
+	public boolean readFromAddress16bit(short registerAddress, ByteBuffer buffer, int offset, int count) {
+		if (count < 1) {
+			throw new BoundaryException("Value must be at least 1, " + count + " given");
+		}
+		checkBuffer(buffer, offset, count, "buffer");
+
+		long requestedNanos = bus.lock();
+		try {
+			sendBuffer.put(0, (byte) (registerAddress >>> 8));
+			sendBuffer.put(1, (byte) (registerAddress));
+			ByteBuffer receive = offset == 0 ? buffer : receiveBuffer;
+			boolean success = bus.record(device, requestedNanos, transport.transaction(port, devAddr, sendBuffer, (byte) 2, receive, (byte) count) >= 0);
+			return finishReceive(success, receive, buffer, offset, count);
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	/**
+	 * Execute a write transaction with the device from a direct buffer.
+	 *
+	 * @param registerAddress The address of the register on the device to be
+	 *                        written.
+	 * @param data            Direct buffer of the bytes to write to the register.
+	 * @param offset          Index of the first byte to write.
+	 * @param length          Number of bytes to write.
+	 * @return True for success, false for aborted.
+	 */
+	public boolean writeToAddress8bit(byte registerAddress, ByteBuffer data, int offset, int length) {
+		checkBuffer(data, offset, length, "data");
+		if (length > Byte.MAX_VALUE - 1) {
+			throw new IllegalArgumentException("data is too large, must be at most " + (Byte.MAX_VALUE - 1));
+		}
+
+		long requestedNanos = bus.lock();
+		try {
+			sendBuffer.put(0, registerAddress);
+			sendBuffer.put(1, data, offset, length);
+			return bus.record(device, requestedNanos, transport.write(port, devAddr, sendBuffer, (byte) (length + 1)) >= 0);
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	/**
+	 * Execute a write transaction with the device from a direct buffer.
+	 *
+	 * @param registerAddress The address of the register on the device to be
+	 *                        written.
+	 * @param data            Direct buffer of the bytes to write to the register.
+	 * @param offset          Index of the first byte to write.
+	 * @param length          Number of bytes to write.
+	 * @return True for success, false for aborted.
+	 */
+	public boolean writeToAddress16bit(short registerAddress, ByteBuffer data, int offset, int length) {
+		checkBuffer(data, offset, length, "data");
+		if (length > Byte.MAX_VALUE - 2) {
+			throw new IllegalArgumentException("data is too large, must be at most " + (Byte.MAX_VALUE - 2));
+		}
+
+		long requestedNanos = bus.lock();
+		try {
+			sendBuffer.put(0, (byte) (registerAddress >>> 8));
+			sendBuffer.put(1, (byte) (registerAddress));
+			sendBuffer.put(2, data, offset, length);
+			return bus.record(device, requestedNanos, transport.write(port, devAddr, sendBuffer, (byte) (length + 2)) >= 0);
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	private static void checkBuffer(ByteBuffer buffer, int offset, int length, String name) {
+		if (!buffer.isDirect()) {
+			throw new IllegalArgumentException(name + " must be a direct buffer");
+		}
+		if (length < 0 || length > Byte.MAX_VALUE) {
+			throw new IllegalArgumentException(name + " length must be between 0 and " + Byte.MAX_VALUE + ", " + length + " given");
+		}
+		if (offset < 0 || offset + length > buffer.capacity()) {
+			throw new IllegalArgumentException(name + " is too small, must be at least " + (offset + length));
+		}
+	}
+
+	// The JNI layer always reads and writes from the start of a buffer, so data received into the scratch buffer is copied to its offset.
+	private static boolean finishReceive(boolean success, ByteBuffer receive, ByteBuffer destination, int offset, int count) {
+		if (success && receive != destination) {
+			destination.put(offset, receive, 0, count);
+		}
+		return success;
 	}
 
 	@Override
-	public void close() {
-		I2CJNI.i2CClose(port);
+	public synchronized void close() {
+		// The port stays open until every device on it has been closed.
+		if (!closed) {
+			closed = true;
+			bus.release();
+		}
 	}
 }
\ No newline at end of file
@@ -1,15 +1,24 @@
 package com.redstorm509.stormkit.drivers;
 
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import com.redstorm509.stormkit.interfaces.ITimeSource;
+import com.redstorm509.stormkit.telemetry.Timing;
+import com.redstorm509.stormkit.telemetry.TimingSpan;
+import com.redstorm509.stormkit.util.FPGATimeSource;
+import com.redstorm509.stormkit.util.TimeSeriesBuffer;
+
 import edu.wpi.first.math.Pair;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.I2C;
-import edu.wpi.first.wpilibj.Timer;
 
 /**
  * A driver for the Adafruit VL53L4CD Time-of-Flight Distance Sensor, adapted
  * from this Rust implementation: https://github.com/akeamc/vl53l4cd
  */
-public class VL53L4CD {
+public class VL53L4CD implements AutoCloseable {
 
 	public enum Register {
 		SOFT_RESET(0x0000),
@@ -149,22 +158,30 @@ public class VL53L4CD {
 		Error
 	}
 
-	public class Measurement {
+	public static class Measurement {
 		public Status status;
 		public short distanceMillimeters;
 		public short ambientRate;
 		public short signalRate;
 		public short spadsEnabled;
 		public short sigma;
+		/** The FPGA time at which the measurement was seen to be ready, in seconds, or NaN if unknown. */
+		public double timestampSeconds;
 
 		public Measurement(Status status, short distanceMillimeters, short ambientRate, short signalRate,
 				short spadsEnabled, short sigma) {
+			this(status, distanceMillimeters, ambientRate, signalRate, spadsEnabled, sigma, Double.NaN);
+		}
+
+		public Measurement(Status status, short distanceMillimeters, short ambientRate, short signalRate,
+				short spadsEnabled, short sigma, double timestampSeconds) {
 			this.status = status;
 			this.distanceMillimeters = distanceMillimeters;
 			this.ambientRate = ambientRate;
 			this.signalRate = signalRate;
 			this.spadsEnabled = spadsEnabled;
 			this.sigma = sigma;
+			this.timestampSeconds = timestampSeconds;
 		}
 
 		public boolean isValid() {
@@ -276,29 +293,59 @@ public class VL53L4CD {
 	}
 
 	private static final byte PERIPHERAL_ADDR = 0x29;
+	// The sensor boots in well under a second; give up rather than hang the robot if it never does.
+	private static final int BOOT_TIMEOUT_POLLS = 1000;
+	private static final double BOOT_POLL_PERIOD_SECONDS = 0.001;
+	private static final double DEFAULT_POLL_PERIOD_SECONDS = 0.001;
+	// About five seconds of samples at the fastest timing budget.
+	private static final int HISTORY_CAPACITY = 512;
+	// The result registers are contiguous from RESULT_RANGE_STATUS (0x89) to the end of RESULT_DISTANCE (0x97).
+	private static final int RESULT_BLOCK_LENGTH = Register.RESULT_DISTANCE.addr() + 2 - Register.RESULT_RANGE_STATUS.addr();
+	// DefaultConfig.MESSAGE is written starting at I2C_FAST_MODE_PLUS (0x2D).
+	private static final short DEFAULT_CONFIG_ADDR = Register.I2C_FAST_MODE_PLUS.addr();
+	// The shadowed configuration registers are contiguous from RANGE_CONFIG_A (0x5E) to the end of INTERMEASUREMENT_MS (0x6F).
+	private static final int CONFIG_BLOCK_LENGTH = Register.INTERMEASUREMENT_MS.addr() + 4 - Register.RANGE_CONFIG_A.addr();
+	private static final int DEFAULT_TIMING_BUDGET_MS = 20;
+
+	static void encodeWord(short value, byte[] bytes, int offset) {
+		bytes[offset] = (byte) ((value >> 8) & 0xFF);
+		bytes[offset + 1] = (byte) (value & 0xFF);
+	}
 
-	public static void writeWord(I2CUtil i2c, Register register, short value) {
-		byte[] bytes = new byte[2];
+	static void encodeDword(int value, byte[] bytes, int offset) {
+		bytes[offset] = (byte) ((value >> 24) & 0xFF);
+		bytes[offset + 1] = (byte) ((value >> 16) & 0xFF);
+		bytes[offset + 2] = (byte) ((value >> 8) & 0xFF);
+		bytes[offset + 3] = (byte) (value & 0xFF);
+	}
 
-		bytes[0] = (byte) ((value >> 8) & 0xFF);
-		bytes[1] = (byte) (value & 0xFF);
+	static short decodeWord(byte[] bytes, int offset) {
+		return (short) ((bytes[offset] << 8) | (bytes[offset + 1] & 0xFF));
+	}
 
+	static int decodeDword(byte[] bytes, int offset) {
+		return ((bytes[offset] & 0xFF) << 24) |
+				((bytes[offset + 1] & 0xFF) << 16) |
+				((bytes[offset + 2] & 0xFF) << 8) |
+				(bytes[offset + 3] & 0xFF);
+	}
+
+	public static void writeWord(I2CUtil i2c, Register register, short value) {
+		byte[] bytes = new byte[2];
+		encodeWord(value, bytes, 0);
 		i2c.writeToAddress16bit(register.addr(), bytes);
 	}
 
 	private static int readDword(I2CUtil i2c, Register address) {
 		byte[] bytes = new byte[4];
 		i2c.readFromAddress16bit(address.addr(), (byte) 4, bytes);
-		return ((bytes[0] & 0xFF) << 24) |
-				((bytes[1] & 0xFF) << 16) |
-				((bytes[2] & 0xFF) << 8) |
-				(bytes[3] & 0xFF);
+		return decodeDword(bytes, 0);
 	}
 
 	private static short readWord(I2CUtil i2c, Register address) {
 		byte[] bytes = new byte[2];
 		i2c.readFromAddress16bit(address.addr(), (byte) 2, bytes);
-		return (short) ((bytes[0] << 8) | (bytes[1] & 0xFF));
+		return decodeWord(bytes, 0);
 	}
 
 	private static byte readByte(I2CUtil i2c, Register address) {
@@ -309,14 +356,11 @@ public class VL53L4CD {
 
 	private static void writeDword(I2CUtil i2c, Register register, int value) {
 		byte[] bytes = new byte[4];
-		bytes[0] = (byte) ((value >> 24) & 0xFF);
-		bytes[1] = (byte) ((value >> 16) & 0xFF);
-		bytes[2] = (byte) ((value >> 8) & 0xFF);
-		bytes[3] = (byte) (value & 0xFF);
+		encodeDword(value, bytes, 0);
 		i2c.writeToAddress16bit(register.addr(), bytes);
 	}
 
-	private static Pair<Short, Short> rangeConfigValues(int timingBudgetUs, short oscFreq) {
+	static Pair<Short, Short> rangeConfigValues(int timingBudgetUs, short oscFreq) {
 		// I didn't make these values up because I'm not a wizard.
 		// https://github.com/stm32duino/VL53L4CD/blob/b64ff4fa877c3cf156e11639e5fa305208dd3be9/src/vl53l4cd_api.cpp#L370
 
@@ -341,36 +385,69 @@ public class VL53L4CD {
 		return (short) ((msByte << 8) | (lsByte & 0xff));
 	}
 
-	private I2CUtil i2c;
+	private volatile I2CUtil i2c;
+	private volatile boolean initialized = false;
+	private final AtomicReference<Measurement> latestMeasurement = new AtomicReference<>();
+	private Thread pollingThread;
+	// The bus whose shared polling schedule this sensor is on, if it's not using its own thread.
+	private I2CBus scheduledBus;
+	private final BooleanSupplier poller = this::pollOnce;
+	private volatile boolean polling = false;
+	private volatile long measurementCount = 0;
+	private volatile VL53L4CDFilter filter;
+	// Each sensor can be read from its own polling thread, and a span is recorded from one thread at a time, so every sensor has its own.
+	private volatile TimingSpan measureSpan;
+	private volatile ITimeSource timeSource = new FPGATimeSource();
+	private final TimeSeriesBuffer history = new TimeSeriesBuffer(HISTORY_CAPACITY);
+	// Reused for every poll; only ever touched by the thread that owns the bus.
+	private final byte[] resultBlock = new byte[RESULT_BLOCK_LENGTH];
+	private final byte[] gpioStatus = new byte[1];
+	private final byte[] configBlock = new byte[CONFIG_BLOCK_LENGTH];
+
+	// Shadow of the sensor's registers. The calibration registers are read once and kept, since they never change. The configuration registers are only
+	// read if nothing has been written to them yet; after that they hold what was last written, which is also what brownout recovery checks against.
+	private short oscFreq = 0;
+	private int clockPoll = -1;
+	private byte gpioHvMuxCtrl;
+	private boolean configShadowed = false;
+	private int interMeasurement;
+	private short rangeConfigA;
+	private short rangeConfigB;
+	private int timingBudgetMs = DEFAULT_TIMING_BUDGET_MS;
+	private int interMeasurementMs = 0;
 
 	public VL53L4CD(I2C.Port port) {
 		i2c = new I2CUtil(port, PERIPHERAL_ADDR);
+		measureSpan = spanFor(i2c);
 	}
 
 	public void changeDeviceAddress(byte newDeviceAddress) {
 		// Set the new device address.
 		i2c.writeToAddress16bit(Register.I2C_SLAVE_DEVICE_ADDRESS.addr(), newDeviceAddress);
-		// Re-instantiate the I2CUtil instance for the reloacted device address.
-		int port = i2c.getPort();
-		i2c = new I2CUtil(port, newDeviceAddress);
+		// Re-instantiate the I2CUtil instance for the reloacted device address. The old instance is closed
+		// after the new one exists so the port stays initialized.
+		I2CUtil previous = i2c;
+		i2c = new I2CUtil(previous.getPort(), newDeviceAddress);
+		previous.close();
+		measureSpan = spanFor(i2c);
 	}
 
-	public void init() {
-		short id = readWord(i2c, Register.IDENTIFICATION_MODEL_ID);
-
-		if (id != -5206) {
-			DriverStation.reportError("[VL53L4CD] Error: Strange Device Id", false);
-		}
-
-		System.out.println("[VL53L4CD] Waiting for Boot...");
+	private static TimingSpan spanFor(I2CUtil i2c) {
+		return Timing.span(String.format("VL53L4CD/%d/0x%02x/measure", i2c.getPort(), i2c.getDeviceAddress()));
+	}
 
-		while (readByte(i2c, Register.FIRMWARE_SYSTEM_STATUS) != 0x3) {
-			Timer.delay(0.001);
+	/**
+	 * Boots and configures the sensor, blocking for up to a second while it boots.
+	 *
+	 * @return Whether the sensor booted. If false, the sensor was left unconfigured.
+	 */
+	public boolean init() {
+		if (!waitForBoot()) {
+			return false;
 		}
 
-		System.out.println("[VL53L4CD] Successfully Booted!");
-
-		i2c.writeToAddress16bit((short) 0x2d, DefaultConfig.MESSAGE);
+		i2c.writeToAddress16bit(DEFAULT_CONFIG_ADDR, DefaultConfig.MESSAGE);
+		shadowDefaultConfig();
 
 		startRanging();
 		stopRanging();
@@ -378,7 +455,73 @@ public class VL53L4CD {
 		i2c.writeToAddress16bit(Register.MYSTERY_1.addr(), (byte) 0);
 		writeWord(i2c, Register.MYSTERY_2, (short) 0x500);
 
-		setRangeTiming(20, 0);
+		setRangeTiming(timingBudgetMs, interMeasurementMs);
+		initialized = true;
+		return true;
+	}
+
+	/**
+	 * Checks whether the sensor still holds the range configuration last written to it, in a single read. A brownout or an XSHUT glitch resets the sensor
+	 * to its defaults, which this detects.
+	 *
+	 * @return Whether the sensor is initialized and its configuration matches.
+	 */
+	public boolean isConfigurationCurrent() {
+		if (!initialized || !i2c.readFromAddress16bit(Register.RANGE_CONFIG_A.addr(), (byte) CONFIG_BLOCK_LENGTH, configBlock)) {
+			return false;
+		}
+
+		return decodeWord(configBlock, configOffset(Register.RANGE_CONFIG_A)) == rangeConfigA
+				&& decodeWord(configBlock, configOffset(Register.RANGE_CONFIG_B)) == rangeConfigB
+				&& decodeDword(configBlock, configOffset(Register.INTERMEASUREMENT_MS)) == interMeasurement;
+	}
+
+	/**
+	 * Reconfigures the sensor with the last range timing set if it has lost its configuration, e.g. after a brownout. A sensor that had to be reconfigured
+	 * is left stopped, so restart ranging afterwards. Don't call this while asynchronous ranging is running.
+	 *
+	 * <p>
+	 * A reset also returns the sensor to the default address, so a sensor that was moved with
+	 * {@link VL53L4CD#changeDeviceAddress(byte)} has to be moved again before it can be restored.
+	 *
+	 * @return Whether the sensor holds its configuration, either still or again.
+	 */
+	public boolean restoreConfiguration() {
+		if (isConfigurationCurrent()) {
+			return true;
+		}
+
+		DriverStation.reportWarning("[VL53L4CD] Configuration lost, reinitializing.", false);
+		initialized = false;
+		configShadowed = false;
+		return init();
+	}
+
+	/**
+	 * Blocks for up to a second until the sensor's firmware has booted.
+	 *
+	 * @return Whether the sensor booted.
+	 */
+	boolean waitForBoot() {
+		short id = readWord(i2c, Register.IDENTIFICATION_MODEL_ID);
+
+		if (id != -5206) {
+			DriverStation.reportError("[VL53L4CD] Error: Strange Device Id", false);
+		}
+
+		System.out.println("[VL53L4CD] Waiting for Boot...");
+
+		// Bounded by polls rather than a deadline, since a clock such as a LoopTimeSource doesn't move while init blocks the loop.
+		for (int i = 0; i < BOOT_TIMEOUT_POLLS; i++) {
+			if (readByte(i2c, Register.FIRMWARE_SYSTEM_STATUS) == 0x3) {
+				System.out.println("[VL53L4CD] Successfully Booted!");
+				return true;
+			}
+			timeSource.delay(BOOT_POLL_PERIOD_SECONDS);
+		}
+
+		DriverStation.reportError("[VL53L4CD] Timed out while waiting for the sensor to boot.", false);
+		return false;
 	}
 
 	public void setRangeTiming(int timingBudgetMs, int interMeasurementMs) {
@@ -386,43 +529,333 @@ public class VL53L4CD {
 			DriverStation.reportError("[VL53L4CD] Timing budget must be in range [10, 200]", false);
 		}
 
-		short oscFreq = readWord(i2c, Register.OSC_FREQ);
+		short oscFreq = getOscFreq();
 		if (oscFreq == 0) {
 			DriverStation.reportError("[VL53L4CD] Oscillation frequency is zero.", false);
 		}
 
+		this.timingBudgetMs = timingBudgetMs;
+		this.interMeasurementMs = interMeasurementMs;
 		int timingBudgetUs = timingBudgetMs * 1000;
 		if (interMeasurementMs == 0) {
 			// continuous mode
-			writeDword(i2c, Register.INTERMEASUREMENT_MS, 0);
+			writeInterMeasurement(0);
 			timingBudgetUs -= 2500;
 		} else {
-			if (timingBudgetMs < interMeasurementMs) {
+			if (interMeasurementMs < timingBudgetMs) {
 				DriverStation.reportError(
-						"[VL53L4CD] Timing budget must be greater than or equal to inter-measurement.", false);
+						"[VL53L4CD] Inter-measurement must be greater than or equal to timing budget.", false);
 			}
 
 			// autonomous low power mode
-			int clockPoll = (int) readDword(i2c, Register.RESULT_OSC_CALIBRATE_VAL) & 0x3ff;
-			double inter_measurement_fac = 1.055 * (interMeasurementMs * clockPoll);
-			writeDword(i2c, Register.INTERMEASUREMENT_MS, (int) inter_measurement_fac);
+			double inter_measurement_fac = 1.055 * (interMeasurementMs * getClockPoll());
+			writeInterMeasurement((int) inter_measurement_fac);
 
 			timingBudgetUs -= 4300;
 			timingBudgetUs /= 2;
 		}
 
 		Pair<Short, Short> ab = rangeConfigValues(timingBudgetUs, oscFreq);
-		writeWord(i2c, Register.RANGE_CONFIG_A, ab.getFirst());
-		writeWord(i2c, Register.RANGE_CONFIG_B, ab.getSecond());
+		if (!configShadowed || ab.getFirst() != rangeConfigA) {
+			writeWord(i2c, Register.RANGE_CONFIG_A, ab.getFirst());
+			rangeConfigA = ab.getFirst();
+		}
+		if (!configShadowed || ab.getSecond() != rangeConfigB) {
+			writeWord(i2c, Register.RANGE_CONFIG_B, ab.getSecond());
+			rangeConfigB = ab.getSecond();
+		}
+	}
+
+	private short getOscFreq() {
+		if (oscFreq == 0) {
+			oscFreq = readWord(i2c, Register.OSC_FREQ);
+		}
+		return oscFreq;
+	}
+
+	private int getClockPoll() {
+		if (clockPoll < 0) {
+			// A 16-bit register; reading a dword would take its low bits from the next register.
+			clockPoll = readWord(i2c, Register.RESULT_OSC_CALIBRATE_VAL) & 0x3ff;
+		}
+		return clockPoll;
+	}
+
+	private void writeInterMeasurement(int value) {
+		if (!configShadowed || value != interMeasurement) {
+			writeDword(i2c, Register.INTERMEASUREMENT_MS, value);
+			interMeasurement = value;
+		}
+	}
+
+	/**
+	 * Fills the configuration shadow from the sensor, if {@link VL53L4CD#init()} hasn't already filled it from the default configuration.
+	 */
+	private void loadConfigShadow() {
+		if (configShadowed) {
+			return;
+		}
+
+		gpioHvMuxCtrl = readByte(i2c, Register.GPIO_HV_MUX_CTRL);
+		i2c.readFromAddress16bit(Register.RANGE_CONFIG_A.addr(), (byte) CONFIG_BLOCK_LENGTH, configBlock);
+		rangeConfigA = decodeWord(configBlock, configOffset(Register.RANGE_CONFIG_A));
+		rangeConfigB = decodeWord(configBlock, configOffset(Register.RANGE_CONFIG_B));
+		interMeasurement = decodeDword(configBlock, configOffset(Register.INTERMEASUREMENT_MS));
+		configShadowed = true;
+	}
+
+	private void shadowDefaultConfig() {
+		gpioHvMuxCtrl = DefaultConfig.MESSAGE[defaultConfigOffset(Register.GPIO_HV_MUX_CTRL)];
+		rangeConfigA = decodeWord(DefaultConfig.MESSAGE, defaultConfigOffset(Register.RANGE_CONFIG_A));
+		rangeConfigB = decodeWord(DefaultConfig.MESSAGE, defaultConfigOffset(Register.RANGE_CONFIG_B));
+		interMeasurement = decodeDword(DefaultConfig.MESSAGE, defaultConfigOffset(Register.INTERMEASUREMENT_MS));
+		configShadowed = true;
+	}
+
+	private static int configOffset(Register register) {
+		return register.addr() - Register.RANGE_CONFIG_A.addr();
+	}
+
+	private static int defaultConfigOffset(Register register) {
+		return register.addr() - DEFAULT_CONFIG_ADDR;
 	}
 
 	public Measurement measure() {
+		if (polling) {
+			throw new IllegalStateException("[VL53L4CD] Use getLatestMeasurement() while asynchronous ranging is running");
+		}
+
+		long start = measureSpan.start();
 		waitForMeasurement();
+		double timestamp = timeSource.getTimestampSeconds();
 		Measurement measurement = readMeasurement();
+		measurement.timestampSeconds = timestamp;
 		clearInterrupt();
+		record(measurement);
+		measureSpan.end(start);
 		return measurement;
 	}
 
+	/**
+	 * Starts ranging on a background thread that polls the sensor every millisecond. See {@link VL53L4CD#startAsync(double)}.
+	 */
+	public void startAsync() {
+		startAsync(DEFAULT_POLL_PERIOD_SECONDS);
+	}
+
+	/**
+	 * Starts ranging on a background thread. The thread initializes the sensor if {@link VL53L4CD#init()} hasn't been called, then polls the data-ready bit, reads and
+	 * timestamps each measurement, clears the interrupt, and publishes it for {@link VL53L4CD#getLatestMeasurement()}. The calling thread never blocks on the bus.
+	 * Don't call the blocking methods of this driver while asynchronous ranging is running.
+	 *
+	 * @param pollPeriodSeconds How long the thread sleeps between checks of the data-ready bit.
+	 */
+	public synchronized void startAsync(double pollPeriodSeconds) {
+		if (pollingThread != null || scheduledBus != null) {
+			return;
+		}
+
+		long pollPeriodNanos = (long) (pollPeriodSeconds * 1e9);
+		polling = true;
+		pollingThread = new Thread(() -> poll(pollPeriodNanos), "VL53L4CD-" + i2c.getPort() + "-" + Integer.toHexString(i2c.getDeviceAddress()));
+		pollingThread.setDaemon(true);
+		pollingThread.start();
+	}
+
+	/**
+	 * Starts ranging on the round-robin polling schedule of the sensor's {@link I2CBus}, which shares one thread between every sensor on the port instead of
+	 * giving each its own. Initializes the sensor on the calling thread if {@link VL53L4CD#init()} hasn't been called, then publishes measurements for
+	 * {@link VL53L4CD#getLatestMeasurement()} like {@link VL53L4CD#startAsync(double)}.
+	 *
+	 * @return Whether the sensor was initialized and ranging started.
+	 */
+	public synchronized boolean startScheduled() {
+		if (pollingThread != null || scheduledBus != null) {
+			return true;
+		}
+		if (!initialized && !init()) {
+			return false;
+		}
+
+		startRanging();
+		schedule();
+		return true;
+	}
+
+	/**
+	 * Adds the sensor to its bus's polling schedule. Ranging must already have been started.
+	 */
+	synchronized void schedule() {
+		polling = true;
+		scheduledBus = i2c.getBus();
+		scheduledBus.addPoller(poller);
+		scheduledBus.startPolling(DEFAULT_POLL_PERIOD_SECONDS);
+	}
+
+	/**
+	 * Stops asynchronous ranging, waiting for the background thread or bus schedule to stop polling the sensor.
+	 */
+	public synchronized void stopAsync() {
+		if (scheduledBus != null) {
+			scheduledBus.removePoller(poller);
+			scheduledBus = null;
+			polling = false;
+			stopRanging();
+			return;
+		}
+		if (pollingThread == null) {
+			return;
+		}
+
+		polling = false;
+		LockSupport.unpark(pollingThread);
+		try {
+			pollingThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		pollingThread = null;
+	}
+
+	/**
+	 * Stops asynchronous ranging and releases the sensor's I2C device, closing the port if nothing else is using it. The driver can't be used afterwards.
+	 */
+	@Override
+	public void close() {
+		stopAsync();
+		i2c.close();
+	}
+
+	/**
+	 * Returns whether asynchronous ranging is running.
+	 *
+	 * @return Whether measurements are being published in the background.
+	 */
+	public boolean isAsync() {
+		return polling;
+	}
+
+	/**
+	 * Gets the most recent measurement published by asynchronous ranging. This never blocks.
+	 *
+	 * @return The latest measurement, or null if none has been taken yet.
+	 */
+	public Measurement getLatestMeasurement() {
+		return latestMeasurement.get();
+	}
+
+	/**
+	 * Gets the number of measurements published by asynchronous ranging.
+	 *
+	 * @return The number of measurements.
+	 */
+	public long getMeasurementCount() {
+		return measurementCount;
+	}
+
+	/**
+	 * Sets a filter to run on every measurement as it is read, on the thread that reads it.
+	 *
+	 * @param filter The filter, or null to stop filtering.
+	 */
+	public void setFilter(VL53L4CDFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Sets the clock that measurements are timestamped on and that boot and measurement timeouts wait on. Give the driver and a
+	 * {@link com.redstorm509.stormkit.drivers.simulation.VL53L4CDSim} the same {@link com.redstorm509.stormkit.util.VirtualTimeSource} to run a simulation
+	 * without waiting in real time.
+	 *
+	 * @param timeSource The clock. Defaults to the FPGA clock.
+	 */
+	public void setTimeSource(ITimeSource timeSource) {
+		this.timeSource = timeSource;
+	}
+
+	/**
+	 * Gets the filter that runs on every measurement.
+	 *
+	 * @return The filter, or null if there isn't one.
+	 */
+	public VL53L4CDFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Gets the distance at a point in time, interpolated from the history of valid measurements. Use this to line the sensor up with other timestamped
+	 * data such as odometry. The last several seconds of measurements are kept.
+	 *
+	 * @param timestampSeconds The FPGA timestamp in seconds.
+	 * @return The distance in millimeters, or NaN if there are no valid measurements yet.
+	 */
+	public double getDistanceMillimetersAt(double timestampSeconds) {
+		synchronized (history) {
+			return history.getValueAt(timestampSeconds);
+		}
+	}
+
+	/**
+	 * Gets the history of valid measurements, as distances in millimeters keyed by the FPGA time each became ready. The history is written by whichever
+	 * thread reads the sensor, so synchronize on it while reading it.
+	 *
+	 * @return The measurement history.
+	 */
+	public TimeSeriesBuffer getHistory() {
+		return history;
+	}
+
+	private void record(Measurement measurement) {
+		if (measurement.isValid()) {
+			synchronized (history) {
+				history.add(measurement.timestampSeconds, measurement.distanceMillimeters);
+			}
+		}
+
+		VL53L4CDFilter current = filter;
+		if (current != null) {
+			current.accept(measurement);
+		}
+	}
+
+	private void poll(long pollPeriodNanos) {
+		if (!initialized && !init()) {
+			polling = false;
+			return;
+		}
+		startRanging();
+
+		while (polling) {
+			if (!pollOnce()) {
+				LockSupport.parkNanos(pollPeriodNanos);
+			}
+		}
+
+		stopRanging();
+	}
+
+	/**
+	 * Checks the data-ready bit once, and reads, timestamps and publishes the measurement if there is one.
+	 *
+	 * @return Whether a measurement was published.
+	 */
+	private boolean pollOnce() {
+		if (!hasMeasurement()) {
+			return false;
+		}
+
+		double timestamp = timeSource.getTimestampSeconds();
+		long start = measureSpan.start();
+		Measurement measurement = readMeasurement();
+		measurement.timestampSeconds = timestamp;
+		clearInterrupt();
+		record(measurement);
+		measureSpan.end(start);
+		latestMeasurement.set(measurement);
+		measurementCount++;
+		return true;
+	}
+
 	public void startTemperatureUpdate() {
 		i2c.writeToAddress16bit(Register.VHV_CONFIG_TIMEOUT_MACROP_LOOP_BOUND.addr(), (byte) 0x81);
 		i2c.writeToAddress16bit(Register.MYSTERY_1.addr(), (byte) 0x92);
@@ -441,27 +874,46 @@ public class VL53L4CD {
 			if (hasMeasurement()) {
 				return;
 			}
-			Timer.delay(0.001);
+			timeSource.delay(0.001);
 		}
 		DriverStation.reportError("[VL53L4CD] Timed out while waiting for a measurement.", false);
 	}
 
 	public boolean hasMeasurement() {
-		byte ctrl = readByte(i2c, Register.GPIO_HV_MUX_CTRL);
-		byte status = readByte(i2c, Register.GPIO_TIO_HV_STATUS);
-		return (status & 1) != (ctrl >> 4 & 1);
+		// The interrupt polarity in GPIO_HV_MUX_CTRL is shadowed, so only the status needs reading.
+		loadConfigShadow();
+		i2c.readFromAddress16bit(Register.GPIO_TIO_HV_STATUS.addr(), (byte) 1, gpioStatus);
+		return decodeDataReady(gpioHvMuxCtrl, gpioStatus[0]);
 	}
 
+	/**
+	 * Reads every result register in a single burst transaction and decodes the measurement from it.
+	 *
+	 * @return The measurement. Its timestamp is left as NaN.
+	 */
 	public Measurement readMeasurement() {
-		byte status = (byte) (readByte(i2c, Register.RESULT_RANGE_STATUS) & 0x1f);
+		i2c.readFromAddress16bit(Register.RESULT_RANGE_STATUS.addr(), (byte) RESULT_BLOCK_LENGTH, resultBlock);
+		return decodeResultBlock(resultBlock);
+	}
+
+	static boolean decodeDataReady(byte ctrl, byte status) {
+		return (status & 1) != (ctrl >> 4 & 1);
+	}
+
+	static Measurement decodeResultBlock(byte[] block) {
+		byte status = (byte) (block[0] & 0x1f);
 
 		return new Measurement(
 				Status.fromReturn(status),
-				readWord(i2c, Register.RESULT_DISTANCE),
-				(short) (readWord(i2c, Register.RESULT_AMBIENT_RATE) * 8),
-				(short) (readWord(i2c, Register.RESULT_SIGNAL_RATE) * 8),
-				(short) (readWord(i2c, Register.RESULT_SPAD_NB) / 256),
-				(short) (readWord(i2c, Register.RESULT_SIGMA) / 4));
+				decodeWord(block, resultOffset(Register.RESULT_DISTANCE)),
+				(short) (decodeWord(block, resultOffset(Register.RESULT_AMBIENT_RATE)) * 8),
+				(short) (decodeWord(block, resultOffset(Register.RESULT_SIGNAL_RATE)) * 8),
+				(short) (decodeWord(block, resultOffset(Register.RESULT_SPAD_NB)) / 256),
+				(short) (decodeWord(block, resultOffset(Register.RESULT_SIGMA)) / 4));
+	}
+
+	private static int resultOffset(Register register) {
+		return register.addr() - Register.RESULT_RANGE_STATUS.addr();
 	}
 
 	public void clearInterrupt() {
@@ -469,16 +921,23 @@ public class VL53L4CD {
 	}
 
 	public void startRanging() {
-		if (readWord(i2c, Register.INTERMEASUREMENT_MS) == (short) 0) {
-			// autonomous mode
+		beginRanging();
+		waitForMeasurement();
+		clearInterrupt();
+	}
+
+	/**
+	 * Starts ranging without waiting for the first measurement.
+	 */
+	void beginRanging() {
+		loadConfigShadow();
+		if (interMeasurement == 0) {
+			// continuous mode
 			i2c.writeToAddress16bit(Register.SYSTEM_START.addr(), (byte) 0x21);
 		} else {
-			// continuous mode
+			// autonomous mode
 			i2c.writeToAddress16bit(Register.SYSTEM_START.addr(), (byte) 0x40);
 		}
-
-		waitForMeasurement();
-		clearInterrupt();
 	}
 
 	public void stopRanging() {
@@ -0,0 +1,358 @@
+package com.redstorm509.stormkit.drivers;
+
+import java.util.Arrays;
+
+import com.redstorm509.stormkit.drivers.VL53L4CD.Measurement;
+import com.redstorm509.stormkit.interfaces.ITimeSource;
+import com.redstorm509.stormkit.util.FPGATimeSource;
+
+import edu.wpi.first.wpilibj.DigitalOutput;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.I2C;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+
+/**
+ * Manages several VL53L4CD sensors sharing one I2C port. Every sensor's XSHUT pin is wired to a DIO channel, which is used to bring the sensors up one at a
+ * time at the default address and move each to its own address. The slow part of initialization then runs for every sensor in parallel.
+ * Once started, the sensors range on their bus's shared polling schedule with evenly staggered start times, so their results become ready one after another
+ * rather than all at once. The latest measurement of every sensor is snapshotted once per main loop in {@link VL53L4CDArray#periodic()}.
+ */
+public class VL53L4CDArray extends SubsystemBase implements AutoCloseable {
+	private static final byte DEFAULT_ADDRESS = 0x29;
+	private static final byte FIRST_ASSIGNED_ADDRESS = 0x30;
+	// Long enough for every sensor to see XSHUT low and reset.
+	private static final double RESET_SECONDS = 0.01;
+
+	private final I2C.Port port;
+	private final DigitalOutput[] enablePins;
+	private final byte[] addresses;
+	private final VL53L4CD[] sensors;
+	private final boolean[] online;
+	private double rangingPeriodSeconds = 0.02;
+	private double startupSeconds = Double.NaN;
+	private boolean ranging = false;
+	private ITimeSource timeSource = new FPGATimeSource();
+
+	// Snapshot of every sensor, refreshed once per main loop.
+	private final Measurement[] measurements;
+	private final short[] distancesMillimeters;
+	private final double[] timestampsSeconds;
+	private final boolean[] valid;
+
+	/**
+	 * Constructs a VL53L4CDArray whose sensors are assigned consecutive addresses starting at 0x30.
+	 *
+	 * @param port The I2C port every sensor is on.
+	 * @param enableChannels The DIO channel wired to each sensor's XSHUT pin.
+	 */
+	public VL53L4CDArray(I2C.Port port, int... enableChannels) {
+		this(port, enableChannels, defaultAddresses(enableChannels.length));
+	}
+
+	/**
+	 * Constructs a VL53L4CDArray.
+	 *
+	 * @param port The I2C port every sensor is on.
+	 * @param enableChannels The DIO channel wired to each sensor's XSHUT pin.
+	 * @param addresses The 7-bit address to assign each sensor. Must be unique and not the default address of 0x29.
+	 */
+	public VL53L4CDArray(I2C.Port port, int[] enableChannels, byte[] addresses) {
+		if (enableChannels.length == 0) {
+			throw new IllegalArgumentException("A VL53L4CDArray must have at least one sensor");
+		}
+		if (enableChannels.length != addresses.length) {
+			throw new IllegalArgumentException(enableChannels.length + " enable channels were given for " + addresses.length + " addresses");
+		}
+		for (int i = 0; i < addresses.length; i++) {
+			if (addresses[i] == DEFAULT_ADDRESS) {
+				throw new IllegalArgumentException("Sensors can't be assigned the default address 0x29");
+			}
+			for (int j = 0; j < i; j++) {
+				if (addresses[i] == addresses[j]) {
+					throw new IllegalArgumentException(String.format("Address 0x%02x is assigned to more than one sensor", addresses[i]));
+				}
+			}
+		}
+
+		this.port = port;
+		this.addresses = addresses.clone();
+		this.enablePins = new DigitalOutput[enableChannels.length];
+		for (int i = 0; i < enableChannels.length; i++) {
+			enablePins[i] = new DigitalOutput(enableChannels[i]);
+		}
+		this.sensors = new VL53L4CD[enableChannels.length];
+		this.online = new boolean[enableChannels.length];
+		this.measurements = new Measurement[enableChannels.length];
+		this.distancesMillimeters = new short[enableChannels.length];
+		this.timestampsSeconds = new double[enableChannels.length];
+		this.valid = new boolean[enableChannels.length];
+		Arrays.fill(timestampsSeconds, Double.NaN);
+	}
+
+	private static byte[] defaultAddresses(int count) {
+		byte[] addresses = new byte[count];
+		for (int i = 0; i < count; i++) {
+			addresses[i] = (byte) (FIRST_ASSIGNED_ADDRESS + i);
+		}
+		return addresses;
+	}
+
+	/**
+	 * Sets the clock that initialization and staggering wait on and that every sensor timestamps its measurements on. Call this before
+	 * {@link VL53L4CDArray#init()}.
+	 *
+	 * @param timeSource The clock. Defaults to the FPGA clock.
+	 */
+	public void setTimeSource(ITimeSource timeSource) {
+		if (!Double.isNaN(startupSeconds)) {
+			throw new IllegalStateException("[VL53L4CDArray] The time source must be set before the sensors are initialized");
+		}
+		this.timeSource = timeSource;
+	}
+
+	/**
+	 * Resets every sensor, assigns each its address, and initializes them all in parallel. Blocks until every sensor is initialized or has failed.
+	 * Sensors that fail to boot are held in reset so they can't answer at the default address, and are left out of ranging.
+	 *
+	 * @return Whether every sensor came up.
+	 */
+	public boolean init() {
+		if (!Double.isNaN(startupSeconds)) {
+			throw new IllegalStateException("[VL53L4CDArray] The sensors have already been initialized");
+		}
+		double startTime = timeSource.getTimestampSeconds();
+
+		// Hold every sensor in reset so they all come up at the default address.
+		for (DigitalOutput pin : enablePins) {
+			pin.set(false);
+		}
+		timeSource.delay(RESET_SECONDS);
+
+		// Only one sensor can be at the default address at a time, so booting and addressing is sequential.
+		for (int i = 0; i < sensors.length; i++) {
+			enablePins[i].set(true);
+			sensors[i] = new VL53L4CD(port);
+			sensors[i].setTimeSource(timeSource);
+			if (sensors[i].waitForBoot()) {
+				sensors[i].changeDeviceAddress(addresses[i]);
+				online[i] = true;
+			} else {
+				DriverStation.reportError(String.format("[VL53L4CDArray] Sensor %d did not boot and has been disabled.", i), false);
+				enablePins[i].set(false);
+			}
+		}
+
+		// The rest of initialization is mostly waiting on the sensors, so it runs on every sensor at once.
+		Thread[] threads = new Thread[sensors.length];
+		for (int i = 0; i < sensors.length; i++) {
+			if (!online[i]) {
+				continue;
+			}
+			int index = i;
+			threads[i] = new Thread(() -> online[index] = sensors[index].init(), String.format("VL53L4CDArray-init-%02x", addresses[i]));
+			threads[i].start();
+		}
+
+		boolean allOnline = true;
+		for (int i = 0; i < sensors.length; i++) {
+			if (threads[i] != null) {
+				try {
+					threads[i].join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			allOnline &= online[i];
+		}
+
+		startupSeconds = timeSource.getTimestampSeconds() - startTime;
+		return allOnline;
+	}
+
+	/**
+	 * Sets the range timing of every sensor that came up. See {@link VL53L4CD#setRangeTiming(int, int)}.
+	 *
+	 * @param timingBudgetMs The time spent on each measurement in milliseconds.
+	 * @param interMeasurementMs The time between measurements in milliseconds, or 0 to range continuously.
+	 */
+	public void setRangeTiming(int timingBudgetMs, int interMeasurementMs) {
+		for (int i = 0; i < sensors.length; i++) {
+			if (online[i]) {
+				sensors[i].setRangeTiming(timingBudgetMs, interMeasurementMs);
+			}
+		}
+		rangingPeriodSeconds = Math.max(timingBudgetMs, interMeasurementMs) / 1000.0;
+	}
+
+	/**
+	 * Starts every sensor that came up ranging on the bus's polling schedule, spacing their start times evenly across one ranging period.
+	 * Blocks for just under one ranging period.
+	 */
+	public void start() {
+		if (ranging) {
+			return;
+		}
+
+		double stagger = rangingPeriodSeconds / sensors.length;
+		boolean first = true;
+		for (int i = 0; i < sensors.length; i++) {
+			if (!online[i]) {
+				continue;
+			}
+			if (!first) {
+				timeSource.delay(stagger);
+			}
+			first = false;
+			sensors[i].beginRanging();
+			sensors[i].schedule();
+		}
+		ranging = true;
+	}
+
+	/**
+	 * Stops every sensor ranging.
+	 */
+	public void stop() {
+		for (int i = 0; i < sensors.length; i++) {
+			if (online[i]) {
+				sensors[i].stopAsync();
+			}
+		}
+		ranging = false;
+	}
+
+	/**
+	 * Stops ranging and releases every sensor, including ones that failed to boot, and their enable pins.
+	 */
+	@Override
+	public void close() {
+		stop();
+		for (VL53L4CD sensor : sensors) {
+			if (sensor != null) {
+				sensor.close();
+			}
+		}
+		for (DigitalOutput pin : enablePins) {
+			pin.close();
+		}
+	}
+
+	@Override
+	public void periodic() {
+		for (int i = 0; i < sensors.length; i++) {
+			Measurement measurement = online[i] ? sensors[i].getLatestMeasurement() : null;
+			measurements[i] = measurement;
+			if (measurement == null) {
+				valid[i] = false;
+				continue;
+			}
+			distancesMillimeters[i] = measurement.distanceMillimeters;
+			timestampsSeconds[i] = measurement.timestampSeconds;
+			valid[i] = measurement.isValid();
+		}
+	}
+
+	/**
+	 * Gets the number of sensors in the array.
+	 *
+	 * @return The number of sensors.
+	 */
+	public int size() {
+		return sensors.length;
+	}
+
+	/**
+	 * Gets a sensor. Don't call its blocking methods while the array is ranging.
+	 *
+	 * @param index The index of the sensor.
+	 * @return The sensor, or null if the array hasn't been initialized.
+	 */
+	public VL53L4CD getSensor(int index) {
+		return sensors[index];
+	}
+
+	/**
+	 * Returns whether a sensor booted and was initialized.
+	 *
+	 * @param index The index of the sensor.
+	 * @return Whether the sensor is online.
+	 */
+	public boolean isOnline(int index) {
+		return online[index];
+	}
+
+	/**
+	 * Gets a sensor's latest measurement as of the current main loop.
+	 *
+	 * @param index The index of the sensor.
+	 * @return The measurement, or null if the sensor hasn't produced one.
+	 */
+	public Measurement getMeasurement(int index) {
+		return measurements[index];
+	}
+
+	/**
+	 * Gets a sensor's latest distance as of the current main loop.
+	 *
+	 * @param index The index of the sensor.
+	 * @return The distance in millimeters.
+	 */
+	public short getDistanceMillimeters(int index) {
+		return distancesMillimeters[index];
+	}
+
+	/**
+	 * Gets the time a sensor's latest measurement was taken.
+	 *
+	 * @param index The index of the sensor.
+	 * @return The FPGA timestamp in seconds, or NaN if the sensor hasn't produced a measurement.
+	 */
+	public double getTimestampSeconds(int index) {
+		return timestampsSeconds[index];
+	}
+
+	/**
+	 * Returns whether a sensor's latest measurement as of the current main loop is valid.
+	 *
+	 * @param index The index of the sensor.
+	 * @return Whether the measurement is valid.
+	 */
+	public boolean isValid(int index) {
+		return valid[index];
+	}
+
+	/**
+	 * Copies the latest distance and timestamp of every sensor as of the current main loop. This does not allocate.
+	 *
+	 * @param distancesMillimeters An array of at least {@link VL53L4CDArray#size()} elements to write each distance into.
+	 * @param timestampsSeconds An array of at least {@link VL53L4CDArray#size()} elements to write each timestamp into.
+	 */
+	public void getSnapshot(short[] distancesMillimeters, double[] timestampsSeconds) {
+		System.arraycopy(this.distancesMillimeters, 0, distancesMillimeters, 0, sensors.length);
+		System.arraycopy(this.timestampsSeconds, 0, timestampsSeconds, 0, sensors.length);
+	}
+
+	/**
+	 * Gets the total number of measurements taken by every sensor since ranging started.
+	 *
+	 * @return The number of measurements.
+	 */
+	public long getSampleCount() {
+		long count = 0;
+		for (int i = 0; i < sensors.length; i++) {
+			if (online[i]) {
+				count += sensors[i].getMeasurementCount();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets how long {@link VL53L4CDArray#init()} took.
+	 *
+	 * @return The startup time in seconds, or NaN if the array hasn't been initialized.
+	 */
+	public double getStartupSeconds() {
+		return startupSeconds;
+	}
+}
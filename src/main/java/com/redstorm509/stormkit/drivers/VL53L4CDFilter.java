@@ -0,0 +1,243 @@
+package com.redstorm509.stormkit.drivers;
+
+import com.redstorm509.stormkit.drivers.VL53L4CD.Measurement;
+import com.redstorm509.stormkit.drivers.VL53L4CD.Severity;
+import com.redstorm509.stormkit.util.DoubleRingBuffer;
+import com.redstorm509.stormkit.util.SnapshotBuffer;
+
+/**
+ * Cleans up the measurements of a VL53L4CD as they arrive. Each sample is first rejected if its status is too severe, its sigma too large, or its signal
+ * too weak. Accepted distances then pass through a median of the last k samples to remove spikes, and optionally a constant-velocity Kalman filter that
+ * weights each sample by its reported sigma and estimates velocity.
+ * Attach it with {@link VL53L4CD#setFilter(VL53L4CDFilter)} and it runs on whichever thread reads the sensor, allocating nothing per sample. The filtered
+ * distance and velocity are picked up together once per main loop with {@link VL53L4CDFilter#update()}.
+ */
+public class VL53L4CDFilter {
+	// Snapshot layout.
+	private static final int DISTANCE = 0;
+	private static final int VELOCITY = 1;
+	private static final int TIMESTAMP = 2;
+	private static final int ACCEPTED = 3;
+	private static final int REJECTED = 4;
+	private static final int SNAPSHOT_LENGTH = 5;
+
+	// After a gap this long the velocity estimate is stale, so the filter starts over.
+	private static final double MAX_GAP_SECONDS = 0.5;
+	// The sensor can report a sigma of zero, which would make the Kalman filter trust a sample completely.
+	private static final double MIN_SIGMA_MILLIMETERS = 1.0;
+
+	private Severity maxSeverity = Severity.None;
+	private double maxSigmaMillimeters = Double.POSITIVE_INFINITY;
+	private double minSignalRate = 0.0;
+
+	private final DoubleRingBuffer window;
+	private final double[] sorted;
+
+	private boolean kalman = false;
+	private double accelerationVariance;
+	// Kalman state: position, velocity, and the symmetric covariance between them.
+	private double position;
+	private double velocity;
+	private double p00;
+	private double p01;
+	private double p11;
+	private double lastTimestamp = Double.NaN;
+
+	private long accepted = 0;
+	private long rejected = 0;
+	private final SnapshotBuffer snapshots = new SnapshotBuffer(SNAPSHOT_LENGTH);
+
+	/**
+	 * Constructs a VL53L4CDFilter that only accepts valid samples.
+	 *
+	 * @param medianWindow The number of samples to take the median of. 1 disables the median stage.
+	 */
+	public VL53L4CDFilter(int medianWindow) {
+		if (medianWindow < 1) {
+			throw new IllegalArgumentException("Median window must be at least 1, " + medianWindow + " given");
+		}
+		this.window = new DoubleRingBuffer(medianWindow);
+		this.sorted = new double[medianWindow];
+		double[] initial = snapshots.getWriteBuffer();
+		initial[DISTANCE] = Double.NaN;
+		initial[TIMESTAMP] = Double.NaN;
+		snapshots.publish();
+		snapshots.update();
+	}
+
+	/**
+	 * Sets the thresholds samples must meet to be accepted. Must be set before the sensor starts ranging.
+	 *
+	 * @param maxSeverity The most severe status to accept, e.g. {@link Severity#Warning} to also accept samples with a questionable sigma.
+	 * @param maxSigmaMillimeters The largest estimated standard deviation to accept, in millimeters.
+	 * @param minSignalRate The weakest return signal to accept, in kcps.
+	 */
+	public void setRejectionThresholds(Severity maxSeverity, double maxSigmaMillimeters, double minSignalRate) {
+		this.maxSeverity = maxSeverity;
+		this.maxSigmaMillimeters = maxSigmaMillimeters;
+		this.minSignalRate = minSignalRate;
+	}
+
+	/**
+	 * Enables the Kalman stage. Must be set before the sensor starts ranging. Without it, velocity is the difference between consecutive median outputs.
+	 *
+	 * @param accelerationStdDev The standard deviation of the target's acceleration in millimeters per second squared, which sets how quickly the filter follows changes.
+	 */
+	public void enableKalman(double accelerationStdDev) {
+		kalman = true;
+		accelerationVariance = accelerationStdDev * accelerationStdDev;
+	}
+
+	/**
+	 * Disables the Kalman stage.
+	 */
+	public void disableKalman() {
+		kalman = false;
+	}
+
+	/**
+	 * Filters a measurement. Called by the sensor for each sample it reads.
+	 *
+	 * @param measurement The measurement, with its timestamp set.
+	 * @return Whether the sample was accepted.
+	 */
+	public boolean accept(Measurement measurement) {
+		if (measurement.status.severity().compareTo(maxSeverity) > 0 || measurement.sigma > maxSigmaMillimeters || measurement.signalRate < minSignalRate) {
+			rejected++;
+			return false;
+		}
+		accepted++;
+
+		double timestamp = measurement.timestampSeconds;
+		double dt = timestamp - lastTimestamp;
+		if (!(dt > 0.0 && dt < MAX_GAP_SECONDS)) {
+			// First sample, or the sensor stopped for a while: start over from this sample.
+			window.clear();
+			dt = Double.NaN;
+		}
+
+		window.add(measurement.distanceMillimeters);
+		double distance = median();
+
+		if (Double.isNaN(dt)) {
+			position = distance;
+			velocity = 0.0;
+			double sigma = Math.max(measurement.sigma, MIN_SIGMA_MILLIMETERS);
+			p00 = sigma * sigma;
+			p01 = 0.0;
+			// Nothing is known about the velocity yet.
+			p11 = 1e6;
+		} else if (kalman) {
+			correct(distance, Math.max(measurement.sigma, MIN_SIGMA_MILLIMETERS), dt);
+		} else {
+			velocity = (distance - position) / dt;
+			position = distance;
+		}
+		lastTimestamp = timestamp;
+
+		double[] snapshot = snapshots.getWriteBuffer();
+		snapshot[DISTANCE] = position;
+		snapshot[VELOCITY] = velocity;
+		snapshot[TIMESTAMP] = timestamp;
+		snapshot[ACCEPTED] = accepted;
+		snapshot[REJECTED] = rejected;
+		snapshots.publish();
+		return true;
+	}
+
+	/**
+	 * Picks up the latest filtered values. Call once per main loop, before reading them.
+	 *
+	 * @return Whether a new sample was accepted since the last call.
+	 */
+	public boolean update() {
+		return snapshots.update();
+	}
+
+	/**
+	 * Gets the filtered distance as of the last {@link VL53L4CDFilter#update()}.
+	 *
+	 * @return The distance in millimeters, or NaN if no sample has been accepted.
+	 */
+	public double getDistanceMillimeters() {
+		return snapshots.getReadBuffer()[DISTANCE];
+	}
+
+	/**
+	 * Gets the estimated rate of change of the distance as of the last {@link VL53L4CDFilter#update()}.
+	 *
+	 * @return The velocity in millimeters per second, positive when the target is moving away.
+	 */
+	public double getVelocityMillimetersPerSecond() {
+		return snapshots.getReadBuffer()[VELOCITY];
+	}
+
+	/**
+	 * Gets the time of the latest accepted sample as of the last {@link VL53L4CDFilter#update()}.
+	 *
+	 * @return The FPGA timestamp in seconds, or NaN if no sample has been accepted.
+	 */
+	public double getTimestampSeconds() {
+		return snapshots.getReadBuffer()[TIMESTAMP];
+	}
+
+	/**
+	 * Gets the number of samples accepted as of the last {@link VL53L4CDFilter#update()}.
+	 *
+	 * @return The number of accepted samples.
+	 */
+	public long getAcceptedCount() {
+		return (long) snapshots.getReadBuffer()[ACCEPTED];
+	}
+
+	/**
+	 * Gets the number of samples rejected as of the last {@link VL53L4CDFilter#update()}. Only updated when a sample is accepted.
+	 *
+	 * @return The number of rejected samples.
+	 */
+	public long getRejectedCount() {
+		return (long) snapshots.getReadBuffer()[REJECTED];
+	}
+
+	private double median() {
+		int size = window.size();
+		// Insertion sort; the window is only a handful of samples.
+		for (int i = 0; i < size; i++) {
+			double value = window.get(i);
+			int j = i - 1;
+			while (j >= 0 && sorted[j] > value) {
+				sorted[j + 1] = sorted[j];
+				j--;
+			}
+			sorted[j + 1] = value;
+		}
+		int middle = size / 2;
+		return size % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0;
+	}
+
+	/**
+	 * Advances the constant-velocity model by dt and corrects it with a distance sample.
+	 */
+	private void correct(double distance, double sigma, double dt) {
+		// Predict, with white-noise acceleration as the process noise.
+		position += velocity * dt;
+		double dt2 = dt * dt;
+		double q00 = accelerationVariance * dt2 * dt2 / 4.0;
+		double q01 = accelerationVariance * dt2 * dt / 2.0;
+		double q11 = accelerationVariance * dt2;
+		double n00 = p00 + 2.0 * dt * p01 + dt2 * p11 + q00;
+		double n01 = p01 + dt * p11 + q01;
+		double n11 = p11 + q11;
+
+		// Update.
+		double innovation = distance - position;
+		double s = n00 + sigma * sigma;
+		double k0 = n00 / s;
+		double k1 = n01 / s;
+		position += k0 * innovation;
+		velocity += k1 * innovation;
+		p00 = (1.0 - k0) * n00;
+		p01 = (1.0 - k0) * n01;
+		p11 = n11 - k1 * n01;
+	}
+}
@@ -0,0 +1,223 @@
+package com.redstorm509.stormkit.drivers.simulation;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import com.redstorm509.stormkit.interfaces.II2CTransport;
+
+/**
+ * An in-memory I2C bus for running drivers without hardware. Install it on a port with
+ * {@link com.redstorm509.stormkit.drivers.I2CBus#setTransport(int, II2CTransport)} before any device on that port is created, then attach simulated devices
+ * to it. Each transaction can be made to take a configurable amount of time to model the speed of a real bus.
+ */
+public class SimulatedI2CTransport implements II2CTransport {
+	/**
+	 * A simulated device on the bus.
+	 */
+	public interface Device {
+		/**
+		 * Returns whether the device acknowledges an address, i.e. whether it is powered and currently at that address.
+		 *
+		 * @param address The 7-bit address on the bus.
+		 * @return Whether the device answers at the address.
+		 */
+		public boolean acknowledges(byte address);
+
+		/**
+		 * Receives the write phase of a transaction.
+		 *
+		 * @param data The bytes written.
+		 * @param length The number of bytes written.
+		 */
+		public void write(byte[] data, int length);
+
+		/**
+		 * Supplies the read phase of a transaction.
+		 *
+		 * @param buffer The buffer to store the bytes read in.
+		 * @param length The number of bytes to read.
+		 */
+		public void read(byte[] buffer, int length);
+	}
+
+	// Below this the calling thread spins instead of parking, since parking can overshoot by tens of microseconds.
+	private static final long SPIN_THRESHOLD_NANOS = 100_000;
+
+	private final ArrayList<Device> devices = new ArrayList<>();
+	private final boolean[] initializedPorts = new boolean[8];
+	private final byte[] sendScratch = new byte[Byte.MAX_VALUE];
+	private final byte[] receiveScratch = new byte[Byte.MAX_VALUE];
+	private long fixedLatencyNanos = 0;
+	private long perByteLatencyNanos = 0;
+	private long transactionCount = 0;
+	private long failureCount = 0;
+
+	/**
+	 * Attaches a device to the bus.
+	 *
+	 * @param device The simulated device.
+	 */
+	public synchronized void addDevice(Device device) {
+		devices.add(device);
+	}
+
+	/**
+	 * Detaches a device from the bus.
+	 *
+	 * @param device The simulated device.
+	 */
+	public synchronized void removeDevice(Device device) {
+		devices.remove(device);
+	}
+
+	/**
+	 * Sets how long each transaction takes. At 400 kHz, each byte on the wire (including the address byte) takes about 22.5 microseconds.
+	 *
+	 * @param fixedSeconds The time every transaction takes regardless of size, in seconds.
+	 * @param perByteSeconds The additional time per byte on the wire, in seconds.
+	 */
+	public synchronized void setLatency(double fixedSeconds, double perByteSeconds) {
+		fixedLatencyNanos = (long) (fixedSeconds * 1e9);
+		perByteLatencyNanos = (long) (perByteSeconds * 1e9);
+	}
+
+	/**
+	 * Gets the number of transactions attempted on the bus.
+	 *
+	 * @return The number of transactions.
+	 */
+	public synchronized long getTransactionCount() {
+		return transactionCount;
+	}
+
+	/**
+	 * Gets the number of transactions that no device acknowledged.
+	 *
+	 * @return The number of failed transactions.
+	 */
+	public synchronized long getFailureCount() {
+		return failureCount;
+	}
+
+	@Override
+	public synchronized void initialize(int port) {
+		initializedPorts[port] = true;
+	}
+
+	@Override
+	public synchronized void close(int port) {
+		initializedPorts[port] = false;
+	}
+
+	@Override
+	public synchronized int transaction(int port, byte address, byte[] dataToSend, byte sendSize, byte[] dataReceived, byte receiveSize) {
+		long startNanos = System.nanoTime();
+		int result = -1;
+		if (begin(port, address)) {
+			writeAll(address, dataToSend, sendSize);
+			readFirst(address, dataReceived, receiveSize);
+			result = receiveSize;
+		}
+		// A repeated start sends the address twice.
+		delay(startNanos, sendSize + receiveSize + 2);
+		return result;
+	}
+
+	@Override
+	public synchronized int transaction(int port, byte address, ByteBuffer dataToSend, byte sendSize, ByteBuffer dataReceived, byte receiveSize) {
+		dataToSend.get(0, sendScratch, 0, sendSize);
+		int result = transaction(port, address, sendScratch, sendSize, receiveScratch, receiveSize);
+		if (result >= 0) {
+			dataReceived.put(0, receiveScratch, 0, receiveSize);
+		}
+		return result;
+	}
+
+	@Override
+	public synchronized int write(int port, byte address, byte[] data, byte size) {
+		long startNanos = System.nanoTime();
+		int result = -1;
+		if (begin(port, address)) {
+			writeAll(address, data, size);
+			result = size;
+		}
+		delay(startNanos, size + 1);
+		return result;
+	}
+
+	@Override
+	public synchronized int write(int port, byte address, ByteBuffer data, byte size) {
+		data.get(0, sendScratch, 0, size);
+		return write(port, address, sendScratch, size);
+	}
+
+	@Override
+	public synchronized int read(int port, byte address, byte[] buffer, byte count) {
+		long startNanos = System.nanoTime();
+		int result = -1;
+		if (begin(port, address)) {
+			readFirst(address, buffer, count);
+			result = count;
+		}
+		delay(startNanos, count + 1);
+		return result;
+	}
+
+	@Override
+	public synchronized int read(int port, byte address, ByteBuffer buffer, byte count) {
+		int result = read(port, address, receiveScratch, count);
+		if (result >= 0) {
+			buffer.put(0, receiveScratch, 0, count);
+		}
+		return result;
+	}
+
+	private boolean begin(int port, byte address) {
+		transactionCount++;
+		if (initializedPorts[port]) {
+			for (int i = 0; i < devices.size(); i++) {
+				if (devices.get(i).acknowledges(address)) {
+					return true;
+				}
+			}
+		}
+		failureCount++;
+		return false;
+	}
+
+	// Every device at the address sees a write, just like on a real bus.
+	private void writeAll(byte address, byte[] data, int length) {
+		if (length == 0) {
+			return;
+		}
+		for (int i = 0; i < devices.size(); i++) {
+			Device device = devices.get(i);
+			if (device.acknowledges(address)) {
+				device.write(data, length);
+			}
+		}
+	}
+
+	private void readFirst(byte address, byte[] buffer, int length) {
+		for (int i = 0; i < devices.size(); i++) {
+			Device device = devices.get(i);
+			if (device.acknowledges(address)) {
+				device.read(buffer, length);
+				return;
+			}
+		}
+	}
+
+	private void delay(long startNanos, int bytes) {
+		long deadline = startNanos + fixedLatencyNanos + perByteLatencyNanos * bytes;
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			if (remaining > SPIN_THRESHOLD_NANOS) {
+				LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package com.redstorm509.stormkit.drivers.simulation;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+import com.redstorm509.stormkit.drivers.VL53L4CD.Register;
+import com.redstorm509.stormkit.interfaces.ITimeSource;
+import com.redstorm509.stormkit.util.MonotonicTimeSource;
+
+/**
+ * A register-level model of a VL53L4CD for {@link SimulatedI2CTransport}. It boots a short time after power-up, answers at 0x29 until its address is changed,
+ * and once ranging is started produces a measurement every timing budget (or inter-measurement period), decoded from the range configuration the driver
+ * wrote. The data-ready bit follows the interrupt polarity and stays set until the interrupt is cleared; measurements that arrive before then overwrite the
+ * unread one, as on the real sensor. Time is taken from an {@link ITimeSource}, {@link System#nanoTime()} by default; give the sensor and its driver the same
+ * {@link com.redstorm509.stormkit.util.VirtualTimeSource} to step a simulation faster than real time.
+ */
+public class VL53L4CDSim implements SimulatedI2CTransport.Device {
+	private static final byte DEFAULT_ADDRESS = 0x29;
+	private static final int REGISTER_COUNT = 0x200;
+	private static final short MODEL_ID = (short) 0xEBAA;
+	private static final short DEFAULT_OSC_FREQ = 0x0BB8;
+	private static final short DEFAULT_OSC_CALIBRATE_VAL = 0x01F4;
+	private static final byte RANGE_STATUS_VALID = 9;
+	private static final long DEFAULT_TIMING_BUDGET_NANOS = 20_000_000;
+
+	private final byte[] registers = new byte[REGISTER_COUNT];
+	private final ITimeSource timeSource;
+	private BooleanSupplier enableSource = null;
+	private boolean enabled = false;
+	private long bootTimeNanos = 1_200_000;
+	private long bootedAtNanos;
+	private byte address;
+	private int pointer;
+
+	private boolean ranging = false;
+	private boolean dataReady = false;
+	private long periodNanos;
+	private long nextResultNanos;
+	private long measurementCount = 0;
+	private long overwrittenCount = 0;
+
+	private volatile short distanceMillimeters = 500;
+	private volatile byte rangeStatus = RANGE_STATUS_VALID;
+	private volatile short signalRate = 4000;
+	private volatile short ambientRate = 80;
+	private volatile short sigma = 5;
+	private volatile short spadsEnabled = 40;
+
+	/**
+	 * Constructs a VL53L4CDSim that is powered on now, with XSHUT tied high.
+	 */
+	public VL53L4CDSim() {
+		this(new MonotonicTimeSource());
+	}
+
+	/**
+	 * Constructs a VL53L4CDSim that is powered on now, with XSHUT tied high.
+	 *
+	 * @param timeSource The clock the sensor boots and ranges on.
+	 */
+	public VL53L4CDSim(ITimeSource timeSource) {
+		this.timeSource = timeSource;
+		powerOn(nowNanos());
+	}
+
+	/**
+	 * Ties the sensor's XSHUT pin to a signal, e.g. a simulated DIO. While the signal is low the sensor is held in reset and doesn't answer on the bus; when it goes
+	 * high the sensor reboots at the default address. The signal is sampled whenever the bus is used.
+	 *
+	 * @param enableSource The level of the XSHUT pin.
+	 */
+	public synchronized void setEnableSource(BooleanSupplier enableSource) {
+		this.enableSource = enableSource;
+		enabled = false;
+		sampleEnable(nowNanos());
+	}
+
+	/**
+	 * Sets how long the sensor takes to boot after power-up or reset.
+	 *
+	 * @param bootSeconds The boot time in seconds.
+	 */
+	public synchronized void setBootTime(double bootSeconds) {
+		bootTimeNanos = (long) (bootSeconds * 1e9);
+	}
+
+	/**
+	 * Sets the distance reported by subsequent measurements.
+	 *
+	 * @param distanceMillimeters The distance in millimeters.
+	 */
+	public void setDistanceMillimeters(int distanceMillimeters) {
+		this.distanceMillimeters = (short) distanceMillimeters;
+	}
+
+	/**
+	 * Sets the raw range status reported by subsequent measurements, e.g. 9 for a valid measurement or 6 for sigma above threshold.
+	 *
+	 * @param rangeStatus The raw range status.
+	 */
+	public void setRangeStatus(int rangeStatus) {
+		this.rangeStatus = (byte) rangeStatus;
+	}
+
+	/**
+	 * Sets the signal rate reported by subsequent measurements.
+	 *
+	 * @param signalRate The signal rate in kcps.
+	 */
+	public void setSignalRate(int signalRate) {
+		this.signalRate = (short) signalRate;
+	}
+
+	/**
+	 * Sets the ambient rate reported by subsequent measurements.
+	 *
+	 * @param ambientRate The ambient rate in kcps.
+	 */
+	public void setAmbientRate(int ambientRate) {
+		this.ambientRate = (short) ambientRate;
+	}
+
+	/**
+	 * Sets the sigma reported by subsequent measurements.
+	 *
+	 * @param sigma The estimated standard deviation of the distance in millimeters.
+	 */
+	public void setSigma(int sigma) {
+		this.sigma = (short) sigma;
+	}
+
+	/**
+	 * Gets the address the sensor currently answers at.
+	 *
+	 * @return The 7-bit address.
+	 */
+	public synchronized byte getAddress() {
+		return address;
+	}
+
+	/**
+	 * Returns whether the sensor is ranging.
+	 *
+	 * @return Whether the sensor is ranging.
+	 */
+	public synchronized boolean isRanging() {
+		return ranging;
+	}
+
+	/**
+	 * Gets the number of measurements the sensor has produced since it was last reset.
+	 *
+	 * @return The number of measurements.
+	 */
+	public synchronized long getMeasurementCount() {
+		update(nowNanos());
+		return measurementCount;
+	}
+
+	/**
+	 * Gets the number of measurements that were overwritten before the driver read them.
+	 *
+	 * @return The number of missed measurements.
+	 */
+	public synchronized long getOverwrittenCount() {
+		update(nowNanos());
+		return overwrittenCount;
+	}
+
+	/**
+	 * Gets the time between measurements implied by the current configuration.
+	 *
+	 * @return The ranging period in seconds.
+	 */
+	public synchronized double getRangingPeriodSeconds() {
+		return computePeriodNanos() * 1e-9;
+	}
+
+	@Override
+	public synchronized boolean acknowledges(byte address) {
+		sampleEnable(nowNanos());
+		return enabled && this.address == address;
+	}
+
+	@Override
+	public synchronized void write(byte[] data, int length) {
+		long now = nowNanos();
+		update(now);
+		if (length < 2) {
+			return;
+		}
+
+		pointer = ((data[0] & 0xff) << 8) | (data[1] & 0xff);
+		for (int i = 2; i < length; i++) {
+			writeRegister(pointer++, data[i], now);
+		}
+	}
+
+	@Override
+	public synchronized void read(byte[] buffer, int length) {
+		update(nowNanos());
+		for (int i = 0; i < length; i++) {
+			buffer[i] = readRegister(pointer++);
+		}
+	}
+
+	private long nowNanos() {
+		return (long) (timeSource.getTimestampSeconds() * 1e9);
+	}
+
+	private void sampleEnable(long now) {
+		boolean level = enableSource == null || enableSource.getAsBoolean();
+		if (level && !enabled) {
+			powerOn(now);
+		}
+		enabled = level;
+	}
+
+	private void powerOn(long now) {
+		enabled = true;
+		Arrays.fill(registers, (byte) 0);
+		address = DEFAULT_ADDRESS;
+		pointer = 0;
+		ranging = false;
+		dataReady = false;
+		measurementCount = 0;
+		overwrittenCount = 0;
+		bootedAtNanos = now + bootTimeNanos;
+
+		putWord(Register.IDENTIFICATION_MODEL_ID.addr(), MODEL_ID);
+		putWord(Register.OSC_FREQ.addr(), DEFAULT_OSC_FREQ);
+		putWord(Register.RESULT_OSC_CALIBRATE_VAL.addr(), DEFAULT_OSC_CALIBRATE_VAL);
+		registers[Register.GPIO_HV_MUX_CTRL.addr()] = 0x11;
+	}
+
+	private byte readRegister(int register) {
+		if (register >= REGISTER_COUNT) {
+			return 0;
+		}
+		if (register == Register.FIRMWARE_SYSTEM_STATUS.addr()) {
+			return nowNanos() - bootedAtNanos >= 0 ? (byte) 0x3 : 0;
+		}
+		if (register == Register.GPIO_TIO_HV_STATUS.addr()) {
+			int polarity = registers[Register.GPIO_HV_MUX_CTRL.addr()] >> 4 & 1;
+			return (byte) (dataReady ? 1 - polarity : polarity);
+		}
+		return registers[register];
+	}
+
+	private void writeRegister(int register, byte value, long now) {
+		if (register >= REGISTER_COUNT || register == Register.GPIO_TIO_HV_STATUS.addr()) {
+			return;
+		}
+		registers[register] = value;
+
+		if (register == Register.I2C_SLAVE_DEVICE_ADDRESS.addr()) {
+			address = (byte) (value & 0x7f);
+		} else if (register == Register.SYSTEM_INTERRUPT_CLEAR.addr()) {
+			if ((value & 1) != 0) {
+				dataReady = false;
+			}
+		} else if (register == Register.SYSTEM_START.addr()) {
+			if (value == 0x21 || value == 0x40) {
+				ranging = true;
+				dataReady = false;
+				periodNanos = computePeriodNanos();
+				nextResultNanos = now + periodNanos;
+			} else if (value == 0x00) {
+				ranging = false;
+			}
+		}
+	}
+
+	private void update(long now) {
+		if (!ranging || now < nextResultNanos) {
+			return;
+		}
+
+		long results = 1 + (now - nextResultNanos) / periodNanos;
+		overwrittenCount += dataReady ? results : results - 1;
+		measurementCount += results;
+		nextResultNanos += results * periodNanos;
+		dataReady = true;
+
+		registers[Register.RESULT_RANGE_STATUS.addr()] = rangeStatus;
+		putWord(Register.RESULT_SPAD_NB.addr(), (short) (spadsEnabled * 256));
+		putWord(Register.RESULT_SIGNAL_RATE.addr(), (short) (signalRate / 8));
+		putWord(Register.RESULT_AMBIENT_RATE.addr(), (short) (ambientRate / 8));
+		putWord(Register.RESULT_SIGMA.addr(), (short) (sigma * 4));
+		putWord(Register.RESULT_DISTANCE.addr(), distanceMillimeters);
+	}
+
+	/**
+	 * Inverts the driver's timing budget encoding. In continuous mode results arrive every timing budget; in autonomous mode, every inter-measurement period.
+	 */
+	private long computePeriodNanos() {
+		int interMeasurement = getDword(Register.INTERMEASUREMENT_MS.addr());
+		int rangeConfigA = getWord(Register.RANGE_CONFIG_A.addr()) & 0xffff;
+		int oscFreq = getWord(Register.OSC_FREQ.addr()) & 0xffff;
+		if (rangeConfigA == 0 || oscFreq == 0) {
+			return DEFAULT_TIMING_BUDGET_NANOS;
+		}
+
+		long macroPeriodUs = (2304L * (0x40000000 / oscFreq)) >> 6;
+		long encoded = (long) ((rangeConfigA & 0xff) + 1) << (rangeConfigA >> 8);
+		long timingBudgetUs = (encoded * ((macroPeriodUs * 16) >> 6)) >> 12;
+
+		if (interMeasurement == 0) {
+			return (timingBudgetUs + 2500) * 1000;
+		}
+		int clockPoll = getWord(Register.RESULT_OSC_CALIBRATE_VAL.addr()) & 0x3ff;
+		double interMeasurementMs = interMeasurement / (1.055 * clockPoll);
+		return Math.max((long) (interMeasurementMs * 1e6), (timingBudgetUs * 2 + 4300) * 1000);
+	}
+
+	private short getWord(int register) {
+		return (short) (((registers[register] & 0xff) << 8) | (registers[register + 1] & 0xff));
+	}
+
+	private int getDword(int register) {
+		return ((getWord(register) & 0xffff) << 16) | (getWord(register + 2) & 0xffff);
+	}
+
+	private void putWord(int register, short value) {
+		registers[register] = (byte) (value >> 8);
+		registers[register + 1] = (byte) value;
+	}
+}
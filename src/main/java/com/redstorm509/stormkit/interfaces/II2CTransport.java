@@ -0,0 +1,93 @@
+package com.redstorm509.stormkit.interfaces;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Carries I2C transactions to devices. The default transport talks to the hardware through the HAL; a simulated transport can stand in for it to run
+ * drivers without a robot. Every method mirrors the matching I2CJNI call, and returns a negative value if the transaction was aborted.
+ */
+public interface II2CTransport {
+	/**
+	 * Initializes a port.
+	 *
+	 * @param port The I2C port.
+	 */
+	public void initialize(int port);
+
+	/**
+	 * Writes to a device and then reads back from it in one transaction.
+	 *
+	 * @param port The I2C port.
+	 * @param address The 7-bit address of the device.
+	 * @param dataToSend The data to send.
+	 * @param sendSize The number of bytes to send.
+	 * @param dataReceived The buffer to read into.
+	 * @param receiveSize The number of bytes to read.
+	 * @return The number of bytes read, or a negative value if the transaction was aborted.
+	 */
+	public int transaction(int port, byte address, byte[] dataToSend, byte sendSize, byte[] dataReceived, byte receiveSize);
+
+	/**
+	 * Writes to a device and then reads back from it in one transaction, using direct buffers starting at index 0.
+	 *
+	 * @param port The I2C port.
+	 * @param address The 7-bit address of the device.
+	 * @param dataToSend The direct buffer of data to send.
+	 * @param sendSize The number of bytes to send.
+	 * @param dataReceived The direct buffer to read into.
+	 * @param receiveSize The number of bytes to read.
+	 * @return The number of bytes read, or a negative value if the transaction was aborted.
+	 */
+	public int transaction(int port, byte address, ByteBuffer dataToSend, byte sendSize, ByteBuffer dataReceived, byte receiveSize);
+
+	/**
+	 * Writes to a device.
+	 *
+	 * @param port The I2C port.
+	 * @param address The 7-bit address of the device.
+	 * @param data The data to write.
+	 * @param size The number of bytes to write.
+	 * @return The number of bytes written, or a negative value if the transaction was aborted.
+	 */
+	public int write(int port, byte address, byte[] data, byte size);
+
+	/**
+	 * Writes to a device from a direct buffer starting at index 0.
+	 *
+	 * @param port The I2C port.
+	 * @param address The 7-bit address of the device.
+	 * @param data The direct buffer of data to write.
+	 * @param size The number of bytes to write.
+	 * @return The number of bytes written, or a negative value if the transaction was aborted.
+	 */
+	public int write(int port, byte address, ByteBuffer data, byte size);
+
+	/**
+	 * Reads from a device without writing to it first.
+	 *
+	 * @param port The I2C port.
+	 * @param address The 7-bit address of the device.
+	 * @param buffer The buffer to read into.
+	 * @param count The number of bytes to read.
+	 * @return The number of bytes read, or a negative value if the transaction was aborted.
+	 */
+	public int read(int port, byte address, byte[] buffer, byte count);
+
+	/**
+	 * Reads from a device without writing to it first, into a direct buffer starting at index 0.
+	 *
+	 * @param port The I2C port.
+	 * @param address The 7-bit address of the device.
+	 * @param buffer The direct buffer to read into.
+	 * @param count The number of bytes to read.
+	 * @return The number of bytes read, or a negative value if the transaction was aborted.
+	 */
+	public int read(int port, byte address, ByteBuffer buffer, byte count);
+
+	/**
+	 * Closes a port.
+	 *
+	 * @param port The I2C port.
+	 */
+	public void close(int port);
+}
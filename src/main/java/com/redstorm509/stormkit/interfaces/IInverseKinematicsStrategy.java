@@ -0,0 +1,22 @@
+package com.redstorm509.stormkit.interfaces;
+
+import com.redstorm509.stormkit.math.IKChain;
+import com.redstorm509.stormkit.math.IKSolveResult;
+
+/**
+ * A method of solving inverse kinematics on an {@link IKChain}.
+ * Strategies start from the chain's current angles, so consecutive solves are warm-started from the previous solution.
+ */
+public interface IInverseKinematicsStrategy {
+	/**
+	 * Moves the chain's end effector towards the desired position, respecting each segment's joint limits.
+	 *
+	 * @param chain The chain to solve. Its angles are updated in place.
+	 * @param desiredX The x-coordinate of the desired end effector position in meters.
+	 * @param desiredY The y-coordinate of the desired end effector position in meters.
+	 * @param maxIterations The maximum number of iterations permitted.
+	 * @param toleranceMeters The end effector error at which the solve is considered converged.
+	 * @param result The result to write the iteration count, residual error, and convergence into.
+	 */
+	public void solve(IKChain chain, double desiredX, double desiredY, int maxIterations, double toleranceMeters, IKSolveResult result);
+}
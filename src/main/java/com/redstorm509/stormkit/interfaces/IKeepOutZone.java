@@ -0,0 +1,15 @@
+package com.redstorm509.stormkit.interfaces;
+
+/**
+ * A region of a mechanism's joint space that a {@link com.redstorm509.stormkit.math.CoordinatedPositionTarget} must not move its targets into, e.g. poses
+ * where an arm would hit the frame or the elevator.
+ */
+public interface IKeepOutZone {
+	/**
+	 * Checks whether a pose is inside the zone. This runs every loop the target moves, so it shouldn't allocate.
+	 *
+	 * @param positions The position of each axis, in the order the target's axes were given. Don't modify or keep it.
+	 * @return Whether the pose is forbidden.
+	 */
+	public boolean contains(double[] positions);
+}
@@ -0,0 +1,21 @@
+package com.redstorm509.stormkit.interfaces;
+
+/**
+ * A clock that time-dependent code reads instead of calling {@link edu.wpi.first.wpilibj.Timer} directly. On the robot this is the FPGA clock; a virtual
+ * clock stands in for it to step simulations and benchmarks faster than real time, and a loop clock hands one timestamp to everything that runs in a cycle.
+ */
+public interface ITimeSource {
+	/**
+	 * Gets the current time.
+	 *
+	 * @return The time in seconds. Only differences between times are meaningful.
+	 */
+	public double getTimestampSeconds();
+
+	/**
+	 * Waits for time to pass. A virtual clock advances itself instead of waiting.
+	 *
+	 * @param seconds How long to wait, in seconds.
+	 */
+	public void delay(double seconds);
+}
@@ -0,0 +1,107 @@
+package com.redstorm509.stormkit.math;
+
+import com.redstorm509.stormkit.interfaces.IInverseKinematicsStrategy;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Solves inverse kinematics for a two segment arm in closed form using the law of cosines.
+ * Of the two elbow configurations, the one within the joint limits and closest to the current angles is chosen, so the arm does not flip between solutions from one loop to the next.
+ * Unreachable targets are approached as closely as the arm allows.
+ * The closed form is undefined when either segment has no length, so such chains are handed to an iterative fallback strategy instead.
+ */
+public class AnalyticTwoLinkStrategy implements IInverseKinematicsStrategy {
+	private final IInverseKinematicsStrategy fallback;
+
+	/**
+	 * Constructs an AnalyticTwoLinkStrategy that falls back to cyclic coordinate descent for degenerate segments.
+	 */
+	public AnalyticTwoLinkStrategy() {
+		this(new CCDStrategy());
+	}
+
+	/**
+	 * Constructs an AnalyticTwoLinkStrategy.
+	 *
+	 * @param fallback The strategy used when either segment's length is not positive.
+	 */
+	public AnalyticTwoLinkStrategy(IInverseKinematicsStrategy fallback) {
+		this.fallback = fallback;
+	}
+
+	@Override
+	public void solve(IKChain chain, double desiredX, double desiredY, int maxIterations, double toleranceMeters, IKSolveResult result) {
+		if (chain.size() != 2) {
+			throw new IllegalArgumentException("AnalyticTwoLinkStrategy requires exactly 2 segments, " + chain.size() + " given");
+		}
+
+		double l1 = chain.getLength(0);
+		double l2 = chain.getLength(1);
+		if (!(l1 > 0.0 && l2 > 0.0)) {
+			// The law of cosines would divide by zero and set the joints to NaN.
+			fallback.solve(chain, desiredX, desiredY, maxIterations, toleranceMeters, result);
+			return;
+		}
+		double distanceSquared = desiredX * desiredX + desiredY * desiredY;
+
+		// Clamping the cosine stretches or folds the arm towards targets outside of its workspace.
+		double cosElbow = MathUtil.clamp((distanceSquared - l1 * l1 - l2 * l2) / (2.0 * l1 * l2), -1.0, 1.0);
+		double elbow = Math.acos(cosElbow);
+		double bearing = Math.atan2(desiredY, desiredX);
+
+		double currentShoulder = chain.getAngle(0);
+		double currentElbow = chain.getAngle(1);
+
+		double bestShoulder = currentShoulder;
+		double bestElbow = currentElbow;
+		double bestCost = Double.POSITIVE_INFINITY;
+		boolean bestWithinLimits = false;
+
+		for (int branch = 0; branch < 2; branch++) {
+			double candidateElbow = branch == 0 ? elbow : -elbow;
+			double candidateShoulder = bearing - Math.atan2(l2 * Math.sin(candidateElbow), l1 + l2 * Math.cos(candidateElbow));
+
+			candidateShoulder = wrapTowards(candidateShoulder, currentShoulder);
+			candidateElbow = wrapTowards(candidateElbow, currentElbow);
+
+			boolean withinLimits = isWithinLimits(chain, 0, candidateShoulder) && isWithinLimits(chain, 1, candidateElbow);
+			double cost;
+			if (withinLimits) {
+				cost = Math.abs(candidateShoulder - currentShoulder) + Math.abs(candidateElbow - currentElbow);
+			} else {
+				// Neither branch may be feasible; fall back to whichever clamped pose lands closest.
+				candidateShoulder = MathUtil.clamp(candidateShoulder, chain.getMinAngle(0), chain.getMaxAngle(0));
+				candidateElbow = MathUtil.clamp(candidateElbow, chain.getMinAngle(1), chain.getMaxAngle(1));
+				double theta = candidateShoulder + candidateElbow;
+				double errorX = desiredX - (Math.cos(candidateShoulder) * l1 + Math.cos(theta) * l2);
+				double errorY = desiredY - (Math.sin(candidateShoulder) * l1 + Math.sin(theta) * l2);
+				cost = errorX * errorX + errorY * errorY;
+			}
+
+			boolean better = withinLimits == bestWithinLimits ? cost < bestCost : withinLimits;
+			if (better) {
+				bestShoulder = candidateShoulder;
+				bestElbow = candidateElbow;
+				bestCost = cost;
+				bestWithinLimits = withinLimits;
+			}
+		}
+
+		chain.setAngle(0, bestShoulder);
+		chain.setAngle(1, bestElbow);
+
+		result.iterations = 1;
+		result.setResidual(chain, desiredX, desiredY, toleranceMeters);
+	}
+
+	private static boolean isWithinLimits(IKChain chain, int index, double angle) {
+		return angle >= chain.getMinAngle(index) && angle <= chain.getMaxAngle(index);
+	}
+
+	/**
+	 * Shifts an angle by whole turns so that it is within half a turn of the reference angle.
+	 */
+	private static double wrapTowards(double angle, double reference) {
+		return reference + MathUtil.angleModulus(angle - reference);
+	}
+}
@@ -0,0 +1,50 @@
+package com.redstorm509.stormkit.math;
+
+import com.redstorm509.stormkit.interfaces.IInverseKinematicsStrategy;
+
+/**
+ * Solves inverse kinematics with cyclic coordinate descent.
+ * Each iteration rotates every segment, from the base outwards, so that the end effector points at the desired position from that segment's pivot.
+ * Converges linearly, but is cheap per iteration and works for any number of segments.
+ */
+public class CCDStrategy implements IInverseKinematicsStrategy {
+	// Improvement per iteration below which the chain is considered stuck (e.g. stretched towards an unreachable target).
+	private static final double STALL_THRESHOLD_METERS = 1e-6;
+
+	@Override
+	public void solve(IKChain chain, double desiredX, double desiredY, int maxIterations, double toleranceMeters, IKSolveResult result) {
+		int size = chain.size();
+		double error = chain.distanceToEndEffector(desiredX, desiredY);
+
+		for (int n = 0; n < maxIterations && error >= toleranceMeters; n++) {
+			result.iterations = n + 1;
+
+			for (int i = 0; i < size; i++) {
+				// pivot of the current segment
+				double pivotX = chain.getJointX(i);
+				double pivotY = chain.getJointY(i);
+
+				double toEndEffectorX = chain.getEndEffectorX() - pivotX;
+				double toEndEffectorY = chain.getEndEffectorY() - pivotY;
+				double toDesiredX = desiredX - pivotX;
+				double toDesiredY = desiredY - pivotY;
+
+				// signed angle between the pivot-to-end-effector and pivot-to-desired vectors
+				double cross = toEndEffectorX * toDesiredY - toEndEffectorY * toDesiredX;
+				double dot = toEndEffectorX * toDesiredX + toEndEffectorY * toDesiredY;
+				double delta = Math.atan2(cross, dot);
+
+				chain.applyDelta(i, delta);
+			}
+
+			// Each rotation can only bring the end effector closer, so a negligible improvement means no further progress is possible.
+			double previousError = error;
+			error = chain.distanceToEndEffector(desiredX, desiredY);
+			if (previousError - error < STALL_THRESHOLD_METERS) {
+				break;
+			}
+		}
+
+		result.setResidual(chain, desiredX, desiredY, toleranceMeters);
+	}
+}
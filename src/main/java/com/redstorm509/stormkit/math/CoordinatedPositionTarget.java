@@ -0,0 +1,314 @@
+package com.redstorm509.stormkit.math;
+
+import java.util.Arrays;
+
+import com.redstorm509.stormkit.interfaces.IKeepOutZone;
+import com.redstorm509.stormkit.interfaces.ITimeSource;
+import com.redstorm509.stormkit.util.FPGATimeSource;
+
+/**
+ * A moving setpoint for several position PIDs that have to move together, e.g. the pivot, elevator and wrist of an arm. Like a {@link PositionTarget} per
+ * axis, each target is clamped to its axis's constraints and rate limited, but the rates are scaled so every axis arrives at its goal at the same time: the
+ * axis that takes longest moves at its maximum rate and the others slow down to match, so the targets move in a straight line through joint space. All axes
+ * are stored in primitive arrays and updated in one call.
+ *
+ * <p>
+ * Keep-out zones are checked incrementally: each update only checks the pose the targets are about to step to, and if it is inside a zone the targets hold
+ * where they are, trying again every update, until the zone clears or the goal changes to one with a clear path. Steps are one loop long, so a zone much
+ * thinner than a loop's worth of motion can be stepped over.
+ */
+public class CoordinatedPositionTarget {
+	private final int axisCount;
+	private final double[] targets;
+	private final double[] goals;
+	private final double[] minTargetPos;
+	private final double[] maxTargetPos;
+	private final double[] maxRates;
+	// The pose checked against the keep-out zones before the targets step to it.
+	private final double[] candidate;
+	private IKeepOutZone[] zones = new IKeepOutZone[0];
+	private double remainingSeconds = 0.0;
+	private boolean blocked = false;
+	private ITimeSource timeSource;
+	private double previousTimeStamp;
+
+	/**
+	 * Constructs a CoordinatedPositionTarget with unconstrained positions, starting at 0 on every axis.
+	 *
+	 * @param maxRates The maximum rate of change of each axis's target, in units per second.
+	 */
+	public CoordinatedPositionTarget(double... maxRates) {
+		this(maxRates, new FPGATimeSource());
+	}
+
+	/**
+	 * Constructs a CoordinatedPositionTarget with unconstrained positions, starting at 0 on every axis, that reads time from a given clock.
+	 *
+	 * @param maxRates The maximum rate of change of each axis's target, in units per second.
+	 * @param timeSource The clock read by {@link CoordinatedPositionTarget#update()}.
+	 */
+	public CoordinatedPositionTarget(double[] maxRates, ITimeSource timeSource) {
+		this(new double[maxRates.length], filled(maxRates.length, -Double.MAX_VALUE), filled(maxRates.length, +Double.MAX_VALUE), maxRates, timeSource);
+	}
+
+	/**
+	 * Constructs a CoordinatedPositionTarget.
+	 *
+	 * @param initialTargets The initial target position of each axis.
+	 * @param minTargetPos The minimum allowed target position of each axis.
+	 * @param maxTargetPos The maximum allowed target position of each axis.
+	 * @param maxRates The maximum rate of change of each axis's target, in units per second.
+	 */
+	public CoordinatedPositionTarget(double[] initialTargets, double[] minTargetPos, double[] maxTargetPos, double[] maxRates) {
+		this(initialTargets, minTargetPos, maxTargetPos, maxRates, new FPGATimeSource());
+	}
+
+	/**
+	 * Constructs a CoordinatedPositionTarget that reads time from a given clock.
+	 *
+	 * @param initialTargets The initial target position of each axis.
+	 * @param minTargetPos The minimum allowed target position of each axis.
+	 * @param maxTargetPos The maximum allowed target position of each axis.
+	 * @param maxRates The maximum rate of change of each axis's target, in units per second.
+	 * @param timeSource The clock read by {@link CoordinatedPositionTarget#update()}.
+	 */
+	public CoordinatedPositionTarget(double[] initialTargets, double[] minTargetPos, double[] maxTargetPos, double[] maxRates, ITimeSource timeSource) {
+		axisCount = initialTargets.length;
+		if (axisCount == 0) {
+			throw new IllegalArgumentException("A CoordinatedPositionTarget must have at least one axis");
+		}
+		if (minTargetPos.length != axisCount || maxTargetPos.length != axisCount || maxRates.length != axisCount) {
+			throw new IllegalArgumentException("Every axis must have an initial target, a minimum, a maximum and a rate");
+		}
+		for (int i = 0; i < axisCount; i++) {
+			if (!(maxRates[i] > 0.0)) {
+				throw new IllegalArgumentException("Axis " + i + " must have a positive maximum rate");
+			}
+		}
+
+		this.minTargetPos = minTargetPos.clone();
+		this.maxTargetPos = maxTargetPos.clone();
+		this.maxRates = maxRates.clone();
+		this.targets = new double[axisCount];
+		this.goals = new double[axisCount];
+		this.candidate = new double[axisCount];
+		for (int i = 0; i < axisCount; i++) {
+			targets[i] = clamp(i, initialTargets[i]);
+			goals[i] = targets[i];
+		}
+		this.timeSource = timeSource;
+		previousTimeStamp = timeSource.getTimestampSeconds();
+	}
+
+	/**
+	 * Sets the clock read by {@link CoordinatedPositionTarget#update()}. The elapsed time restarts from the new clock.
+	 *
+	 * @param timeSource The clock.
+	 */
+	public void setTimeSource(ITimeSource timeSource) {
+		this.timeSource = timeSource;
+		this.previousTimeStamp = timeSource.getTimestampSeconds();
+	}
+
+	/**
+	 * Adds a zone the targets must not move into.
+	 *
+	 * @param zone The keep-out zone.
+	 */
+	public void addKeepOutZone(IKeepOutZone zone) {
+		zones = Arrays.copyOf(zones, zones.length + 1);
+		zones[zones.length - 1] = zone;
+	}
+
+	/**
+	 * Sets the minimum allowed target position of an axis. The targets keep arriving together.
+	 *
+	 * @param axis The index of the axis.
+	 * @param min The new minimum target position.
+	 */
+	public void setMinTargetPosition(int axis, double min) {
+		minTargetPos[axis] = min;
+		setGoal(axis, goals[axis]);
+	}
+
+	/**
+	 * Sets the maximum allowed target position of an axis. The targets keep arriving together.
+	 *
+	 * @param axis The index of the axis.
+	 * @param max The new maximum target position.
+	 */
+	public void setMaxTargetPosition(int axis, double max) {
+		maxTargetPos[axis] = max;
+		setGoal(axis, goals[axis]);
+	}
+
+	/**
+	 * Sets the maximum rate of change of an axis's target. The remaining motion is re-timed.
+	 *
+	 * @param axis The index of the axis.
+	 * @param maxRate The new maximum rate, in units per second.
+	 */
+	public void setMaxRate(int axis, double maxRate) {
+		if (!(maxRate > 0.0)) {
+			throw new IllegalArgumentException("Axis " + axis + " must have a positive maximum rate");
+		}
+		maxRates[axis] = maxRate;
+		retime();
+	}
+
+	/**
+	 * Sets the goal of every axis, clamped within its constraints. The targets move from where they are now and arrive at the goals together.
+	 *
+	 * @param goals The new goal of each axis.
+	 */
+	public void setGoals(double... goals) {
+		if (goals.length != axisCount) {
+			throw new IllegalArgumentException(goals.length + " goals were given for " + axisCount + " axes");
+		}
+		for (int i = 0; i < axisCount; i++) {
+			this.goals[i] = clamp(i, goals[i]);
+		}
+		retime();
+	}
+
+	/**
+	 * Sets the goal of one axis, clamped within its constraints, leaving the others' goals as they are. The targets move from where they are now and arrive
+	 * at the goals together.
+	 *
+	 * @param axis The index of the axis.
+	 * @param goal The new goal.
+	 */
+	public void setGoal(int axis, double goal) {
+		goals[axis] = clamp(axis, goal);
+		retime();
+	}
+
+	/**
+	 * Moves the targets toward their goals by the time elapsed since the last update.
+	 *
+	 * @return Whether the targets moved; false if they are at their goals or blocked by a keep-out zone.
+	 */
+	public boolean update() {
+		return update(timeSource.getTimestampSeconds());
+	}
+
+	/**
+	 * Moves the targets toward their goals at a given time, e.g. one timestamp sampled once per loop and shared by every mechanism.
+	 *
+	 * @param timeStamp The current time in seconds, on the same clock as previous updates.
+	 * @return Whether the targets moved; false if they are at their goals or blocked by a keep-out zone.
+	 */
+	public boolean update(double timeStamp) {
+		double deltaTime = timeStamp - previousTimeStamp;
+		previousTimeStamp = timeStamp;
+		if (remainingSeconds <= 0.0 || !(deltaTime > 0.0)) {
+			return false;
+		}
+
+		// Every axis covers the same fraction of its remaining distance, so they all arrive when the remaining time runs out.
+		double fraction = deltaTime >= remainingSeconds ? 1.0 : deltaTime / remainingSeconds;
+		for (int i = 0; i < axisCount; i++) {
+			candidate[i] = fraction == 1.0 ? goals[i] : clamp(i, targets[i] + (goals[i] - targets[i]) * fraction);
+		}
+
+		for (int z = 0; z < zones.length; z++) {
+			if (zones[z].contains(candidate)) {
+				blocked = true;
+				return false;
+			}
+		}
+
+		blocked = false;
+		System.arraycopy(candidate, 0, targets, 0, axisCount);
+		remainingSeconds = fraction == 1.0 ? 0.0 : remainingSeconds - deltaTime;
+		return true;
+	}
+
+	/**
+	 * Gets the current target position of an axis.
+	 *
+	 * @param axis The index of the axis.
+	 * @return The current target position.
+	 */
+	public double getTarget(int axis) {
+		return targets[axis];
+	}
+
+	/**
+	 * Copies the current target position of every axis.
+	 *
+	 * @param targets The array to copy into, at least as long as the number of axes.
+	 */
+	public void getTargets(double[] targets) {
+		System.arraycopy(this.targets, 0, targets, 0, axisCount);
+	}
+
+	/**
+	 * Gets the goal of an axis.
+	 *
+	 * @param axis The index of the axis.
+	 * @return The goal, clamped within the axis's constraints.
+	 */
+	public double getGoal(int axis) {
+		return goals[axis];
+	}
+
+	/**
+	 * Gets the number of axes.
+	 *
+	 * @return The number of axes.
+	 */
+	public int getAxisCount() {
+		return axisCount;
+	}
+
+	/**
+	 * Gets how long the targets will take to reach their goals if they aren't blocked.
+	 *
+	 * @return The remaining time in seconds.
+	 */
+	public double getRemainingSeconds() {
+		return remainingSeconds;
+	}
+
+	/**
+	 * Returns whether every target has reached its goal.
+	 *
+	 * @return Whether the motion is finished.
+	 */
+	public boolean isFinished() {
+		return remainingSeconds <= 0.0;
+	}
+
+	/**
+	 * Returns whether the last update held the targets because their next step was inside a keep-out zone.
+	 *
+	 * @return Whether the targets are blocked.
+	 */
+	public boolean isBlocked() {
+		return blocked;
+	}
+
+	/**
+	 * Finds how long the slowest axis takes to cover its remaining distance at its maximum rate.
+	 */
+	private void retime() {
+		double slowest = 0.0;
+		for (int i = 0; i < axisCount; i++) {
+			targets[i] = clamp(i, targets[i]);
+			slowest = Math.max(slowest, Math.abs(goals[i] - targets[i]) / maxRates[i]);
+		}
+		remainingSeconds = slowest;
+		blocked = false;
+	}
+
+	private double clamp(int axis, double position) {
+		return Math.max(minTargetPos[axis], Math.min(maxTargetPos[axis], position));
+	}
+
+	private static double[] filled(int length, double value) {
+		double[] array = new double[length];
+		Arrays.fill(array, value);
+		return array;
+	}
+}
@@ -0,0 +1,124 @@
+package com.redstorm509.stormkit.math;
+
+import com.redstorm509.stormkit.interfaces.IInverseKinematicsStrategy;
+
+/**
+ * Solves inverse kinematics with the damped least squares (Levenberg-Marquardt) Jacobian method.
+ * Each iteration takes the step {@code J^T (J J^T + lambda^2 I)^-1 e}, which converges much faster than cyclic coordinate descent near the target while the damping keeps it stable near singular poses.
+ * Since the end effector position is 2-dimensional, the inner matrix is only 2x2 and is inverted in closed form, so each iteration is linear in the number of segments.
+ * Steps that would increase the error are rejected and retried with more damping, so the error never grows between iterations.
+ */
+public class DampedLeastSquaresStrategy implements IInverseKinematicsStrategy {
+	// Improvement per accepted step below which the chain is considered stuck (e.g. stretched towards an unreachable target).
+	private static final double STALL_THRESHOLD_METERS = 1e-6;
+	// Once the damping grows this many times past its initial value without an accepted step, no further progress is possible.
+	private static final double MAX_DAMPING_GROWTH = 1e4;
+
+	private final double dampingMeters;
+	private final double maxStepRadians;
+	private double[] jacobianX = new double[0];
+	private double[] jacobianY = new double[0];
+	private double[] previousAngles = new double[0];
+
+	/**
+	 * Constructs a DampedLeastSquaresStrategy with a damping factor of 0.05 meters and a maximum step of 0.5 radians per joint per iteration.
+	 */
+	public DampedLeastSquaresStrategy() {
+		this(0.05, 0.5);
+	}
+
+	/**
+	 * Constructs a DampedLeastSquaresStrategy.
+	 *
+	 * @param dampingMeters The initial damping factor lambda. Larger values are more stable near singularities but converge slower.
+	 * @param maxStepRadians The maximum change in any joint angle per iteration.
+	 */
+	public DampedLeastSquaresStrategy(double dampingMeters, double maxStepRadians) {
+		this.dampingMeters = dampingMeters;
+		this.maxStepRadians = maxStepRadians;
+	}
+
+	@Override
+	public void solve(IKChain chain, double desiredX, double desiredY, int maxIterations, double toleranceMeters, IKSolveResult result) {
+		int size = chain.size();
+		if (jacobianX.length < size) {
+			jacobianX = new double[size];
+			jacobianY = new double[size];
+			previousAngles = new double[size];
+		}
+
+		double damping = dampingMeters;
+		double error = chain.distanceToEndEffector(desiredX, desiredY);
+
+		for (int n = 0; n < maxIterations && error >= toleranceMeters; n++) {
+			result.iterations = n + 1;
+
+			double endEffectorX = chain.getEndEffectorX();
+			double endEffectorY = chain.getEndEffectorY();
+			double errorX = desiredX - endEffectorX;
+			double errorY = desiredY - endEffectorY;
+
+			// Build the Jacobian and accumulate J J^T + lambda^2 I.
+			double dampingSquared = damping * damping;
+			double a = dampingSquared;
+			double b = 0.0;
+			double d = dampingSquared;
+			for (int i = 0; i < size; i++) {
+				double columnX = -(endEffectorY - chain.getJointY(i));
+				double columnY = endEffectorX - chain.getJointX(i);
+
+				// A joint pinned against a limit can't contribute, so let the others make up for it.
+				double gradient = columnX * errorX + columnY * errorY;
+				double angle = chain.getAngle(i);
+				if ((angle <= chain.getMinAngle(i) && gradient < 0.0) || (angle >= chain.getMaxAngle(i) && gradient > 0.0)) {
+					columnX = 0.0;
+					columnY = 0.0;
+				}
+
+				jacobianX[i] = columnX;
+				jacobianY[i] = columnY;
+				a += columnX * columnX;
+				b += columnX * columnY;
+				d += columnY * columnY;
+			}
+
+			// w = (J J^T + lambda^2 I)^-1 e
+			double determinant = a * d - b * b;
+			double weightX = (d * errorX - b * errorY) / determinant;
+			double weightY = (a * errorY - b * errorX) / determinant;
+
+			for (int i = 0; i < size; i++) {
+				double step = jacobianX[i] * weightX + jacobianY[i] * weightY;
+				if (step > maxStepRadians) {
+					step = maxStepRadians;
+				} else if (step < -maxStepRadians) {
+					step = -maxStepRadians;
+				}
+
+				previousAngles[i] = chain.getAngle(i);
+				chain.applyDelta(i, step);
+			}
+
+			double newError = chain.distanceToEndEffector(desiredX, desiredY);
+			if (newError < error) {
+				double improvement = error - newError;
+				error = newError;
+				damping = Math.max(dampingMeters, damping * 0.5);
+				if (improvement < STALL_THRESHOLD_METERS) {
+					break;
+				}
+			} else {
+				// Reject the step and retry with a more conservative one.
+				for (int i = 0; i < size; i++) {
+					chain.setAngle(i, previousAngles[i]);
+				}
+				damping *= 4.0;
+				if (damping > dampingMeters * MAX_DAMPING_GROWTH) {
+					break;
+				}
+			}
+		}
+
+		result.setResidual(chain, desiredX, desiredY, toleranceMeters);
+	}
+}
@@ -0,0 +1,235 @@
+package com.redstorm509.stormkit.math;
+
+import java.util.Arrays;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * A planar chain of arm segments stored in preallocated primitive arrays.
+ * Joint 0 is the base of the chain, and joint i + 1 is the tip of segment i, so the end effector is joint {@link IKChain#size()}.
+ * Forward kinematics are kept up to date incrementally: changing segment i only recomputes the joints after it, and nothing is allocated after construction.
+ */
+public class IKChain {
+	private final int size;
+	private final double[] minAngles;
+	private final double[] maxAngles;
+	private final double[] angles;
+	private final double[] lengths;
+	// Absolute heading of each segment, i.e. the sum of all pivot angles up to and including it.
+	private final double[] headings;
+	private final double[] jointX;
+	private final double[] jointY;
+	// Index of the first segment whose joint positions are out of date.
+	private int dirtyFrom;
+
+	/**
+	 * Constructs an IKChain with the given number of segments. Every segment starts with zero length, a zero angle, and no joint limits.
+	 *
+	 * @param size The number of segments in the chain.
+	 */
+	public IKChain(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("An IKChain must have at least one segment, " + size + " given");
+		}
+		this.size = size;
+		this.minAngles = new double[size];
+		this.maxAngles = new double[size];
+		this.angles = new double[size];
+		this.lengths = new double[size];
+		this.headings = new double[size];
+		this.jointX = new double[size + 1];
+		this.jointY = new double[size + 1];
+		Arrays.fill(minAngles, Double.NEGATIVE_INFINITY);
+		Arrays.fill(maxAngles, Double.POSITIVE_INFINITY);
+		this.dirtyFrom = 0;
+	}
+
+	/**
+	 * Gets the number of segments in the chain.
+	 *
+	 * @return The number of segments.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Sets every parameter of a segment at once.
+	 *
+	 * @param index The index of the segment.
+	 * @param pivotMinExtentRadians The minimum pivot angle permitted for the segment in radians.
+	 * @param pivotMaxExtentRadians The maximum pivot angle permitted for the segment in radians.
+	 * @param pivotRadians The angle of the segment in radians.
+	 * @param lengthMeters The length of the segment in meters.
+	 */
+	public void setSegment(int index, double pivotMinExtentRadians, double pivotMaxExtentRadians, double pivotRadians, double lengthMeters) {
+		minAngles[index] = pivotMinExtentRadians;
+		maxAngles[index] = pivotMaxExtentRadians;
+		angles[index] = pivotRadians;
+		lengths[index] = lengthMeters;
+		markDirty(index);
+	}
+
+	/**
+	 * Sets the angle of a segment without applying its joint limits.
+	 *
+	 * @param index The index of the segment.
+	 * @param pivotRadians The new angle of the segment in radians.
+	 */
+	public void setAngle(int index, double pivotRadians) {
+		angles[index] = pivotRadians;
+		markDirty(index);
+	}
+
+	/**
+	 * Rotates a segment by the given amount, clamped to its joint limits.
+	 *
+	 * @param index The index of the segment.
+	 * @param deltaPivotRadians The change in angle in radians.
+	 */
+	public void applyDelta(int index, double deltaPivotRadians) {
+		angles[index] = MathUtil.clamp(angles[index] + deltaPivotRadians, minAngles[index], maxAngles[index]);
+		markDirty(index);
+	}
+
+	/**
+	 * Gets the angle of a segment relative to the previous segment.
+	 *
+	 * @param index The index of the segment.
+	 * @return The angle of the segment in radians.
+	 */
+	public double getAngle(int index) {
+		return angles[index];
+	}
+
+	/**
+	 * Gets the minimum angle permitted for a segment.
+	 *
+	 * @param index The index of the segment.
+	 * @return The minimum pivot angle in radians.
+	 */
+	public double getMinAngle(int index) {
+		return minAngles[index];
+	}
+
+	/**
+	 * Gets the maximum angle permitted for a segment.
+	 *
+	 * @param index The index of the segment.
+	 * @return The maximum pivot angle in radians.
+	 */
+	public double getMaxAngle(int index) {
+		return maxAngles[index];
+	}
+
+	/**
+	 * Gets the length of a segment.
+	 *
+	 * @param index The index of the segment.
+	 * @return The length of the segment in meters.
+	 */
+	public double getLength(int index) {
+		return lengths[index];
+	}
+
+	/**
+	 * Gets the absolute heading of a segment, which is the sum of its angle and the angles of every segment before it.
+	 *
+	 * @param index The index of the segment.
+	 * @return The heading of the segment in radians.
+	 */
+	public double getHeading(int index) {
+		update();
+		return headings[index];
+	}
+
+	/**
+	 * Gets the x-coordinate of a joint.
+	 *
+	 * @param joint The index of the joint, from 0 (the base) to {@link IKChain#size()} (the end effector).
+	 * @return The x-coordinate of the joint in meters.
+	 */
+	public double getJointX(int joint) {
+		update();
+		return jointX[joint];
+	}
+
+	/**
+	 * Gets the y-coordinate of a joint.
+	 *
+	 * @param joint The index of the joint, from 0 (the base) to {@link IKChain#size()} (the end effector).
+	 * @return The y-coordinate of the joint in meters.
+	 */
+	public double getJointY(int joint) {
+		update();
+		return jointY[joint];
+	}
+
+	/**
+	 * Gets the x-coordinate of the end effector.
+	 *
+	 * @return The x-coordinate of the end effector in meters.
+	 */
+	public double getEndEffectorX() {
+		return getJointX(size);
+	}
+
+	/**
+	 * Gets the y-coordinate of the end effector.
+	 *
+	 * @return The y-coordinate of the end effector in meters.
+	 */
+	public double getEndEffectorY() {
+		return getJointY(size);
+	}
+
+	/**
+	 * Gets the distance between the end effector and a point.
+	 *
+	 * @param x The x-coordinate of the point in meters.
+	 * @param y The y-coordinate of the point in meters.
+	 * @return The distance between the end effector and the point in meters.
+	 */
+	public double distanceToEndEffector(double x, double y) {
+		double errorX = x - getEndEffectorX();
+		double errorY = y - getEndEffectorY();
+		return Math.sqrt(errorX * errorX + errorY * errorY);
+	}
+
+	/**
+	 * Recomputes every joint position from the base of the chain.
+	 */
+	public void forwardKinematics() {
+		dirtyFrom = 0;
+		update();
+	}
+
+	private void markDirty(int index) {
+		if (index < dirtyFrom) {
+			dirtyFrom = index;
+		}
+	}
+
+	private void update() {
+		if (dirtyFrom >= size) {
+			return;
+		}
+
+		int i = dirtyFrom;
+		double theta = i == 0 ? 0.0 : headings[i - 1];
+		double x = jointX[i];
+		double y = jointY[i];
+
+		for (; i < size; i++) {
+			theta += angles[i];
+			x += Math.cos(theta) * lengths[i];
+			y += Math.sin(theta) * lengths[i];
+
+			headings[i] = theta;
+			jointX[i + 1] = x;
+			jointY[i + 1] = y;
+		}
+
+		dirtyFrom = size;
+	}
+}
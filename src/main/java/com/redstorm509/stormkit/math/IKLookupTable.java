@@ -0,0 +1,377 @@
+package com.redstorm509.stormkit.math;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import com.redstorm509.stormkit.interfaces.IInverseKinematicsStrategy;
+import com.redstorm509.stormkit.math.IKSolver.SegmentParams;
+
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * A precomputed grid of inverse kinematics solutions for an arm whose geometry doesn't change at runtime.
+ * The grid covers a rectangle of the arm's workspace; a lookup bilinearly blends the joint angles of the four surrounding cells, which can then be refined by an {@link IKSolver} in a handful of iterations.
+ * Tables are built once (at startup, or offline and saved to the deploy directory) and can be memory-mapped back in without copying.
+ *
+ * <p>File layout (big-endian): a {@value #HEADER_BYTES} byte header holding the magic number, format version, segment count, column count, row count, and the grid bounds, followed by one float32 angle per segment for every cell in row-major order.
+ * Cells the solver couldn't converge on are stored as NaN.
+ */
+public class IKLookupTable {
+	private static final int MAGIC = 0x534B494B; // "SKIK"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 64;
+
+	private final int segmentCount;
+	private final int columns;
+	private final int rows;
+	private final double minX;
+	private final double minY;
+	private final double maxX;
+	private final double maxY;
+	private final double inverseCellWidth;
+	private final double inverseCellHeight;
+	private final ByteBuffer buffer;
+	private final FloatBuffer angles;
+
+	private IKLookupTable(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an IK lookup table");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported IK lookup table version " + buffer.getInt(4));
+		}
+
+		this.segmentCount = buffer.getInt(8);
+		this.columns = buffer.getInt(12);
+		this.rows = buffer.getInt(16);
+		this.minX = buffer.getDouble(20);
+		this.minY = buffer.getDouble(28);
+		this.maxX = buffer.getDouble(36);
+		this.maxY = buffer.getDouble(44);
+
+		// Hold loaded tables to the same constraints build() enforces, so a corrupt header can't send lookups out of bounds.
+		if (segmentCount < 1 || columns < 2 || rows < 2) {
+			throw new IOException("Invalid IK lookup table dimensions " + columns + "x" + rows + " with " + segmentCount + " segments");
+		}
+		if (!(Double.isFinite(minX) && Double.isFinite(minY) && Double.isFinite(maxX) && Double.isFinite(maxY) && maxX > minX && maxY > minY)) {
+			throw new IOException("Invalid IK lookup table bounds");
+		}
+		if (buffer.capacity() != dataSizeBytes(segmentCount, columns, rows)) {
+			throw new IOException("Truncated IK lookup table");
+		}
+
+		this.inverseCellWidth = (columns - 1) / (maxX - minX);
+		this.inverseCellHeight = (rows - 1) / (maxY - minY);
+		this.buffer = buffer;
+		this.angles = buffer.position(HEADER_BYTES).slice().asFloatBuffer();
+		buffer.position(0);
+	}
+
+	// Computed in long so an oversized grid is caught instead of wrapping around, saturating at Long.MAX_VALUE.
+	private static long dataSizeBytes(int segmentCount, int columns, int rows) {
+		try {
+			return Math.addExact(HEADER_BYTES, Math.multiplyExact(Math.multiplyExact((long) segmentCount * columns, rows), Float.BYTES));
+		} catch (ArithmeticException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Builds a lookup table by solving every cell of a grid with damped least squares.
+	 *
+	 * @param segments The arm's segments. Their angles are used as the initial guess and are not modified.
+	 * @param minX The minimum x-coordinate covered by the table in meters.
+	 * @param minY The minimum y-coordinate covered by the table in meters.
+	 * @param maxX The maximum x-coordinate covered by the table in meters.
+	 * @param maxY The maximum y-coordinate covered by the table in meters.
+	 * @param columns The number of grid points along the x-axis. Must be at least 2.
+	 * @param rows The number of grid points along the y-axis. Must be at least 2.
+	 * @return The built table.
+	 */
+	public static IKLookupTable build(ArrayList<SegmentParams> segments, double minX, double minY, double maxX, double maxY, int columns, int rows) {
+		return build(segments, minX, minY, maxX, maxY, columns, rows, new DampedLeastSquaresStrategy(), 1e-4);
+	}
+
+	/**
+	 * Builds a lookup table by solving every cell of a grid. Each cell is warm-started from the solution of the cell below it (or beside it on the first row), so neighbouring cells stay on the same elbow branch and blend smoothly.
+	 *
+	 * @param segments The arm's segments. Their angles are used as the initial guess and are not modified.
+	 * @param minX The minimum x-coordinate covered by the table in meters.
+	 * @param minY The minimum y-coordinate covered by the table in meters.
+	 * @param maxX The maximum x-coordinate covered by the table in meters.
+	 * @param maxY The maximum y-coordinate covered by the table in meters.
+	 * @param columns The number of grid points along the x-axis. Must be at least 2.
+	 * @param rows The number of grid points along the y-axis. Must be at least 2. The table, 4 bytes per segment per grid point, must fit in 2 GiB.
+	 * @param strategy The strategy used to solve each cell.
+	 * @param toleranceMeters The error below which a cell is considered solved. Unsolved cells are stored as NaN.
+	 * @return The built table.
+	 */
+	public static IKLookupTable build(ArrayList<SegmentParams> segments, double minX, double minY, double maxX, double maxY, int columns, int rows, IInverseKinematicsStrategy strategy, double toleranceMeters) {
+		if (segments.isEmpty()) {
+			throw new IllegalArgumentException("An IK lookup table needs at least one segment");
+		}
+		if (columns < 2 || rows < 2) {
+			throw new IllegalArgumentException("An IK lookup table needs at least 2 columns and 2 rows");
+		}
+		if (!(Double.isFinite(minX) && Double.isFinite(minY) && Double.isFinite(maxX) && Double.isFinite(maxY) && maxX > minX && maxY > minY)) {
+			throw new IllegalArgumentException("IK lookup table bounds must be finite and have a positive area");
+		}
+
+		int segmentCount = segments.size();
+		long sizeBytes = dataSizeBytes(segmentCount, columns, rows);
+		if (sizeBytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(String.format("A %dx%d grid of %d segments is too large for an IK lookup table, which is limited to %d bytes",
+					columns, rows, segmentCount, Integer.MAX_VALUE));
+		}
+
+		ArrayList<SegmentParams> scratch = new ArrayList<>(segmentCount);
+		double[] initialAngles = new double[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			SegmentParams segment = segments.get(i);
+			initialAngles[i] = segment.pivotRadians;
+			scratch.add(new SegmentParams(segment.pivotMinExtentRadians, segment.pivotMaxExtentRadians, segment.pivotRadians, segment.lengthMeters));
+		}
+
+		IKSolver solver = new IKSolver(scratch, 100, strategy);
+		solver.setTolerance(toleranceMeters);
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect((int) sizeBytes);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, segmentCount);
+		buffer.putInt(12, columns);
+		buffer.putInt(16, rows);
+		buffer.putDouble(20, minX);
+		buffer.putDouble(28, minY);
+		buffer.putDouble(36, maxX);
+		buffer.putDouble(44, maxY);
+		FloatBuffer angles = buffer.position(HEADER_BYTES).slice().asFloatBuffer();
+		buffer.position(0);
+
+		for (int row = 0; row < rows; row++) {
+			double y = minY + (maxY - minY) * row / (rows - 1);
+			for (int column = 0; column < columns; column++) {
+				double x = minX + (maxX - minX) * column / (columns - 1);
+
+				// Seed from the nearest solved neighbour, falling back to the initial pose.
+				int seed = -1;
+				if (row > 0 && !Float.isNaN(angles.get(((row - 1) * columns + column) * segmentCount))) {
+					seed = ((row - 1) * columns + column) * segmentCount;
+				} else if (column > 0 && !Float.isNaN(angles.get((row * columns + column - 1) * segmentCount))) {
+					seed = (row * columns + column - 1) * segmentCount;
+				}
+				for (int i = 0; i < segmentCount; i++) {
+					scratch.get(i).pivotRadians = seed < 0 ? initialAngles[i] : angles.get(seed + i);
+				}
+
+				boolean converged = solver.inverseKinematics(x, y).converged;
+
+				int cell = (row * columns + column) * segmentCount;
+				for (int i = 0; i < segmentCount; i++) {
+					angles.put(cell + i, converged ? (float) scratch.get(i).pivotRadians : Float.NaN);
+				}
+			}
+		}
+
+		try {
+			return new IKLookupTable(buffer);
+		} catch (IOException e) {
+			// The header was written just above, so this can't happen.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Memory-maps a lookup table from a file. The table's data is paged in by the operating system on demand rather than copied onto the heap.
+	 *
+	 * @param path The path of the table file.
+	 * @return The loaded table.
+	 * @throws IOException If the file can't be read or is not a valid lookup table.
+	 */
+	public static IKLookupTable load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("IK lookup table is larger than " + Integer.MAX_VALUE + " bytes");
+			}
+			return new IKLookupTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Memory-maps a lookup table from a file in the robot's deploy directory.
+	 *
+	 * @param fileName The name of the table file, relative to the deploy directory.
+	 * @return The loaded table.
+	 * @throws IOException If the file can't be read or is not a valid lookup table.
+	 */
+	public static IKLookupTable loadFromDeployDirectory(String fileName) throws IOException {
+		return load(Filesystem.getDeployDirectory().toPath().resolve(fileName));
+	}
+
+	/**
+	 * Writes the table to a file, replacing it if it already exists.
+	 *
+	 * @param path The path of the table file.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void save(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer data = buffer.duplicate();
+			data.position(0);
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+		}
+	}
+
+	/**
+	 * Looks up the joint angles for an end effector position by bilinearly blending the four surrounding grid points.
+	 * Grid points the builder couldn't solve are left out of the blend. This does not allocate.
+	 *
+	 * @param x The x-coordinate of the desired end effector position in meters.
+	 * @param y The y-coordinate of the desired end effector position in meters.
+	 * @param anglesOut An array of at least {@link IKLookupTable#getSegmentCount()} elements to write the joint angles into, in radians.
+	 * @return Whether the position is within the table and near at least one solved grid point. If false, anglesOut is left untouched.
+	 */
+	public boolean lookup(double x, double y, double[] anglesOut) {
+		double gridX = (x - minX) * inverseCellWidth;
+		double gridY = (y - minY) * inverseCellHeight;
+		if (!(gridX >= 0.0 && gridY >= 0.0 && gridX <= columns - 1 && gridY <= rows - 1)) {
+			return false;
+		}
+
+		int column = Math.min((int) gridX, columns - 2);
+		int row = Math.min((int) gridY, rows - 2);
+		double fracX = gridX - column;
+		double fracY = gridY - row;
+
+		int bottomLeft = (row * columns + column) * segmentCount;
+		int bottomRight = bottomLeft + segmentCount;
+		int topLeft = bottomLeft + columns * segmentCount;
+		int topRight = topLeft + segmentCount;
+
+		double weightBottomLeft = isSolved(bottomLeft) ? (1.0 - fracX) * (1.0 - fracY) : 0.0;
+		double weightBottomRight = isSolved(bottomRight) ? fracX * (1.0 - fracY) : 0.0;
+		double weightTopLeft = isSolved(topLeft) ? (1.0 - fracX) * fracY : 0.0;
+		double weightTopRight = isSolved(topRight) ? fracX * fracY : 0.0;
+
+		double totalWeight = weightBottomLeft + weightBottomRight + weightTopLeft + weightTopRight;
+		if (totalWeight <= 0.0) {
+			return false;
+		}
+		double inverseTotalWeight = 1.0 / totalWeight;
+
+		for (int i = 0; i < segmentCount; i++) {
+			double angle = 0.0;
+			if (weightBottomLeft > 0.0) {
+				angle += weightBottomLeft * angles.get(bottomLeft + i);
+			}
+			if (weightBottomRight > 0.0) {
+				angle += weightBottomRight * angles.get(bottomRight + i);
+			}
+			if (weightTopLeft > 0.0) {
+				angle += weightTopLeft * angles.get(topLeft + i);
+			}
+			if (weightTopRight > 0.0) {
+				angle += weightTopRight * angles.get(topRight + i);
+			}
+			anglesOut[i] = angle * inverseTotalWeight;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Seeds a solver's segments from the table and refines the result iteratively.
+	 * If the position isn't covered by the table, the solver is warm-started from its current angles instead.
+	 *
+	 * @param solver A solver for the same arm geometry the table was built for.
+	 * @param x The x-coordinate of the desired end effector position in meters.
+	 * @param y The y-coordinate of the desired end effector position in meters.
+	 * @param scratch An array of at least {@link IKLookupTable#getSegmentCount()} elements used to hold the looked-up angles.
+	 * @return The convergence telemetry of the refinement.
+	 */
+	public IKSolveResult solve(IKSolver solver, double x, double y, double[] scratch) {
+		ArrayList<SegmentParams> segments = solver.getSegments();
+		if (segments.size() != segmentCount) {
+			throw new IllegalArgumentException("Solver has " + segments.size() + " segments, but the table was built for " + segmentCount);
+		}
+
+		if (lookup(x, y, scratch)) {
+			for (int i = 0; i < segmentCount; i++) {
+				segments.get(i).pivotRadians = scratch[i];
+			}
+		}
+
+		return solver.inverseKinematics(x, y);
+	}
+
+	private boolean isSolved(int cell) {
+		return !Float.isNaN(angles.get(cell));
+	}
+
+	/**
+	 * Gets the number of segments the table was built for.
+	 *
+	 * @return The number of segments.
+	 */
+	public int getSegmentCount() {
+		return segmentCount;
+	}
+
+	/**
+	 * Gets the number of grid points along the x-axis.
+	 *
+	 * @return The number of columns.
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Gets the number of grid points along the y-axis.
+	 *
+	 * @return The number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Gets the spacing between grid points along the x-axis.
+	 *
+	 * @return The cell width in meters.
+	 */
+	public double getCellWidthMeters() {
+		return 1.0 / inverseCellWidth;
+	}
+
+	/**
+	 * Gets the spacing between grid points along the y-axis.
+	 *
+	 * @return The cell height in meters.
+	 */
+	public double getCellHeightMeters() {
+		return 1.0 / inverseCellHeight;
+	}
+
+	/**
+	 * Gets the size of the table's data, including its header. This is also the size of the file written by {@link IKLookupTable#save(Path)}.
+	 *
+	 * @return The size of the table in bytes.
+	 */
+	public int getMemoryFootprintBytes() {
+		return buffer.capacity();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("IKLookupTable[%dx%d grid, %d segments, %.3f x %.3f m cells, %.1f KiB]",
+				columns, rows, segmentCount, getCellWidthMeters(), getCellHeightMeters(), getMemoryFootprintBytes() / 1024.0);
+	}
+}
@@ -0,0 +1,39 @@
+package com.redstorm509.stormkit.math;
+
+/**
+ * Convergence telemetry for a single inverse kinematics solve.
+ * Solvers reuse a single instance, so copy the fields out if they need to outlive the next solve.
+ */
+public class IKSolveResult {
+	/** The number of iterations performed. Closed-form strategies report a single iteration. */
+	public int iterations;
+	/** The distance between the end effector and the desired position after the solve, in meters. */
+	public double residualMeters;
+	/** The wall-clock time spent solving, in nanoseconds. */
+	public long solveTimeNanos;
+	/** Whether the residual error is within the solver's tolerance. */
+	public boolean converged;
+
+	/**
+	 * Clears the result before a new solve.
+	 */
+	public void reset() {
+		iterations = 0;
+		residualMeters = Double.NaN;
+		solveTimeNanos = 0;
+		converged = false;
+	}
+
+	/**
+	 * Records the final end effector error of a solve.
+	 *
+	 * @param chain The solved chain.
+	 * @param desiredX The x-coordinate of the desired end effector position in meters.
+	 * @param desiredY The y-coordinate of the desired end effector position in meters.
+	 * @param toleranceMeters The end effector error at which the solve is considered converged.
+	 */
+	public void setResidual(IKChain chain, double desiredX, double desiredY, double toleranceMeters) {
+		residualMeters = chain.distanceToEndEffector(desiredX, desiredY);
+		converged = residualMeters < toleranceMeters;
+	}
+}
@@ -2,6 +2,10 @@ package com.redstorm509.stormkit.math;
 
 import java.util.ArrayList;
 
+import com.redstorm509.stormkit.interfaces.IInverseKinematicsStrategy;
+import com.redstorm509.stormkit.telemetry.Timing;
+import com.redstorm509.stormkit.telemetry.TimingSpan;
+
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.Vector;
@@ -37,28 +41,73 @@ public class IKSolver {
         }
     } 
 
+    private static final TimingSpan inverseKinematicsSpan = Timing.span("IKSolver/inverseKinematics");
+
     private ArrayList<SegmentParams> segments;
     private int maxIterations;
+    private double toleranceMeters;
+    private IInverseKinematicsStrategy strategy;
+    private IKChain chain;
+    private final IKSolveResult result = new IKSolveResult();
 
     /**
-     * Constructs an IKSolver with the given segment information. Defaults to 100 maximum IK iterations.
+     * Constructs an IKSolver with the given segment information. Defaults to 100 maximum IK iterations, a tolerance of 0.01 meters, and cyclic coordinate descent.
      *
      * @param segments An ArrayList of 2-component vectors, where each vector's x-component corresponds to a joint's pivot angle in radians, and its y-component corresponds to a joint's arm length in meters. 
      */
     public IKSolver(ArrayList<SegmentParams> segments) {
-        this.segments = segments;
-        this.maxIterations = 100;
+        this(segments, 100);
     }
 
     /**
-     * Constructs an IKSolver with the given segment information, and a desired maximum number of IK iterations.
+     * Constructs an IKSolver with the given segment information, and a desired maximum number of IK iterations. Defaults to a tolerance of 0.01 meters and cyclic coordinate descent.
      *
      * @param segments An ArrayList of 2-component vectors, where each vector's x-component corresponds to a joint's pivot angle in radians, and its y-component corresponds to a joint's arm length in meters. 
      * @param maxIterations The maximum number of iterations permitted for inverse kinematics.
      */
     public IKSolver(ArrayList<SegmentParams> segments, int maxIterations) {
+        this(segments, maxIterations, new CCDStrategy());
+    }
+
+    /**
+     * Constructs an IKSolver with the given segment information, a desired maximum number of IK iterations, and a solving strategy. Defaults to a tolerance of 0.01 meters.
+     *
+     * @param segments An ArrayList of 2-component vectors, where each vector's x-component corresponds to a joint's pivot angle in radians, and its y-component corresponds to a joint's arm length in meters. 
+     * @param maxIterations The maximum number of iterations permitted for inverse kinematics.
+     * @param strategy The strategy used to solve inverse kinematics, e.g. {@link CCDStrategy}, {@link AnalyticTwoLinkStrategy}, or {@link DampedLeastSquaresStrategy}.
+     */
+    public IKSolver(ArrayList<SegmentParams> segments, int maxIterations, IInverseKinematicsStrategy strategy) {
         this.segments = segments;
         this.maxIterations = maxIterations;
+        this.toleranceMeters = 0.01;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Sets the strategy used to solve inverse kinematics.
+     *
+     * @param strategy The new solving strategy.
+     */
+    public void setStrategy(IInverseKinematicsStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Sets the end effector error at which a solve stops early.
+     *
+     * @param toleranceMeters The new tolerance in meters.
+     */
+    public void setTolerance(double toleranceMeters) {
+        this.toleranceMeters = toleranceMeters;
+    }
+
+    /**
+     * Sets the maximum number of iterations permitted for inverse kinematics.
+     *
+     * @param maxIterations The new maximum number of iterations.
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
     }
 
     /**
@@ -79,25 +128,28 @@ public class IKSolver {
         return this.segments;
     }
 
+    /**
+     * Gets the primitive-backed chain used by the solver. Its joint positions reflect the segment data as of the last calculation, and can be read without allocating.
+     *
+     * @return The solver's kinematic chain, or null if there are no segments.
+     */
+    public IKChain getChain() {
+        return loadChain() ? this.chain : null;
+    }
+
     /**
      * Performs forward kinematics on the arm segments, and returns an ArrayList of joint positions in meters.
      * 
-     * @return An ArrayList of joint position vectors in meters.
+     * @return An ArrayList of joint position vectors in meters, which is empty if there are no segments.
      */
     public ArrayList<Vector<N2>> forwardKinematics() {
-        ArrayList<Vector<N2>> positions = new ArrayList<>();
-        double theta = 0.0;
-        double x = 0.0;
-        double y = 0;
-
-        for (SegmentParams segment : this.segments) {
-            double pivotRadians = segment.pivotRadians;
-            double lengthMeters = segment.lengthMeters;
-            theta += pivotRadians;
-            x += Math.cos(theta) * lengthMeters;
-            y += Math.sin(theta) * lengthMeters;
-
-            positions.add(VecBuilder.fill(x, y));
+        ArrayList<Vector<N2>> positions = new ArrayList<>(this.segments.size());
+        if (!loadChain()) {
+            return positions;
+        }
+
+        for (int i = 1; i <= this.chain.size(); i++) {
+            positions.add(VecBuilder.fill(this.chain.getJointX(i), this.chain.getJointY(i)));
         }
 
         return positions;
@@ -107,44 +159,71 @@ public class IKSolver {
      * Performs inverse kinematics on the arm segments given a desired end-effector position.
      * 
      * @param desiredPos A desired end effector position in meters.
+     * @return The convergence telemetry of the solve. The same instance is reused by every solve.
+     */
+    public IKSolveResult inverseKinematics(Vector<N2> desiredPos) {
+        return inverseKinematics(desiredPos.get(0, 0), desiredPos.get(1, 0));
+    }
+
+    /**
+     * Performs inverse kinematics on the arm segments given a desired end-effector position. This does not allocate once the chain has been sized.
+     * The solve is warm-started from the current segment angles, which hold the previous solution unless they have been updated since.
+     * 
+     * @param desiredX The x-coordinate of the desired end effector position in meters.
+     * @param desiredY The y-coordinate of the desired end effector position in meters.
+     * @return The convergence telemetry of the solve. The same instance is reused by every solve.
+     */
+    public IKSolveResult inverseKinematics(double desiredX, double desiredY) {
+        long startTime = System.nanoTime();
+        this.result.reset();
+
+        // With no segments there is nothing to move, so the solve is a no-op.
+        if (loadChain()) {
+            this.strategy.solve(this.chain, desiredX, desiredY, this.maxIterations, this.toleranceMeters, this.result);
+            storeChain();
+        }
+
+        this.result.solveTimeNanos = System.nanoTime() - startTime;
+        inverseKinematicsSpan.record(this.result.solveTimeNanos);
+        return this.result;
+    }
+
+    /**
+     * Gets the convergence telemetry of the most recent solve.
+     *
+     * @return The result of the last call to inverseKinematics.
+     */
+    public IKSolveResult getLastResult() {
+        return this.result;
+    }
+
+    /**
+     * Copies the segment data into the chain, only reallocating it when the number of segments changes.
+     *
+     * @return Whether there are any segments to load, since an IKChain cannot be empty.
+     */
+    private boolean loadChain() {
+        int size = this.segments.size();
+        if (size == 0) {
+            return false;
+        }
+        if (this.chain == null || this.chain.size() != size) {
+            this.chain = new IKChain(size);
+        }
+
+        for (int i = 0; i < size; i++) {
+            SegmentParams segment = this.segments.get(i);
+            this.chain.setSegment(i, segment.pivotMinExtentRadians, segment.pivotMaxExtentRadians, segment.pivotRadians, segment.lengthMeters);
+        }
+        return true;
+    }
+
+    /**
+     * Copies the solved pivot angles from the chain back into the segment data.
      */
-    public void inverseKinematics(Vector<N2> desiredPos) {
-        for (int n = 0; n < this.maxIterations; n++) {
-            for (int i = 0; i < this.segments.size(); i++) {
-                ArrayList<Vector<N2>> positions = this.forwardKinematics();
-                
-                // position of current segment
-                Vector<N2> currentSegmentPos = positions.get(i);
-                // position of end effector
-                Vector<N2> endEffectorPos = positions.get(positions.size() - 1);
-                
-                if (new Vector<N2>(desiredPos.minus(endEffectorPos)).norm() < 0.01) {
-                    return;
-                }
-
-                Vector<N2> currentSegmentToEndEffector = new Vector<N2>(endEffectorPos.minus(currentSegmentPos));
-                Vector<N2> currentSegmentToDesiredPos = new Vector<N2>(desiredPos.minus(currentSegmentPos));
-
-                // compute the angle of the triangle created between
-                // the current segment point, the last segment point,
-                // and the desired end position
-                double a = currentSegmentToEndEffector.norm();
-                double b = currentSegmentToDesiredPos.norm();
-                double dot = currentSegmentToEndEffector.dot(currentSegmentToDesiredPos);
-                double delta = Math.acos(dot / (a * b));
-
-                // calculate whether delta calculates for the necessary positive
-                // or negative offset to the current segment angle using its normal
-                double direction = - currentSegmentToEndEffector.get(1, 0) * currentSegmentToDesiredPos.get(0, 0) + currentSegmentToEndEffector.get(0, 0) * currentSegmentToDesiredPos.get(1, 0);
-                
-                if (Math.abs(delta) < 0.0001) {
-                    if (direction < 0) {
-                        this.segments.get(i).applyDelta(-delta);
-                    } else {
-                        this.segments.get(i).applyDelta(delta);
-                    }
-                }
-            }
+    private void storeChain() {
+        for (int i = 0; i < this.chain.size(); i++) {
+            this.segments.get(i).pivotRadians = this.chain.getAngle(i);
         }
     }
 }
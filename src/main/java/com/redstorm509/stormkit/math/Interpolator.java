@@ -1,23 +1,85 @@
 package com.redstorm509.stormkit.math;
 
+import com.redstorm509.stormkit.interfaces.ITimeSource;
+
 /**
- * Represents a simple linear interpolator.
+ * Represents a simple interpolator that smooths a position toward a set point.
+ * The {@link Interpolator.Mode#Exponential} and {@link Interpolator.Mode#CriticallyDamped} modes are stepped in closed form, so they are stable at any
+ * timestep and behave the same at any loop rate.
  */
 public class Interpolator {
+	/**
+	 * How the position approaches the set point.
+	 */
+	public enum Mode {
+		/**
+		 * Explicit integration toward a trailing point, which only catches up to the set point once the position is within {@code 0.1 * scale} of it.
+		 * Overshoots and goes unstable when {@code scale * deltaTime > 1}.
+		 */
+		Linear,
+		/**
+		 * Exact exponential decay toward the set point: each update closes {@code 1 - exp(-scale * deltaTime)} of the remaining distance.
+		 */
+		Exponential,
+		/**
+		 * A critically damped spring with natural frequency {@code scale}, which eases in and out of motion and never overshoots a fixed set point.
+		 */
+		CriticallyDamped
+	}
+
+	private final Mode mode;
 	private double scale;
 	private double setPoint;
 	private double trailingPoint;
 	private double position;
+	private double velocity;
+	private final ITimeSource timeSource;
+	private double previousTimeStamp;
+	// Loops usually run at a fixed period, so the decay of the last timestep is reused rather than recomputed.
+	private double cachedDeltaTime = Double.NaN;
+	private double cachedDecay;
 
     /**
-     * Constructs an Interpolator with the specified scale.
+     * Constructs a linear Interpolator with the specified scale, updated with caller-supplied elapsed times.
      * @param scale The scaling factor for the interpolation.
      */
 	public Interpolator(double scale) {
+		this(scale, Mode.Linear, null);
+	}
+
+    /**
+     * Constructs a linear Interpolator with the specified scale that measures its own elapsed time with {@link Interpolator#update()}.
+     * @param scale The scaling factor for the interpolation.
+     * @param timeSource The clock to measure elapsed time on.
+     */
+	public Interpolator(double scale, ITimeSource timeSource) {
+		this(scale, Mode.Linear, timeSource);
+	}
+
+    /**
+     * Constructs an Interpolator with the specified scale and mode, updated with caller-supplied elapsed times.
+     * @param scale The scaling factor for the interpolation: the decay rate or natural frequency, in 1/seconds, for the closed-form modes.
+     * @param mode How the position approaches the set point.
+     */
+	public Interpolator(double scale, Mode mode) {
+		this(scale, mode, null);
+	}
+
+    /**
+     * Constructs an Interpolator with the specified scale and mode.
+     * @param scale The scaling factor for the interpolation: the decay rate or natural frequency, in 1/seconds, for the closed-form modes.
+     * @param mode How the position approaches the set point.
+     * @param timeSource The clock to measure elapsed time on with {@link Interpolator#update()}, or null to pass elapsed times to {@link Interpolator#update(double)}.
+     */
+	public Interpolator(double scale, Mode mode, ITimeSource timeSource) {
+		this.mode = mode;
 		this.scale = scale;
 		this.setPoint = 0.0d;
 		this.trailingPoint = 0.0d;
 		this.position = 0.0d;
+		this.velocity = 0.0d;
+		this.timeSource = timeSource;
+		this.previousTimeStamp = timeSource != null ? timeSource.getTimestampSeconds() : 0.0d;
 	}
 
     /**
@@ -28,6 +90,17 @@ public class Interpolator {
 		setPoint = value;
 	}
 
+    /**
+     * Moves the position straight to a value and stops it there, e.g. to start from a mechanism's measured position.
+     * @param value The new position, which also becomes the set point.
+     */
+	public void reset(double value) {
+		setPoint = value;
+		trailingPoint = value;
+		position = value;
+		velocity = 0.0d;
+	}
+
     /**
      * Gets the current position obtained through interpolation.
      * @return The current position.
@@ -36,18 +109,86 @@ public class Interpolator {
 		return position;
 	}
 
+    /**
+     * Gets the rate the position is changing at as of the last update. Use it as a velocity feedforward.
+     * @return The velocity, in units per second.
+     */
+	public double getVelocity() {
+		return velocity;
+	}
+
+    /**
+     * Gets how the position approaches the set point.
+     * @return The mode.
+     */
+	public Mode getMode() {
+		return mode;
+	}
+
+    /**
+     * Updates the interpolation by the time elapsed on its clock since the last update.
+     * @return The updated position after interpolation.
+     */
+	public double update() {
+		if (timeSource == null) {
+			throw new IllegalStateException("Interpolator has no time source; pass the elapsed time to update(double)");
+		}
+
+		double timeStamp = timeSource.getTimestampSeconds();
+		double deltaTimeSeconds = timeStamp - previousTimeStamp;
+		previousTimeStamp = timeStamp;
+		return update(deltaTimeSeconds);
+	}
+
     /**
      * Updates the interpolation based on the elapsed time.
      * @param deltaTimeSeconds The time elapsed in seconds since the last update.
      * @return The updated position after interpolation.
      */
 	public double update(double deltaTimeSeconds) {
-		position += scale * (trailingPoint - position) * deltaTimeSeconds;
-		boolean withinDeadband = Math.abs(trailingPoint - position) <= 0.1 * scale;
-		if (withinDeadband) {
-			trailingPoint = setPoint;
+		// Linear mode keeps its original behaviour for any timestep, including catching the trailing point up on a zero one.
+		if (mode != Mode.Linear && !(deltaTimeSeconds > 0.0)) {
+			return position;
+		}
+
+		switch (mode) {
+			case Exponential: {
+				double decay = decay(deltaTimeSeconds);
+				position = setPoint + (position - setPoint) * decay;
+				velocity = scale * (setPoint - position);
+				break;
+			}
+			case CriticallyDamped: {
+				// x(t) = (x0 + (v0 + w x0) t) e^(-w t), with x measured from the set point.
+				double decay = decay(deltaTimeSeconds);
+				double offset = position - setPoint;
+				double impulse = velocity + scale * offset;
+				position = setPoint + (offset + impulse * deltaTimeSeconds) * decay;
+				velocity = (velocity - scale * impulse * deltaTimeSeconds) * decay;
+				break;
+			}
+			default: {
+				double previous = position;
+				position += scale * (trailingPoint - position) * deltaTimeSeconds;
+				boolean withinDeadband = Math.abs(trailingPoint - position) <= 0.1 * scale;
+				if (withinDeadband) {
+					trailingPoint = setPoint;
+				}
+				if (deltaTimeSeconds != 0.0) {
+					velocity = (position - previous) / deltaTimeSeconds;
+				}
+				break;
+			}
 		}
 
 		return position;
 	}
-}
\ No newline at end of file
+
+	private double decay(double deltaTimeSeconds) {
+		if (deltaTimeSeconds != cachedDeltaTime) {
+			cachedDeltaTime = deltaTimeSeconds;
+			cachedDecay = Math.exp(-scale * deltaTimeSeconds);
+		}
+		return cachedDecay;
+	}
+}
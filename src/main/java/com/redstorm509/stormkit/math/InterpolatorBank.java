@@ -0,0 +1,319 @@
+package com.redstorm509.stormkit.math;
+
+import java.util.Arrays;
+
+/**
+ * Runs many {@link Interpolator}s of the same mode that are updated together, e.g. joystick smoothing, LED fades or setpoint blending.
+ * Channel state is kept in struct-of-arrays storage and every channel is stepped in one straight-line loop over primitive arrays, which the JIT can
+ * vectorize, instead of one call per interpolator. The closed-form modes' decay is only recomputed when the timestep changes, so a fixed-period loop is
+ * nothing but multiplies and adds.
+ * Each channel's output matches an {@link Interpolator} with the same scale, mode and inputs until it settles, when it is snapped exactly onto its set point.
+ *
+ * <p>
+ * The bank tracks which channels are still settling, so consumers can skip work on idle ones with {@link InterpolatorBank#nextSettling(int)}, and an update
+ * with no channel settling returns immediately.
+ */
+public class InterpolatorBank {
+	private final int size;
+	private final Interpolator.Mode mode;
+
+	private final double[] scales;
+	private final double[] setPoints;
+	private final double[] trailingPoints;
+	private final double[] positions;
+	private final double[] velocities;
+	// exp(-scale * deltaTime) per channel, for the last timestep.
+	private final double[] decays;
+	private double cachedDeltaTime = Double.NaN;
+
+	private final boolean[] settling;
+	private int settlingCount = 0;
+	private double tolerance = 1e-4;
+
+	/**
+	 * Allocates an InterpolatorBank of channels resting at 0.
+	 *
+	 * @param size The number of channels in the bank.
+	 * @param scale The initial scale of every channel. See {@link Interpolator#Interpolator(double, Interpolator.Mode)}.
+	 * @param mode How every channel approaches its set point.
+	 */
+	public InterpolatorBank(int size, double scale, Interpolator.Mode mode) {
+		if (size < 1) {
+			throw new IllegalArgumentException("An InterpolatorBank must have at least one channel, " + size + " given");
+		}
+
+		this.size = size;
+		this.mode = mode;
+		this.scales = new double[size];
+		this.setPoints = new double[size];
+		this.trailingPoints = new double[size];
+		this.positions = new double[size];
+		this.velocities = new double[size];
+		this.decays = new double[size];
+		this.settling = new boolean[size];
+		Arrays.fill(scales, scale);
+	}
+
+	/**
+	 * Gets the number of channels in the bank.
+	 *
+	 * @return The number of channels.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets how every channel approaches its set point.
+	 *
+	 * @return The mode.
+	 */
+	public Interpolator.Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Sets the scale of a channel.
+	 *
+	 * @param index The index of the channel.
+	 * @param scale The scaling factor for the interpolation.
+	 */
+	public void setScale(int index, double scale) {
+		scales[index] = scale;
+		cachedDeltaTime = Double.NaN;
+	}
+
+	/**
+	 * Gets the scale of a channel.
+	 *
+	 * @param index The index of the channel.
+	 * @return The scaling factor for the interpolation.
+	 */
+	public double getScale(int index) {
+		return scales[index];
+	}
+
+	/**
+	 * Sets the distance from its set point, and the velocity times its scale, within which a channel is considered settled. Defaults to 1e-4.
+	 *
+	 * @param tolerance The tolerance. Must be non-negative.
+	 */
+	public void setTolerance(double tolerance) {
+		if (tolerance < 0.0) {
+			throw new IllegalArgumentException("Tolerance must be a non-negative number!");
+		}
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Gets the tolerance within which a channel is considered settled.
+	 *
+	 * @return The tolerance.
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * Sets the set point of a channel.
+	 *
+	 * @param index The index of the channel.
+	 * @param value The new set point value.
+	 */
+	public void setPoint(int index, double value) {
+		setPoints[index] = value;
+		if (value != positions[index]) {
+			markSettling(index);
+		}
+	}
+
+	/**
+	 * Sets the set point of every channel.
+	 *
+	 * @param values The new set point of each channel, at least as long as the bank.
+	 */
+	public void setPoints(double[] values) {
+		for (int i = 0; i < size; i++) {
+			setPoint(i, values[i]);
+		}
+	}
+
+	/**
+	 * Gets the set point of a channel.
+	 *
+	 * @param index The index of the channel.
+	 * @return The set point.
+	 */
+	public double getSetPoint(int index) {
+		return setPoints[index];
+	}
+
+	/**
+	 * Moves a channel straight to a value and stops it there. See {@link Interpolator#reset(double)}.
+	 *
+	 * @param index The index of the channel.
+	 * @param value The new position, which also becomes the set point.
+	 */
+	public void reset(int index, double value) {
+		setPoints[index] = value;
+		trailingPoints[index] = value;
+		positions[index] = value;
+		velocities[index] = 0.0;
+		if (settling[index]) {
+			settling[index] = false;
+			settlingCount--;
+		}
+	}
+
+	/**
+	 * Gets the position of a channel.
+	 *
+	 * @param index The index of the channel.
+	 * @return The current position.
+	 */
+	public double getPosition(int index) {
+		return positions[index];
+	}
+
+	/**
+	 * Copies the position of every channel.
+	 *
+	 * @param positions The array to copy into, at least as long as the bank.
+	 */
+	public void getPositions(double[] positions) {
+		System.arraycopy(this.positions, 0, positions, 0, size);
+	}
+
+	/**
+	 * Gets the velocity of a channel as of the last update.
+	 *
+	 * @param index The index of the channel.
+	 * @return The velocity, in units per second.
+	 */
+	public double getVelocity(int index) {
+		return velocities[index];
+	}
+
+	/**
+	 * Returns whether a channel is still moving toward its set point.
+	 *
+	 * @param index The index of the channel.
+	 * @return Whether the channel is settling.
+	 */
+	public boolean isSettling(int index) {
+		return settling[index];
+	}
+
+	/**
+	 * Gets the number of channels still moving toward their set points.
+	 *
+	 * @return The number of settling channels.
+	 */
+	public int getSettlingCount() {
+		return settlingCount;
+	}
+
+	/**
+	 * Finds the next channel that is still settling, for iterating over only the channels that changed:
+	 * {@code for (int i = bank.nextSettling(0); i >= 0; i = bank.nextSettling(i + 1))}.
+	 *
+	 * @param fromIndex The index to start searching at, inclusive.
+	 * @return The index of the next settling channel, or -1 if there isn't one.
+	 */
+	public int nextSettling(int fromIndex) {
+		if (settlingCount == 0) {
+			return -1;
+		}
+		for (int i = Math.max(0, fromIndex); i < size; i++) {
+			if (settling[i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Steps every channel by the elapsed time.
+	 *
+	 * @param deltaTimeSeconds The time elapsed in seconds since the last update.
+	 */
+	public void update(double deltaTimeSeconds) {
+		if (settlingCount == 0 || !(deltaTimeSeconds > 0.0)) {
+			return;
+		}
+
+		switch (mode) {
+			case Exponential:
+				updateDecays(deltaTimeSeconds);
+				stepExponential();
+				break;
+			case CriticallyDamped:
+				updateDecays(deltaTimeSeconds);
+				stepCriticallyDamped(deltaTimeSeconds);
+				break;
+			default:
+				stepLinear(deltaTimeSeconds);
+				break;
+		}
+		updateSettling();
+	}
+
+	private void updateDecays(double deltaTimeSeconds) {
+		if (deltaTimeSeconds == cachedDeltaTime) {
+			return;
+		}
+		cachedDeltaTime = deltaTimeSeconds;
+		for (int i = 0; i < size; i++) {
+			decays[i] = Math.exp(-scales[i] * deltaTimeSeconds);
+		}
+	}
+
+	// The step loops are kept free of branches and calls so they vectorize; settled channels are stepped too, since they are already at rest.
+
+	private void stepExponential() {
+		for (int i = 0; i < size; i++) {
+			double position = setPoints[i] + (positions[i] - setPoints[i]) * decays[i];
+			positions[i] = position;
+			velocities[i] = scales[i] * (setPoints[i] - position);
+		}
+	}
+
+	private void stepCriticallyDamped(double deltaTimeSeconds) {
+		for (int i = 0; i < size; i++) {
+			// x(t) = (x0 + (v0 + w x0) t) e^(-w t), with x measured from the set point.
+			double offset = positions[i] - setPoints[i];
+			double impulse = velocities[i] + scales[i] * offset;
+			positions[i] = setPoints[i] + (offset + impulse * deltaTimeSeconds) * decays[i];
+			velocities[i] = (velocities[i] - scales[i] * impulse * deltaTimeSeconds) * decays[i];
+		}
+	}
+
+	private void stepLinear(double deltaTimeSeconds) {
+		for (int i = 0; i < size; i++) {
+			double previous = positions[i];
+			double position = previous + scales[i] * (trailingPoints[i] - previous) * deltaTimeSeconds;
+			positions[i] = position;
+			trailingPoints[i] = Math.abs(trailingPoints[i] - position) <= 0.1 * scales[i] ? setPoints[i] : trailingPoints[i];
+			velocities[i] = (position - previous) / deltaTimeSeconds;
+		}
+	}
+
+	private void updateSettling() {
+		for (int i = 0; i < size; i++) {
+			if (settling[i] && Math.abs(setPoints[i] - positions[i]) <= tolerance && Math.abs(velocities[i]) <= tolerance * scales[i]) {
+				positions[i] = setPoints[i];
+				trailingPoints[i] = setPoints[i];
+				velocities[i] = 0.0;
+				settling[i] = false;
+				settlingCount--;
+			}
+		}
+	}
+
+	private void markSettling(int index) {
+		if (!settling[index]) {
+			settling[index] = true;
+			settlingCount++;
+		}
+	}
+}
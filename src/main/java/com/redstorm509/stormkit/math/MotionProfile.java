@@ -0,0 +1,321 @@
+package com.redstorm509.stormkit.math;
+
+import com.redstorm509.stormkit.PIDFController;
+
+/**
+ * A time-optimal motion profile from a starting position and velocity to a goal at rest, limited in velocity and acceleration (a trapezoidal profile) and
+ * optionally in jerk (an S-curve profile). The profile is planned once into at most seven segments of constant jerk, each with its own closed-form
+ * polynomial, so sampling it at any time only finds the segment and evaluates it. Planning and re-planning reuse the same preallocated segments and never
+ * allocate, so the goal can be changed every loop. Times are supplied by the caller, so a whole loop can sample against a single timestamp.
+ *
+ * <p>
+ * Feed the sampled position and velocity to a {@link PIDFController} with {@link MotionProfile#calculate(PIDFController, double, double)}: the position is
+ * the setpoint, and the velocity drives the controller's velocity feedforward.
+ */
+public class MotionProfile {
+	private static final int MAX_SEGMENTS = 7;
+	private static final int BISECTION_ITERATIONS = 60;
+
+	private final double maxVelocity;
+	private final double maxAcceleration;
+	private final double maxJerk;
+
+	// Each segment starts at a time relative to the start of the profile, in a state, and runs at a constant jerk.
+	private final double[] segmentStart = new double[MAX_SEGMENTS + 1];
+	private final double[] segmentPosition = new double[MAX_SEGMENTS];
+	private final double[] segmentVelocity = new double[MAX_SEGMENTS];
+	private final double[] segmentAcceleration = new double[MAX_SEGMENTS];
+	private final double[] segmentJerk = new double[MAX_SEGMENTS];
+	private int segmentCount = 0;
+	private int lastSegment = 0;
+
+	private double startTimeSeconds = 0.0;
+	private double goal = 0.0;
+	private double position = 0.0;
+	private double velocity = 0.0;
+	private double acceleration = 0.0;
+
+	// Scratch state while planning.
+	private double planPosition;
+	private double planVelocity;
+	private double planTime;
+
+	/**
+	 * Constructs a trapezoidal MotionProfile, resting at 0.
+	 *
+	 * @param maxVelocity The maximum velocity, in units per second.
+	 * @param maxAcceleration The maximum acceleration, in units per second squared.
+	 */
+	public MotionProfile(double maxVelocity, double maxAcceleration) {
+		this(maxVelocity, maxAcceleration, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Constructs an S-curve MotionProfile, resting at 0.
+	 *
+	 * @param maxVelocity The maximum velocity, in units per second.
+	 * @param maxAcceleration The maximum acceleration, in units per second squared.
+	 * @param maxJerk The maximum jerk, in units per second cubed. Infinite for a trapezoidal profile.
+	 */
+	public MotionProfile(double maxVelocity, double maxAcceleration, double maxJerk) {
+		if (!(maxVelocity > 0.0) || !(maxAcceleration > 0.0) || !(maxJerk > 0.0)) {
+			throw new IllegalArgumentException("Profile constraints must be positive numbers!");
+		}
+		this.maxVelocity = maxVelocity;
+		this.maxAcceleration = maxAcceleration;
+		this.maxJerk = maxJerk;
+	}
+
+	/**
+	 * Plans a profile from a state to a goal. The starting velocity is clamped to the maximum velocity. S-curve profiles start at zero acceleration.
+	 *
+	 * @param timestampSeconds The time the profile starts, in seconds.
+	 * @param startPosition The starting position.
+	 * @param startVelocity The starting velocity.
+	 * @param goal The position to come to rest at.
+	 */
+	public void plan(double timestampSeconds, double startPosition, double startVelocity, double goal) {
+		startTimeSeconds = timestampSeconds;
+		this.goal = goal;
+		segmentCount = 0;
+		lastSegment = 0;
+		planPosition = startPosition;
+		planVelocity = Math.max(-maxVelocity, Math.min(maxVelocity, startVelocity));
+		planTime = 0.0;
+
+		// Travel in the direction of the goal as it will be once the starting velocity has been brought to rest; if that overshoots, come back.
+		double stoppingDistance = rampDistance(planVelocity, 0.0);
+		double direction = Math.signum(goal - startPosition - stoppingDistance);
+		if (direction == 0.0) {
+			addRamp(0.0);
+			finishPlan();
+			return;
+		}
+
+		double distance = direction * (goal - startPosition);
+		double initial = direction * planVelocity;
+		double peak = maxVelocity;
+		if (rampDistance(initial, peak) + rampDistance(peak, 0.0) > distance) {
+			peak = solvePeak(initial, distance);
+		}
+		double cruiseTime = peak > 0.0 ? (distance - rampDistance(initial, peak) - rampDistance(peak, 0.0)) / peak : 0.0;
+
+		addRamp(direction * peak);
+		if (cruiseTime > 0.0) {
+			addSegment(cruiseTime, 0.0, 0.0);
+		}
+		addRamp(0.0);
+		finishPlan();
+	}
+
+	/**
+	 * Re-plans to a new goal from wherever the current profile is at a time. S-curve profiles restart from zero acceleration.
+	 *
+	 * @param timestampSeconds The time to re-plan at, in seconds.
+	 * @param goal The new position to come to rest at.
+	 */
+	public void replan(double timestampSeconds, double goal) {
+		sample(timestampSeconds);
+		plan(timestampSeconds, position, velocity, goal);
+	}
+
+	/**
+	 * Evaluates the profile at a time. Read the result with {@link MotionProfile#getPosition()}, {@link MotionProfile#getVelocity()} and
+	 * {@link MotionProfile#getAcceleration()}.
+	 *
+	 * @param timestampSeconds The time in seconds.
+	 */
+	public void sample(double timestampSeconds) {
+		double t = timestampSeconds - startTimeSeconds;
+		if (segmentCount == 0 || t >= segmentStart[segmentCount]) {
+			position = goal;
+			velocity = 0.0;
+			acceleration = 0.0;
+			return;
+		}
+		if (t < 0.0) {
+			t = 0.0;
+		}
+
+		// Samples usually move forward a little at a time, so start from the last segment.
+		int i = lastSegment;
+		if (t < segmentStart[i]) {
+			i = 0;
+		}
+		while (t >= segmentStart[i + 1]) {
+			i++;
+		}
+		lastSegment = i;
+
+		double dt = t - segmentStart[i];
+		double a = segmentAcceleration[i];
+		double j = segmentJerk[i];
+		position = segmentPosition[i] + dt * (segmentVelocity[i] + dt * (a / 2.0 + dt * j / 6.0));
+		velocity = segmentVelocity[i] + dt * (a + dt * j / 2.0);
+		acceleration = a + dt * j;
+	}
+
+	/**
+	 * Samples the profile and runs a controller on it: the sampled position becomes the setpoint and the sampled velocity the velocity feedforward.
+	 *
+	 * @param controller The controller.
+	 * @param measurement The current measurement of the process variable.
+	 * @param timestampSeconds The time in seconds.
+	 * @return The controller output.
+	 */
+	public double calculate(PIDFController controller, double measurement, double timestampSeconds) {
+		sample(timestampSeconds);
+		return controller.calculate(measurement, position, velocity);
+	}
+
+	/**
+	 * Returns whether the profile has reached its goal by a time.
+	 *
+	 * @param timestampSeconds The time in seconds.
+	 * @return Whether the profile is finished.
+	 */
+	public boolean isFinished(double timestampSeconds) {
+		return timestampSeconds - startTimeSeconds >= segmentStart[segmentCount];
+	}
+
+	/**
+	 * Gets the position at the last sampled time.
+	 *
+	 * @return The position.
+	 */
+	public double getPosition() {
+		return position;
+	}
+
+	/**
+	 * Gets the velocity at the last sampled time.
+	 *
+	 * @return The velocity, in units per second.
+	 */
+	public double getVelocity() {
+		return velocity;
+	}
+
+	/**
+	 * Gets the acceleration at the last sampled time.
+	 *
+	 * @return The acceleration, in units per second squared.
+	 */
+	public double getAcceleration() {
+		return acceleration;
+	}
+
+	/**
+	 * Gets the position the profile comes to rest at.
+	 *
+	 * @return The goal.
+	 */
+	public double getGoal() {
+		return goal;
+	}
+
+	/**
+	 * Gets the time the profile was planned to start at.
+	 *
+	 * @return The start time in seconds.
+	 */
+	public double getStartTimeSeconds() {
+		return startTimeSeconds;
+	}
+
+	/**
+	 * Gets how long the profile takes from its start to the goal.
+	 *
+	 * @return The duration in seconds.
+	 */
+	public double getDurationSeconds() {
+		return segmentStart[segmentCount];
+	}
+
+	/**
+	 * Finds the peak velocity of a profile too short to reach the maximum velocity. A trapezoidal profile has a closed form; an S-curve profile's distance
+	 * is piecewise in the peak, so it is found by bisection, which only runs when planning.
+	 */
+	private double solvePeak(double initial, double distance) {
+		if (maxJerk == Double.POSITIVE_INFINITY) {
+			return Math.sqrt(Math.max(0.0, maxAcceleration * distance + initial * initial / 2.0));
+		}
+
+		double low = Math.max(0.0, initial);
+		double high = maxVelocity;
+		for (int k = 0; k < BISECTION_ITERATIONS; k++) {
+			double middle = (low + high) / 2.0;
+			if (rampDistance(initial, middle) + rampDistance(middle, 0.0) > distance) {
+				high = middle;
+			} else {
+				low = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * The time to change velocity by an amount at zero acceleration on both ends.
+	 */
+	private double rampTime(double velocityChange) {
+		velocityChange = Math.abs(velocityChange);
+		double jerkTime = maxAcceleration / maxJerk;
+		if (velocityChange >= maxAcceleration * jerkTime) {
+			return jerkTime + velocityChange / maxAcceleration;
+		}
+		return 2.0 * Math.sqrt(velocityChange / maxJerk);
+	}
+
+	/**
+	 * The signed distance covered while changing velocity. The acceleration of a ramp is symmetric, so the average velocity is the midpoint.
+	 */
+	private double rampDistance(double from, double to) {
+		return (from + to) / 2.0 * rampTime(to - from);
+	}
+
+	/**
+	 * Adds the segments that change the planned velocity to a new velocity, at zero acceleration on both ends.
+	 */
+	private void addRamp(double to) {
+		double change = to - planVelocity;
+		if (change == 0.0) {
+			return;
+		}
+
+		double sign = Math.signum(change);
+		double magnitude = Math.abs(change);
+		double jerkTime = maxAcceleration / maxJerk;
+		if (magnitude >= maxAcceleration * jerkTime) {
+			addSegment(jerkTime, 0.0, sign * maxJerk);
+			addSegment(magnitude / maxAcceleration - jerkTime, sign * maxAcceleration, 0.0);
+			addSegment(jerkTime, sign * maxAcceleration, -sign * maxJerk);
+		} else {
+			double halfTime = Math.sqrt(magnitude / maxJerk);
+			addSegment(halfTime, 0.0, sign * maxJerk);
+			addSegment(halfTime, sign * maxJerk * halfTime, -sign * maxJerk);
+		}
+	}
+
+	private void addSegment(double duration, double acceleration, double jerk) {
+		if (!(duration > 0.0)) {
+			return;
+		}
+
+		int i = segmentCount++;
+		segmentStart[i] = planTime;
+		segmentPosition[i] = planPosition;
+		segmentVelocity[i] = planVelocity;
+		segmentAcceleration[i] = acceleration;
+		segmentJerk[i] = jerk;
+
+		planPosition += duration * (planVelocity + duration * (acceleration / 2.0 + duration * jerk / 6.0));
+		planVelocity += duration * (acceleration + duration * jerk / 2.0);
+		planTime += duration;
+	}
+
+	private void finishPlan() {
+		segmentStart[segmentCount] = planTime;
+		// Rounding leaves the last velocity a hair off zero; the profile holds the goal exactly once it ends.
+		planVelocity = 0.0;
+	}
+}
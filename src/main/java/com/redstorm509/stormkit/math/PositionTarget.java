@@ -1,11 +1,14 @@
 package com.redstorm509.stormkit.math;
 
+import com.redstorm509.stormkit.interfaces.ITimeSource;
+import com.redstorm509.stormkit.util.FPGATimeSource;
+
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.wpilibj.Timer;
 
 /**
  * Represents a moving setpoint for a position PID with constraints and rate limiting.
  * This class is perfect for implementing smoother approaches to a setpoint without having to tune a trapezoidal motion profile.
+ * For acceleration- and jerk-limited motion, use {@link MotionProfile} instead.
  */
 public class PositionTarget {
 	private double target = 0.0;
@@ -13,12 +16,22 @@ public class PositionTarget {
 	private double maxTargetPos = +Double.MAX_VALUE;
 	private double maxRate = 1.0;
 	private double previousTimeStamp = 0.0;
+	private ITimeSource timeSource;
 
     /**
      * Constructs a PositionTarget with default parameters.
      */
 	public PositionTarget() {
-		previousTimeStamp = Timer.getFPGATimestamp();
+		this(new FPGATimeSource());
+	}
+
+    /**
+     * Constructs a PositionTarget with default parameters that reads time from a given clock.
+     * @param timeSource The clock read by {@link PositionTarget#update(double)}, e.g. a {@link com.redstorm509.stormkit.util.VirtualTimeSource} in simulation.
+     */
+	public PositionTarget(ITimeSource timeSource) {
+		this.timeSource = timeSource;
+		previousTimeStamp = timeSource.getTimestampSeconds();
 	}
 
     /**
@@ -28,7 +41,18 @@ public class PositionTarget {
      * @param maxTargetPos The maximum allowed target position.
      */
 	public PositionTarget(double initialTarget, double minTargetPos, double maxTargetPos) {
-		previousTimeStamp = Timer.getFPGATimestamp();
+		this(initialTarget, minTargetPos, maxTargetPos, new FPGATimeSource());
+	}
+
+    /**
+     * Constructs a PositionTarget with an initial target and position constraints that reads time from a given clock.
+     * @param initialTarget The initial target position.
+     * @param minTargetPos The minimum allowed target position.
+     * @param maxTargetPos The maximum allowed target position.
+     * @param timeSource The clock read by {@link PositionTarget#update(double)}.
+     */
+	public PositionTarget(double initialTarget, double minTargetPos, double maxTargetPos, ITimeSource timeSource) {
+		this(timeSource);
 		this.minTargetPos = minTargetPos;
 		this.maxTargetPos = maxTargetPos;
 		setTarget(initialTarget);
@@ -42,7 +66,19 @@ public class PositionTarget {
      * @param maxRate The maximum rate of change for the target position.
      */
 	public PositionTarget(double initialTarget, double minTargetPos, double maxTargetPos, double maxRate) {
-		previousTimeStamp = Timer.getFPGATimestamp();
+		this(initialTarget, minTargetPos, maxTargetPos, maxRate, new FPGATimeSource());
+	}
+
+    /**
+     * Constructs a PositionTarget with an initial target, position constraints, and maximum rate that reads time from a given clock.
+     * @param initialTarget The initial target position.
+     * @param minTargetPos The minimum allowed target position.
+     * @param maxTargetPos The maximum allowed target position.
+     * @param maxRate The maximum rate of change for the target position.
+     * @param timeSource The clock read by {@link PositionTarget#update(double)}.
+     */
+	public PositionTarget(double initialTarget, double minTargetPos, double maxTargetPos, double maxRate, ITimeSource timeSource) {
+		this(timeSource);
 		this.minTargetPos = minTargetPos;
 		this.maxTargetPos = maxTargetPos;
 		this.maxRate = maxRate;
@@ -73,6 +109,16 @@ public class PositionTarget {
         this.maxRate = maxRate;
     }
 
+    /**
+     * Sets the clock read by {@link PositionTarget#update(double)}, e.g. a {@link com.redstorm509.stormkit.util.VirtualTimeSource} in simulation.
+     * The elapsed time restarts from the new clock.
+     * @param timeSource The clock.
+     */
+    public void setTimeSource(ITimeSource timeSource) {
+        this.timeSource = timeSource;
+        this.previousTimeStamp = timeSource.getTimestampSeconds();
+    }
+
     /**
      * Sets the target position, clamped within the specified constraints.
      * @param position The new target position.
@@ -89,11 +135,21 @@ public class PositionTarget {
      * @return The updated target position.
      */
 	public double update(double percentOfMaximumRate) {
+		return update(percentOfMaximumRate, timeSource.getTimestampSeconds());
+	}
+
+    /**
+     * Updates the target position at a given time, e.g. one timestamp sampled once per loop and shared by every mechanism.
+     * @param percentOfMaximumRate The percentage of the maximum rate of change [-1.0, 1.0].
+     * @param timeStamp The current time in seconds, on the same clock as previous updates.
+     * @return The updated target position.
+     */
+	public double update(double percentOfMaximumRate, double timeStamp) {
 		percentOfMaximumRate = MathUtil.clamp(percentOfMaximumRate, -1.0d, 1.0d);
 
-		double deltaTime = Timer.getFPGATimestamp() - previousTimeStamp;
+		double deltaTime = timeStamp - previousTimeStamp;
 		target += maxRate * percentOfMaximumRate * deltaTime;
-		previousTimeStamp = Timer.getFPGATimestamp();
+		previousTimeStamp = timeStamp;
 
 		target = MathUtil.clamp(target, minTargetPos, maxTargetPos);
 
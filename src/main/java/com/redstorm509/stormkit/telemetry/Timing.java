@@ -0,0 +1,76 @@
+package com.redstorm509.stormkit.telemetry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * Low-overhead timing instrumentation for code that runs inside the robot loop.
+ * StormKit measures its own hot paths (e.g. StatefulSubsystem periodic calls, IK solves, and sensor reads) with it, and robot code can add its own spans.
+ * Call {@link Timing#periodic()} from robotPeriodic to publish the p50, p99 and max duration of every span to NetworkTables under {@code StormKit/Timing}, at most once per publishing period.
+ *
+ * <p>Instrumentation is enabled by default. Launching the JVM with {@code -Dstormkit.timing=false} disables it; since {@link Timing#ENABLED} is a constant, the JIT then removes every timing call entirely.
+ */
+public final class Timing {
+	/** Whether timing instrumentation is enabled. */
+	public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("stormkit.timing"));
+
+	private static final HashMap<String, TimingSpan> spansByName = new HashMap<>();
+	private static final ArrayList<TimingSpan> spans = new ArrayList<>();
+	private static long publishPeriodNanos = 1_000_000_000L;
+	private static long lastPublishNanos = 0;
+	private static NetworkTable table;
+
+	private Timing() {
+	}
+
+	/**
+	 * Gets the span with the given name, creating it if it doesn't exist yet.
+	 * Look spans up once and keep them, rather than looking them up every loop.
+	 *
+	 * @param name The name of the span. Slashes create nested tables in NetworkTables.
+	 * @return The span.
+	 */
+	public static synchronized TimingSpan span(String name) {
+		TimingSpan span = spansByName.get(name);
+		if (span == null) {
+			span = new TimingSpan(name);
+			spansByName.put(name, span);
+			spans.add(span);
+		}
+		return span;
+	}
+
+	/**
+	 * Sets how often span statistics are published. Each published value covers the samples recorded since the previous publish.
+	 *
+	 * @param seconds The publishing period in seconds. Defaults to 1 second.
+	 */
+	public static synchronized void setPublishPeriod(double seconds) {
+		publishPeriodNanos = (long) (seconds * 1e9);
+	}
+
+	/**
+	 * Publishes span statistics if the publishing period has elapsed. Call this from the main robot loop.
+	 */
+	public static synchronized void periodic() {
+		if (!ENABLED) {
+			return;
+		}
+
+		long now = System.nanoTime();
+		if (now - lastPublishNanos < publishPeriodNanos) {
+			return;
+		}
+		lastPublishNanos = now;
+
+		if (table == null) {
+			table = NetworkTableInstance.getDefault().getTable("StormKit").getSubTable("Timing");
+		}
+		for (int i = 0; i < spans.size(); i++) {
+			spans.get(i).publish(table);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.redstorm509.stormkit.telemetry;
+
+import com.redstorm509.stormkit.util.LogHistogram;
+import com.redstorm509.stormkit.util.LongRingBuffer;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+
+/**
+ * A named section of code whose duration is measured each time it runs. Obtain one through {@link Timing#span(String)}, typically into a static final field, and wrap the code to measure:
+ *
+ * <pre>{@code
+ * long start = span.start();
+ * doWork();
+ * span.end(start);
+ * }</pre>
+ *
+ * Durations go into a histogram (for percentiles over the current publishing window) and a ring buffer of the most recent samples. Recording never allocates.
+ * A span should be recorded from one thread at a time, so code that runs on a thread per instance should give each instance its own span;
+ * {@link Timing#periodic()} reads it from the main thread, so published statistics may be off by a sample or two.
+ */
+public final class TimingSpan {
+	// One minute is far beyond anything that runs inside a robot loop.
+	private static final long HIGHEST_TRACKABLE_NANOS = 60_000_000_000L;
+	private static final int RECENT_CAPACITY = 64;
+
+	private final String name;
+	private final LogHistogram histogram = new LogHistogram(HIGHEST_TRACKABLE_NANOS);
+	private final LongRingBuffer recent = new LongRingBuffer(RECENT_CAPACITY);
+
+	private DoublePublisher p50Publisher;
+	private DoublePublisher p99Publisher;
+	private DoublePublisher maxPublisher;
+	private DoublePublisher countPublisher;
+
+	TimingSpan(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Gets the name of the span.
+	 *
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Marks the start of the span.
+	 *
+	 * @return The start time to pass to {@link TimingSpan#end(long)}.
+	 */
+	public long start() {
+		return Timing.ENABLED ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Marks the end of the span and records its duration.
+	 *
+	 * @param startNanos The value returned by the matching call to {@link TimingSpan#start()}.
+	 */
+	public void end(long startNanos) {
+		if (Timing.ENABLED) {
+			record(System.nanoTime() - startNanos);
+		}
+	}
+
+	/**
+	 * Records a duration measured elsewhere.
+	 *
+	 * @param durationNanos The duration in nanoseconds.
+	 */
+	public void record(long durationNanos) {
+		if (Timing.ENABLED) {
+			histogram.record(durationNanos);
+			recent.add(durationNanos);
+		}
+	}
+
+	/**
+	 * Gets the histogram of durations recorded in the current publishing window.
+	 *
+	 * @return The histogram, in nanoseconds.
+	 */
+	public LogHistogram getHistogram() {
+		return histogram;
+	}
+
+	/**
+	 * Gets the most recently recorded durations, regardless of publishing windows.
+	 *
+	 * @return The recent durations, in nanoseconds.
+	 */
+	public LongRingBuffer getRecent() {
+		return recent;
+	}
+
+	void publish(NetworkTable table) {
+		if (p50Publisher == null) {
+			NetworkTable spanTable = table.getSubTable(name);
+			p50Publisher = spanTable.getDoubleTopic("p50Ms").publish();
+			p99Publisher = spanTable.getDoubleTopic("p99Ms").publish();
+			maxPublisher = spanTable.getDoubleTopic("maxMs").publish();
+			countPublisher = spanTable.getDoubleTopic("count").publish();
+		}
+
+		p50Publisher.set(histogram.getValueAtPercentile(50.0) * 1e-6);
+		p99Publisher.set(histogram.getValueAtPercentile(99.0) * 1e-6);
+		maxPublisher.set(histogram.getMax() * 1e-6);
+		countPublisher.set(histogram.getTotalCount());
+		histogram.reset();
+	}
+}
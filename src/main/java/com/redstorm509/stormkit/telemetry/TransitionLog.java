@@ -0,0 +1,330 @@
+package com.redstorm509.stormkit.telemetry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * A compact binary log of state transitions, appended to from the robot loop and written to disk on a background thread. Each transition is a fixed-size
+ * record of its time, the subsystem, and the ordinals of the states it left and entered. Records go into a preallocated buffer that a writer thread swaps
+ * out and writes whenever it is half full, and at least every 100 ms; if the disk falls so far behind that the buffer fills, records are dropped and counted
+ * rather than blocking the loop. Install a log for every {@link com.redstorm509.stormkit.command.StatefulSubsystem} with
+ * {@link com.redstorm509.stormkit.command.StatefulSubsystem#setTransitionLog(TransitionLog)}, and read it back with {@link TransitionLog#read(Path)}.
+ *
+ * <p>
+ * Running this class prints a log as CSV: {@code java com.redstorm509.stormkit.telemetry.TransitionLog transitions.sktl}.
+ */
+public final class TransitionLog implements AutoCloseable {
+	/**
+	 * A transition read back from a log.
+	 */
+	public static final class Entry {
+		/** The time of the transition in seconds since the log was opened. */
+		public final double timestampSeconds;
+		/** The name of the subsystem that made the transition. */
+		public final String subsystem;
+		/** The ordinal of the state left. */
+		public final int fromOrdinal;
+		/** The ordinal of the state entered. */
+		public final int toOrdinal;
+
+		public Entry(double timestampSeconds, String subsystem, int fromOrdinal, int toOrdinal) {
+			this.timestampSeconds = timestampSeconds;
+			this.subsystem = subsystem;
+			this.fromOrdinal = fromOrdinal;
+			this.toOrdinal = toOrdinal;
+		}
+	}
+
+	// "SKTL"
+	private static final int MAGIC = 0x534B544C;
+	private static final short VERSION = 1;
+	private static final int HEADER_LENGTH = 4 + 2 + 8;
+	private static final byte TRANSITION_RECORD = 'T';
+	private static final byte SUBSYSTEM_RECORD = 'S';
+	// Type, time in microseconds, subsystem id, from ordinal, to ordinal.
+	private static final int TRANSITION_LENGTH = 1 + 8 + 2 + 2 + 2;
+	private static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+	private static final long FLUSH_PERIOD_MILLIS = 100;
+
+	private final FileChannel channel;
+	private final long startNanos;
+	private final int flushThreshold;
+	private final Thread writer;
+	// Guarded by this. The writer thread owns the other buffer between swaps.
+	private ByteBuffer active;
+	private boolean open = true;
+	private long droppedCount = 0;
+	private short nextSubsystemId = 0;
+	// Subsystem records that didn't fit in the buffer when registered, written by the writer thread on its next flush.
+	private ArrayList<ByteBuffer> pendingSubsystems = new ArrayList<>();
+
+	/**
+	 * Opens a TransitionLog with a 64 KiB buffer, enough for about 4000 transitions between writes. See {@link TransitionLog#TransitionLog(Path, int)}.
+	 *
+	 * @param path The file to write. An existing file is replaced.
+	 * @throws IOException If the file can't be created.
+	 */
+	public TransitionLog(Path path) throws IOException {
+		this(path, DEFAULT_BUFFER_BYTES);
+	}
+
+	/**
+	 * Opens a TransitionLog.
+	 *
+	 * @param path The file to write. An existing file is replaced.
+	 * @param bufferBytes The size of each of the two buffers records are written through.
+	 * @throws IOException If the file can't be created.
+	 */
+	public TransitionLog(Path path, int bufferBytes) throws IOException {
+		if (bufferBytes < TRANSITION_LENGTH) {
+			throw new IllegalArgumentException("Buffer must hold at least one record, " + bufferBytes + " bytes given");
+		}
+
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		startNanos = System.nanoTime();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(MAGIC).putShort(VERSION).putLong(RobotController.getFPGATime());
+		header.flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+
+		flushThreshold = bufferBytes / 2;
+		active = ByteBuffer.allocateDirect(bufferBytes);
+		ByteBuffer spare = ByteBuffer.allocateDirect(bufferBytes);
+		writer = new Thread(() -> writeLoop(spare), "TransitionLog");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Assigns an id to a subsystem and records its name. Call this once per subsystem, not per transition. If the buffer is full, the name is held and
+	 * written with the next flush instead, so it is never lost while the log is open.
+	 *
+	 * @param name The name of the subsystem.
+	 * @return The id to pass to {@link TransitionLog#append(short, int, int)}.
+	 */
+	public synchronized short register(String name) {
+		short id = nextSubsystemId++;
+		if (!open) {
+			droppedCount++;
+			return id;
+		}
+
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer record = active.remaining() >= 1 + 2 + 2 + bytes.length ? active : ByteBuffer.allocate(1 + 2 + 2 + bytes.length);
+		record.put(SUBSYSTEM_RECORD).putShort(id).putShort((short) bytes.length).put(bytes);
+		if (record != active) {
+			pendingSubsystems.add(record.flip());
+			notifyAll();
+		}
+		return id;
+	}
+
+	/**
+	 * Records a transition, timestamped now. This never blocks on the disk and never allocates.
+	 *
+	 * @param subsystemId The id returned by {@link TransitionLog#register(String)}.
+	 * @param fromOrdinal The ordinal of the state left.
+	 * @param toOrdinal The ordinal of the state entered.
+	 */
+	public synchronized void append(short subsystemId, int fromOrdinal, int toOrdinal) {
+		if (!open || active.remaining() < TRANSITION_LENGTH) {
+			droppedCount++;
+			return;
+		}
+
+		active.put(TRANSITION_RECORD)
+				.putLong((System.nanoTime() - startNanos) / 1000)
+				.putShort(subsystemId)
+				.putShort((short) fromOrdinal)
+				.putShort((short) toOrdinal);
+		if (active.position() >= flushThreshold) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Gets the number of records dropped because the buffer was full or the log was closed.
+	 *
+	 * @return The number of dropped records.
+	 */
+	public synchronized long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * Writes everything recorded so far and closes the file.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (!open) {
+				return;
+			}
+			open = false;
+			notifyAll();
+		}
+
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeLoop(ByteBuffer buffer) {
+		try {
+			boolean running = true;
+			while (running) {
+				ArrayList<ByteBuffer> subsystems = null;
+				synchronized (this) {
+					if (open && active.position() < flushThreshold && pendingSubsystems.isEmpty()) {
+						wait(FLUSH_PERIOD_MILLIS);
+					}
+					running = open;
+					ByteBuffer full = active;
+					active = buffer;
+					buffer = full;
+					if (!pendingSubsystems.isEmpty()) {
+						subsystems = pendingSubsystems;
+						pendingSubsystems = new ArrayList<>();
+					}
+				}
+
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				buffer.clear();
+				if (subsystems != null) {
+					// These may land after transitions that refer to them, which read() allows for.
+					for (ByteBuffer record : subsystems) {
+						while (record.hasRemaining()) {
+							channel.write(record);
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			DriverStation.reportError("[TransitionLog] Failed to write the log: " + e.getMessage(), false);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				DriverStation.reportError("[TransitionLog] Failed to close the log: " + e.getMessage(), false);
+			}
+		}
+	}
+
+	/**
+	 * Reads every transition from a log.
+	 *
+	 * @param path The log file.
+	 * @return The transitions in the order they were recorded.
+	 * @throws IOException If the file can't be read or isn't a transition log.
+	 */
+	public static List<Entry> read(Path path) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+		if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+			throw new IOException(path + " is not a transition log");
+		}
+		short version = buffer.getShort();
+		if (version != VERSION) {
+			throw new IOException("Unsupported transition log version " + version);
+		}
+		buffer.getLong();
+
+		// A subsystem's name can be written after its first transitions if the buffer was full when it registered, so names are resolved at the end.
+		HashMap<Short, String> names = new HashMap<>();
+		ArrayList<Entry> unnamed = new ArrayList<>();
+		ArrayList<Short> ids = new ArrayList<>();
+		while (buffer.hasRemaining()) {
+			byte type = buffer.get();
+			if (type == SUBSYSTEM_RECORD && buffer.remaining() >= 4) {
+				short id = buffer.getShort();
+				int length = buffer.getShort() & 0xffff;
+				if (buffer.remaining() < length) {
+					break;
+				}
+				byte[] bytes = new byte[length];
+				buffer.get(bytes);
+				names.put(id, new String(bytes, StandardCharsets.UTF_8));
+			} else if (type == TRANSITION_RECORD && buffer.remaining() >= TRANSITION_LENGTH - 1) {
+				double timestampSeconds = buffer.getLong() * 1e-6;
+				short id = buffer.getShort();
+				int from = buffer.getShort();
+				int to = buffer.getShort();
+				unnamed.add(new Entry(timestampSeconds, null, from, to));
+				ids.add(id);
+			} else {
+				// A record cut off by the robot losing power.
+				break;
+			}
+		}
+
+		ArrayList<Entry> entries = new ArrayList<>(unnamed.size());
+		for (int i = 0; i < unnamed.size(); i++) {
+			Entry entry = unnamed.get(i);
+			short id = ids.get(i);
+			entries.add(new Entry(entry.timestampSeconds, names.getOrDefault(id, "#" + id), entry.fromOrdinal, entry.toOrdinal));
+		}
+		return entries;
+	}
+
+	/**
+	 * Gets the FPGA time at which a log was opened, for lining it up with other logs.
+	 *
+	 * @param path The log file.
+	 * @return The FPGA timestamp in seconds.
+	 * @throws IOException If the file can't be read or isn't a transition log.
+	 */
+	public static double readStartTimestamp(Path path) throws IOException {
+		try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			while (header.hasRemaining()) {
+				if (file.read(header) < 0) {
+					break;
+				}
+			}
+			header.flip();
+			if (header.remaining() < HEADER_LENGTH || header.getInt() != MAGIC) {
+				throw new IOException(path + " is not a transition log");
+			}
+			header.getShort();
+			return header.getLong() * 1e-6;
+		}
+	}
+
+	/**
+	 * Prints a log as CSV.
+	 *
+	 * @param args The path of the log.
+	 * @throws IOException If the log can't be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: TransitionLog <log file>");
+			return;
+		}
+
+		System.out.println("timestamp,subsystem,from,to");
+		for (Entry entry : read(Paths.get(args[0]))) {
+			System.out.println(entry.timestampSeconds + "," + entry.subsystem + "," + entry.fromOrdinal + "," + entry.toOrdinal);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.redstorm509.stormkit.util;
+
+/**
+ * A fixed-capacity ring buffer of doubles. Once full, each new value overwrites the oldest one. Nothing is allocated after construction.
+ */
+public class DoubleRingBuffer {
+	private final double[] values;
+	private int head = 0;
+	private int size = 0;
+
+	/**
+	 * Constructs a DoubleRingBuffer.
+	 *
+	 * @param capacity The maximum number of values held.
+	 */
+	public DoubleRingBuffer(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1, " + capacity + " given");
+		}
+		this.values = new double[capacity];
+	}
+
+	/**
+	 * Adds a value, overwriting the oldest value if the buffer is full.
+	 *
+	 * @param value The value to add.
+	 */
+	public void add(double value) {
+		values[head] = value;
+		int next = head + 1;
+		head = next == values.length ? 0 : next;
+		if (size < values.length) {
+			size++;
+		}
+	}
+
+	/**
+	 * Gets a value by age.
+	 *
+	 * @param index The index of the value, where 0 is the oldest value held and {@code size() - 1} is the newest.
+	 * @return The value.
+	 */
+	public double get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		}
+		int i = head - size + index;
+		return values[i < 0 ? i + values.length : i];
+	}
+
+	/**
+	 * Gets the most recently added value.
+	 *
+	 * @return The newest value.
+	 */
+	public double getLast() {
+		return get(size - 1);
+	}
+
+	/**
+	 * Gets the number of values held.
+	 *
+	 * @return The number of values.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the maximum number of values held.
+	 *
+	 * @return The capacity.
+	 */
+	public int capacity() {
+		return values.length;
+	}
+
+	/**
+	 * Removes every value.
+	 */
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+}
@@ -0,0 +1,20 @@
+package com.redstorm509.stormkit.util;
+
+import com.redstorm509.stormkit.interfaces.ITimeSource;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * The default time source, which reads the FPGA clock through {@link Timer}.
+ */
+public class FPGATimeSource implements ITimeSource {
+	@Override
+	public double getTimestampSeconds() {
+		return Timer.getFPGATimestamp();
+	}
+
+	@Override
+	public void delay(double seconds) {
+		Timer.delay(seconds);
+	}
+}
@@ -0,0 +1,125 @@
+package com.redstorm509.stormkit.util;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative long values with logarithmically sized buckets, in the style of HdrHistogram.
+ * Each power of two is split into 32 linear sub-buckets, so any recorded value is known to within about 3% while the whole range up to the highest trackable value fits in roughly a thousand counters.
+ * Recording is O(1) and never allocates. Instances are not thread-safe; record from a single thread.
+ */
+public class LogHistogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private final long highestTrackableValue;
+	private final long[] counts;
+	private long totalCount = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = 0;
+
+	/**
+	 * Constructs a LogHistogram.
+	 *
+	 * @param highestTrackableValue The largest value tracked. Larger values are counted as this value.
+	 */
+	public LogHistogram(long highestTrackableValue) {
+		if (highestTrackableValue < 1) {
+			throw new IllegalArgumentException("Highest trackable value must be positive, " + highestTrackableValue + " given");
+		}
+		this.highestTrackableValue = highestTrackableValue;
+		this.counts = new long[indexOf(highestTrackableValue) + 1];
+	}
+
+	private static int indexOf(long value) {
+		int bucket = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+		return bucket * SUB_BUCKET_COUNT + (int) (value >>> bucket);
+	}
+
+	private static long highestValueAt(int index) {
+		int bucket = Math.max(0, index / SUB_BUCKET_COUNT - 1);
+		long subBucket = index - bucket * SUB_BUCKET_COUNT;
+		return ((subBucket + 1) << bucket) - 1;
+	}
+
+	/**
+	 * Records a value. Negative values are counted as zero.
+	 *
+	 * @param value The value to record.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		} else if (value > highestTrackableValue) {
+			value = highestTrackableValue;
+		}
+
+		counts[indexOf(value)]++;
+		totalCount++;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Gets the value below which the given percentage of recorded values fall.
+	 * The result is the upper bound of the bucket the percentile lands in, capped at the largest recorded value.
+	 *
+	 * @param percentile The percentile, in [0, 100].
+	 * @return The value at the percentile, or 0 if nothing has been recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+
+		long threshold = Math.max(1, (long) Math.ceil(totalCount * (percentile / 100.0)));
+		long count = 0;
+		for (int i = 0; i < counts.length; i++) {
+			count += counts[i];
+			if (count >= threshold) {
+				return Math.min(highestValueAt(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Gets the number of recorded values.
+	 *
+	 * @return The number of values.
+	 */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Gets the smallest recorded value.
+	 *
+	 * @return The minimum value, or 0 if nothing has been recorded.
+	 */
+	public long getMin() {
+		return totalCount == 0 ? 0 : min;
+	}
+
+	/**
+	 * Gets the largest recorded value.
+	 *
+	 * @return The maximum value, or 0 if nothing has been recorded.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Removes every recorded value.
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		totalCount = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+}
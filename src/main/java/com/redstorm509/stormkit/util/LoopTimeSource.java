@@ -0,0 +1,59 @@
+package com.redstorm509.stormkit.util;
+
+import com.redstorm509.stormkit.interfaces.ITimeSource;
+
+/**
+ * A time source that samples another once per loop, so everything that runs in the loop sees the same timestamp and the underlying clock is only read once.
+ * Call {@link LoopTimeSource#update()} at the start of each loop, e.g. from robotPeriodic.
+ */
+public class LoopTimeSource implements ITimeSource {
+	private final ITimeSource source;
+	private volatile double timestampSeconds;
+
+	/**
+	 * Constructs a LoopTimeSource that samples the FPGA clock.
+	 */
+	public LoopTimeSource() {
+		this(new FPGATimeSource());
+	}
+
+	/**
+	 * Constructs a LoopTimeSource.
+	 *
+	 * @param source The clock to sample.
+	 */
+	public LoopTimeSource(ITimeSource source) {
+		this.source = source;
+		this.timestampSeconds = source.getTimestampSeconds();
+	}
+
+	/**
+	 * Samples the underlying clock.
+	 *
+	 * @return The new timestamp in seconds.
+	 */
+	public double update() {
+		timestampSeconds = source.getTimestampSeconds();
+		return timestampSeconds;
+	}
+
+	/**
+	 * Gets the timestamp sampled by the last {@link LoopTimeSource#update()}.
+	 *
+	 * @return The time in seconds.
+	 */
+	@Override
+	public double getTimestampSeconds() {
+		return timestampSeconds;
+	}
+
+	/**
+	 * Waits on the underlying clock. The loop timestamp doesn't change until the next update.
+	 *
+	 * @param seconds How long to wait, in seconds.
+	 */
+	@Override
+	public void delay(double seconds) {
+		source.delay(seconds);
+	}
+}
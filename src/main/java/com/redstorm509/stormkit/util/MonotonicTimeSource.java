@@ -0,0 +1,24 @@
+package com.redstorm509.stormkit.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+import com.redstorm509.stormkit.interfaces.ITimeSource;
+
+/**
+ * A time source that reads {@link System#nanoTime()}, for running off the robot without the HAL, e.g. in benchmarks.
+ */
+public class MonotonicTimeSource implements ITimeSource {
+	@Override
+	public double getTimestampSeconds() {
+		return System.nanoTime() * 1e-9;
+	}
+
+	@Override
+	public void delay(double seconds) {
+		long deadline = System.nanoTime() + (long) (seconds * 1e9);
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+		}
+	}
+}
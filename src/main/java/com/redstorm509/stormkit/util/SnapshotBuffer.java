@@ -0,0 +1,67 @@
+package com.redstorm509.stormkit.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free buffer for handing fixed-size snapshots of doubles from one producer thread to one consumer thread.
+ * The producer fills the back buffer and publishes it; the consumer picks up the most recently published buffer whenever it likes.
+ * A third buffer sits between them, so neither side ever blocks or sees a partially written snapshot, and nothing is allocated after construction.
+ */
+public class SnapshotBuffer {
+	private static final int INDEX_MASK = 0b011;
+	private static final int FRESH = 0b100;
+
+	private final double[][] buffers;
+	// The index of the buffer between the producer and the consumer, plus whether it holds a snapshot the consumer hasn't seen.
+	private final AtomicInteger middle = new AtomicInteger(1);
+	private int back = 0;
+	private int front = 2;
+
+	/**
+	 * Constructs a SnapshotBuffer.
+	 *
+	 * @param length The number of doubles in each snapshot.
+	 */
+	public SnapshotBuffer(int length) {
+		this.buffers = new double[3][length];
+	}
+
+	/**
+	 * Gets the buffer the producer should fill next. Only call this from the producer thread.
+	 *
+	 * @return The back buffer.
+	 */
+	public double[] getWriteBuffer() {
+		return buffers[back];
+	}
+
+	/**
+	 * Publishes the back buffer to the consumer and gives the producer a new one to fill. Only call this from the producer thread.
+	 * The new back buffer holds stale data, so every element should be overwritten before the next publish.
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+	}
+
+	/**
+	 * Picks up the most recently published snapshot, if there is one the consumer hasn't seen yet. Only call this from the consumer thread.
+	 *
+	 * @return Whether a new snapshot was picked up.
+	 */
+	public boolean update() {
+		if ((middle.get() & FRESH) == 0) {
+			return false;
+		}
+		front = middle.getAndSet(front) & INDEX_MASK;
+		return true;
+	}
+
+	/**
+	 * Gets the snapshot picked up by the last call to {@link SnapshotBuffer#update()}. Only call this from the consumer thread.
+	 *
+	 * @return The front buffer.
+	 */
+	public double[] getReadBuffer() {
+		return buffers[front];
+	}
+}
@@ -0,0 +1,176 @@
+package com.redstorm509.stormkit.util;
+
+/**
+ * A fixed-capacity ring buffer of timestamped samples, stored as parallel primitive arrays. Once full, each new sample overwrites the oldest one.
+ * Samples must be added in time order, which keeps the buffer sorted so that looking up a time is a binary search. Nothing is allocated after construction.
+ */
+public class TimeSeriesBuffer {
+	private final double[] timestamps;
+	private final double[] values;
+	private int head = 0;
+	private int size = 0;
+
+	/**
+	 * Constructs a TimeSeriesBuffer.
+	 *
+	 * @param capacity The maximum number of samples held.
+	 */
+	public TimeSeriesBuffer(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1, " + capacity + " given");
+		}
+		this.timestamps = new double[capacity];
+		this.values = new double[capacity];
+	}
+
+	/**
+	 * Adds a sample, overwriting the oldest sample if the buffer is full.
+	 *
+	 * @param timestamp The time of the sample in seconds. Must not be earlier than the newest sample.
+	 * @param value The value of the sample.
+	 * @return Whether the sample was added. Samples older than the newest sample are dropped.
+	 */
+	public boolean add(double timestamp, double value) {
+		if (size > 0 && timestamp < getNewestTimestamp()) {
+			return false;
+		}
+
+		timestamps[head] = timestamp;
+		values[head] = value;
+		int next = head + 1;
+		head = next == values.length ? 0 : next;
+		if (size < values.length) {
+			size++;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the time of a sample by age.
+	 *
+	 * @param index The index of the sample, where 0 is the oldest sample held and {@code size() - 1} is the newest.
+	 * @return The timestamp in seconds.
+	 */
+	public double getTimestamp(int index) {
+		return timestamps[physicalIndex(index)];
+	}
+
+	/**
+	 * Gets the value of a sample by age.
+	 *
+	 * @param index The index of the sample, where 0 is the oldest sample held and {@code size() - 1} is the newest.
+	 * @return The value.
+	 */
+	public double getValue(int index) {
+		return values[physicalIndex(index)];
+	}
+
+	/**
+	 * Gets the time of the oldest sample held.
+	 *
+	 * @return The timestamp in seconds.
+	 */
+	public double getOldestTimestamp() {
+		return getTimestamp(0);
+	}
+
+	/**
+	 * Gets the time of the most recently added sample.
+	 *
+	 * @return The timestamp in seconds.
+	 */
+	public double getNewestTimestamp() {
+		return getTimestamp(size - 1);
+	}
+
+	/**
+	 * Gets the value of the most recently added sample.
+	 *
+	 * @return The newest value.
+	 */
+	public double getNewestValue() {
+		return getValue(size - 1);
+	}
+
+	/**
+	 * Finds the newest sample taken at or before a time.
+	 *
+	 * @param timestamp The time in seconds.
+	 * @return The index of the sample, or -1 if every sample is newer than the time (or the buffer is empty).
+	 */
+	public int indexAtOrBefore(double timestamp) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (getTimestamp(middle) <= timestamp) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * Gets the value at a time, linearly interpolated between the samples on either side of it. Times outside the buffer take the value of the nearest end.
+	 *
+	 * @param timestamp The time in seconds.
+	 * @return The interpolated value, or NaN if the buffer is empty.
+	 */
+	public double getValueAt(double timestamp) {
+		if (size == 0) {
+			return Double.NaN;
+		}
+
+		int before = indexAtOrBefore(timestamp);
+		if (before < 0) {
+			return getValue(0);
+		}
+		if (before == size - 1) {
+			return getValue(before);
+		}
+
+		double t0 = getTimestamp(before);
+		double t1 = getTimestamp(before + 1);
+		double v0 = getValue(before);
+		if (t1 == t0) {
+			return v0;
+		}
+		return v0 + (getValue(before + 1) - v0) * (timestamp - t0) / (t1 - t0);
+	}
+
+	/**
+	 * Gets the number of samples held.
+	 *
+	 * @return The number of samples.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the maximum number of samples held.
+	 *
+	 * @return The capacity.
+	 */
+	public int capacity() {
+		return values.length;
+	}
+
+	/**
+	 * Removes every sample.
+	 */
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	private int physicalIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		}
+		int i = head - size + index;
+		return i < 0 ? i + values.length : i;
+	}
+}
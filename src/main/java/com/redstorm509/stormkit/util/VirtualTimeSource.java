@@ -0,0 +1,57 @@
+package com.redstorm509.stormkit.util;
+
+import com.redstorm509.stormkit.interfaces.ITimeSource;
+
+/**
+ * A time source that only moves when told to, for stepping simulations deterministically and as fast as they can run. Delays advance the clock instead of
+ * waiting. It can be advanced from one thread while others read it.
+ */
+public class VirtualTimeSource implements ITimeSource {
+	private volatile double timestampSeconds;
+
+	/**
+	 * Constructs a VirtualTimeSource starting at 0.
+	 */
+	public VirtualTimeSource() {
+		this(0.0);
+	}
+
+	/**
+	 * Constructs a VirtualTimeSource.
+	 *
+	 * @param startSeconds The starting time in seconds.
+	 */
+	public VirtualTimeSource(double startSeconds) {
+		this.timestampSeconds = startSeconds;
+	}
+
+	@Override
+	public double getTimestampSeconds() {
+		return timestampSeconds;
+	}
+
+	@Override
+	public void delay(double seconds) {
+		advance(seconds);
+	}
+
+	/**
+	 * Moves the clock forward.
+	 *
+	 * @param seconds How far to move it, in seconds.
+	 */
+	public synchronized void advance(double seconds) {
+		if (seconds > 0.0) {
+			timestampSeconds += seconds;
+		}
+	}
+
+	/**
+	 * Sets the clock.
+	 *
+	 * @param timestampSeconds The new time in seconds.
+	 */
+	public synchronized void setTimestampSeconds(double timestampSeconds) {
+		this.timestampSeconds = timestampSeconds;
+	}
+}
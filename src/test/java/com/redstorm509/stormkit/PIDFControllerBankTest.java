@@ -0,0 +1,162 @@
+package com.redstorm509.stormkit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that each controller in a {@link PIDFControllerBank} produces exactly the output of a {@link PIDFController} configured the same way. The
+ * comparisons are exact, not within a tolerance.
+ */
+class PIDFControllerBankTest {
+	private static final int STEPS = 500;
+
+	@Test
+	void matchesController() {
+		PIDFController controller = new PIDFController(0.8, 0.3, 0.05, 0.1);
+		PIDFControllerBank bank = new PIDFControllerBank(3);
+		bank.setPIDF(1, 0.8, 0.3, 0.05, 0.1);
+
+		for (int k = 0; k < STEPS; k++) {
+			double setpoint = k < STEPS / 2 ? 1.0 : -0.5;
+			controller.setSetpoint(setpoint);
+			bank.setSetpoint(1, setpoint);
+			assertErrors(controller, bank, 1);
+			assertStep(controller, bank, 1, measurement(k));
+		}
+	}
+
+	@Test
+	void matchesControllerWhenTheSetpointMovesWithContinuousInput() {
+		PIDFController controller = new PIDFController(0.9, 0.0, 0.08, 0.0);
+		PIDFControllerBank bank = new PIDFControllerBank(1);
+		bank.setPIDF(0, 0.9, 0.0, 0.08, 0.0);
+		controller.enableContinuousInput(-Math.PI, Math.PI);
+		bank.enableContinuousInput(0, -Math.PI, Math.PI);
+
+		// Setting the setpoint recomputes the wrapped error against the last measurement, which feeds the next derivative.
+		for (int k = 0; k < STEPS; k++) {
+			if (k % 7 == 0) {
+				double setpoint = Math.IEEEremainder(0.9 * k, 2.0 * Math.PI);
+				controller.setSetpoint(setpoint);
+				bank.setSetpoint(0, setpoint);
+				assertErrors(controller, bank, 0);
+			}
+			if (k == 300) {
+				controller.reset();
+				bank.reset(0);
+				controller.setSetpoint(2.5);
+				bank.setSetpoint(0, 2.5);
+				assertErrors(controller, bank, 0);
+			}
+			assertStep(controller, bank, 0, Math.IEEEremainder(0.05 * k, 2.0 * Math.PI));
+		}
+	}
+
+	@Test
+	void matchesControllerWhileTheIntegratorIsClamped() {
+		PIDFController controller = new PIDFController(0.5, 4.0, 0.0, 0.0);
+		PIDFControllerBank bank = new PIDFControllerBank(2);
+		bank.setPIDF(0, 0.5, 4.0, 0.0, 0.0);
+		controller.setIntegratorRange(-0.2, 0.2);
+		bank.setIntegratorRange(0, -0.2, 0.2);
+		controller.setIZone(1.5);
+		bank.setIZone(0, 1.5);
+		controller.setSetpoint(1.0);
+		bank.setSetpoint(0, 1.0);
+
+		// A steady error winds the integrator into its limit; the later swings leave the IZone and reset it.
+		for (int k = 0; k < STEPS; k++) {
+			double measurement = k < STEPS / 2 ? 0.0 : 3.0 * measurement(k);
+			assertStep(controller, bank, 0, measurement);
+		}
+	}
+
+	@Test
+	void matchesControllerWithContinuousInput() {
+		PIDFController controller = new PIDFController(1.2, 0.1, 0.02, 0.0);
+		PIDFControllerBank bank = new PIDFControllerBank(2);
+		bank.setPIDF(1, 1.2, 0.1, 0.02, 0.0);
+		controller.enableContinuousInput(-Math.PI, Math.PI);
+		bank.enableContinuousInput(1, -Math.PI, Math.PI);
+		controller.setSetpoint(3.0);
+		bank.setSetpoint(1, 3.0);
+
+		// Measurements that wrap past +/-pi, so the shortest error crosses the seam.
+		for (int k = 0; k < STEPS; k++) {
+			double measurement = Math.IEEEremainder(0.05 * k, 2.0 * Math.PI);
+			assertStep(controller, bank, 1, measurement);
+		}
+
+		controller.disableContinuousInput();
+		bank.disableContinuousInput(1);
+		for (int k = 0; k < STEPS; k++) {
+			assertStep(controller, bank, 1, measurement(k));
+		}
+	}
+
+	@Test
+	void matchesControllerWhenGainsChange() {
+		PIDFController controller = new PIDFController(0.4, 0.2, 0.01, 0.05);
+		PIDFControllerBank bank = new PIDFControllerBank(1);
+		bank.setPIDF(0, 0.4, 0.2, 0.01, 0.05);
+		controller.setSetpoint(0.75);
+		bank.setSetpoint(0, 0.75);
+
+		for (int k = 0; k < STEPS; k++) {
+			if (k == 100) {
+				controller.setPIDF(1.5, 0.0, 0.1, 0.2);
+				bank.setPIDF(0, 1.5, 0.0, 0.1, 0.2);
+			} else if (k == 200) {
+				// Turning ki back on recomputes the integrator limits from the new gain.
+				controller.setPIDF(0.9, 2.0, 0.0, 0.0);
+				bank.setPIDF(0, 0.9, 2.0, 0.0, 0.0);
+				controller.setIntegratorRange(-0.5, 0.5);
+				bank.setIntegratorRange(0, -0.5, 0.5);
+			} else if (k == 300) {
+				controller.reset();
+				bank.reset(0);
+			}
+			assertStep(controller, bank, 0, measurement(k));
+		}
+	}
+
+	@Test
+	void arrayCalculateMatchesSingleCalculate() {
+		PIDFControllerBank single = new PIDFControllerBank(4);
+		PIDFControllerBank batched = new PIDFControllerBank(4);
+		double[] measurements = new double[4];
+		double[] outputs = new double[4];
+		for (int i = 0; i < 4; i++) {
+			single.setPIDF(i, 0.5 + 0.1 * i, 0.2, 0.03, 0.1);
+			batched.setPIDF(i, 0.5 + 0.1 * i, 0.2, 0.03, 0.1);
+			single.setSetpoint(i, i);
+			batched.setSetpoint(i, i);
+		}
+
+		for (int k = 0; k < STEPS; k++) {
+			for (int i = 0; i < 4; i++) {
+				measurements[i] = measurement(k + 17 * i);
+			}
+			batched.calculate(measurements, outputs);
+			for (int i = 0; i < 4; i++) {
+				assertEquals(single.calculate(i, measurements[i]), outputs[i]);
+			}
+		}
+	}
+
+	private static void assertStep(PIDFController controller, PIDFControllerBank bank, int index, double measurement) {
+		assertEquals(controller.calculate(measurement), bank.calculate(index, measurement));
+		assertEquals(controller.getAccumulatedError(), bank.getAccumulatedError(index));
+		assertErrors(controller, bank, index);
+	}
+
+	private static void assertErrors(PIDFController controller, PIDFControllerBank bank, int index) {
+		assertEquals(controller.getError(), bank.getError(index));
+		assertEquals(controller.getErrorDerivative(), bank.getErrorDerivative(index));
+	}
+
+	private static double measurement(int k) {
+		return 2.0 * Math.sin(0.37 * k) + 0.25 * Math.cos(1.9 * k);
+	}
+}
@@ -0,0 +1,97 @@
+package com.redstorm509.stormkit.drivers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.redstorm509.stormkit.drivers.simulation.SimulatedI2CTransport;
+import com.redstorm509.stormkit.drivers.simulation.VL53L4CDSim;
+import com.redstorm509.stormkit.util.VirtualTimeSource;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.I2C;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+
+/**
+ * Brings up several simulated sensors that share the default address, each with XSHUT wired to a simulated DIO.
+ */
+class VL53L4CDArrayTest {
+	private static final int PORT = I2C.Port.kMXP.value;
+	private static final int[] ENABLE_CHANNELS = { 10, 11, 12 };
+
+	private VirtualTimeSource clock;
+	private VL53L4CDSim[] sims;
+	private VL53L4CDArray array;
+
+	@BeforeAll
+	static void initializeHal() {
+		HAL.initialize(500, 0);
+	}
+
+	@BeforeEach
+	void setUp() {
+		clock = new VirtualTimeSource();
+		SimulatedI2CTransport transport = new SimulatedI2CTransport();
+		sims = new VL53L4CDSim[ENABLE_CHANNELS.length];
+		for (int i = 0; i < sims.length; i++) {
+			sims[i] = new VL53L4CDSim(clock);
+			DIOSim enable = new DIOSim(ENABLE_CHANNELS[i]);
+			sims[i].setEnableSource(enable::getValue);
+			transport.addDevice(sims[i]);
+		}
+		I2CBus.setTransport(PORT, transport);
+
+		array = new VL53L4CDArray(I2C.Port.kMXP, ENABLE_CHANNELS);
+		array.setTimeSource(clock);
+	}
+
+	@AfterEach
+	void tearDown() {
+		array.close();
+		I2CBus.setTransport(PORT, null);
+	}
+
+	@Test
+	void assignsEachSensorItsAddress() {
+		assertTrue(array.init());
+		for (int i = 0; i < sims.length; i++) {
+			assertTrue(array.isOnline(i));
+			assertEquals(0x30 + i, sims[i].getAddress());
+		}
+	}
+
+	@Test
+	void holdsSensorsThatFailToBootInReset() {
+		sims[1].setBootTime(5.0);
+		assertFalse(array.init());
+
+		assertTrue(array.isOnline(0));
+		assertFalse(array.isOnline(1));
+		assertTrue(array.isOnline(2));
+		assertEquals(0x30, sims[0].getAddress());
+		assertEquals(0x32, sims[2].getAddress());
+		assertFalse(new DIOSim(ENABLE_CHANNELS[1]).getValue());
+		assertFalse(sims[1].acknowledges((byte) 0x29));
+	}
+
+	@Test
+	void rangesOnTheSharedSchedule() throws InterruptedException {
+		assertTrue(array.init());
+		array.setRangeTiming(10, 0);
+		array.start();
+
+		for (int i = 0; i < 2000 && array.getSampleCount() < 3 * sims.length; i++) {
+			clock.advance(0.005);
+			Thread.sleep(1);
+		}
+		array.periodic();
+		for (int i = 0; i < sims.length; i++) {
+			assertTrue(array.isValid(i));
+		}
+	}
+}
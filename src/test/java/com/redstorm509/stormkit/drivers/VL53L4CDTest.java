@@ -0,0 +1,216 @@
+package com.redstorm509.stormkit.drivers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.redstorm509.stormkit.drivers.simulation.SimulatedI2CTransport;
+import com.redstorm509.stormkit.drivers.simulation.VL53L4CDSim;
+import com.redstorm509.stormkit.util.LoopTimeSource;
+import com.redstorm509.stormkit.util.VirtualTimeSource;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.I2C;
+
+/**
+ * Runs the driver against a simulated sensor. The driver and the sensor share a virtual clock, so waits complete instantly and every run sees the same
+ * timing.
+ */
+class VL53L4CDTest {
+	private static final int PORT = I2C.Port.kOnboard.value;
+
+	private VirtualTimeSource clock;
+	private SimulatedI2CTransport transport;
+	private VL53L4CDSim sim;
+	private VL53L4CD sensor;
+
+	@BeforeAll
+	static void initializeHal() {
+		HAL.initialize(500, 0);
+	}
+
+	@BeforeEach
+	void setUp() {
+		clock = new VirtualTimeSource();
+		transport = new SimulatedI2CTransport();
+		sim = new VL53L4CDSim(clock);
+		transport.addDevice(sim);
+		I2CBus.setTransport(PORT, transport);
+
+		sensor = new VL53L4CD(I2C.Port.kOnboard);
+		sensor.setTimeSource(clock);
+	}
+
+	@AfterEach
+	void tearDown() {
+		sensor.close();
+		I2CBus.setTransport(PORT, null);
+	}
+
+	@Test
+	void waitsForBoot() {
+		sim.setBootTime(0.05);
+		assertTrue(sensor.waitForBoot());
+		assertTrue(clock.getTimestampSeconds() >= 0.05);
+	}
+
+	@Test
+	void timesOutIfTheSensorNeverBoots() {
+		sim.setBootTime(5.0);
+		assertFalse(sensor.waitForBoot());
+		assertFalse(sensor.init());
+	}
+
+	@Test
+	void timesOutOnAClockThatOnlyMovesBetweenLoops() {
+		// The loop clock never moves while init blocks, so only the number of polls can end the wait.
+		sensor.setTimeSource(new LoopTimeSource(clock));
+		sim.setBootTime(5.0);
+		assertFalse(sensor.waitForBoot());
+	}
+
+	@Test
+	void dataReadyTogglesWithEachMeasurement() {
+		assertTrue(sensor.init());
+		sensor.setRangeTiming(10, 0);
+		sensor.beginRanging();
+		assertFalse(sensor.hasMeasurement());
+
+		clock.advance(sim.getRangingPeriodSeconds() + 1e-6);
+		assertTrue(sensor.hasMeasurement());
+		sensor.clearInterrupt();
+		assertFalse(sensor.hasMeasurement());
+
+		clock.advance(sim.getRangingPeriodSeconds() + 1e-6);
+		assertTrue(sensor.hasMeasurement());
+	}
+
+	@Test
+	void autonomousModeRangesAtTheInterMeasurementPeriod() {
+		assertTrue(sensor.init());
+		sensor.setRangeTiming(20, 100);
+		assertEquals(0.1, sim.getRangingPeriodSeconds(), 1e-3);
+
+		sensor.beginRanging();
+		clock.advance(0.099);
+		assertFalse(sensor.hasMeasurement());
+		clock.advance(0.002);
+		assertTrue(sensor.hasMeasurement());
+	}
+
+	@Test
+	void changesDeviceAddress() {
+		assertTrue(sensor.init());
+		sensor.changeDeviceAddress((byte) 0x31);
+		assertEquals(0x31, sim.getAddress());
+		assertFalse(sim.acknowledges((byte) 0x29));
+
+		long failures = transport.getFailureCount();
+		sensor.startRanging();
+		VL53L4CD.Measurement measurement = sensor.measure();
+		assertTrue(measurement.isValid());
+		assertEquals(failures, transport.getFailureCount());
+	}
+
+	@Test
+	void decodesTheResultBurst() {
+		sim.setDistanceMillimeters(1234);
+		sim.setSignalRate(4000);
+		sim.setAmbientRate(80);
+		sim.setSigma(5);
+		assertTrue(sensor.init());
+		sensor.startRanging();
+
+		VL53L4CD.Measurement measurement = sensor.measure();
+		assertEquals(VL53L4CD.Status.Valid, measurement.status);
+		assertEquals(1234, measurement.distanceMillimeters);
+		assertEquals(4000, measurement.signalRate);
+		assertEquals(80, measurement.ambientRate);
+		assertEquals(5, measurement.sigma);
+		assertEquals(40, measurement.spadsEnabled);
+		assertEquals(clock.getTimestampSeconds(), measurement.timestampSeconds);
+
+		sim.setRangeStatus(6);
+		assertEquals(VL53L4CD.Status.SigmaAboveThreshold, sensor.measure().status);
+	}
+
+	@Test
+	void decodesKnownRegisterValues() {
+		// RESULT_RANGE_STATUS (0x89) through RESULT_DISTANCE (0x96..0x97).
+		byte[] block = new byte[15];
+		block[0x89 - 0x89] = (byte) 0xE6;
+		putWord(block, 0x8C - 0x89, 12 * 256);
+		putWord(block, 0x8E - 0x89, 250);
+		putWord(block, 0x90 - 0x89, 5);
+		putWord(block, 0x92 - 0x89, 32);
+		putWord(block, 0x96 - 0x89, 987);
+
+		VL53L4CD.Measurement measurement = VL53L4CD.decodeResultBlock(block);
+		// Only the low five bits of the status register are the range status.
+		assertEquals(VL53L4CD.Status.SigmaAboveThreshold, measurement.status);
+		assertEquals(12, measurement.spadsEnabled);
+		assertEquals(2000, measurement.signalRate);
+		assertEquals(40, measurement.ambientRate);
+		assertEquals(8, measurement.sigma);
+		assertEquals(987, measurement.distanceMillimeters);
+	}
+
+	@Test
+	void asyncRangingDeliversSamples() throws InterruptedException {
+		sim.setDistanceMillimeters(321);
+		sensor.startAsync();
+		assertTrue(advanceUntil(() -> sensor.getMeasurementCount() >= 3));
+
+		VL53L4CD.Measurement latest = sensor.getLatestMeasurement();
+		assertNotNull(latest);
+		assertEquals(321, latest.distanceMillimeters);
+
+		sensor.stopAsync();
+		assertFalse(sensor.isAsync());
+		assertFalse(sim.isRanging());
+	}
+
+	@Test
+	void scheduledRangingDeliversSamplesAndStopsTheBusThread() throws InterruptedException {
+		assertTrue(sensor.startScheduled());
+		I2CBus bus = I2CBus.acquire(PORT);
+		try {
+			assertTrue(bus.isPolling());
+			assertTrue(advanceUntil(() -> sensor.getMeasurementCount() >= 3));
+			assertNotNull(sensor.getLatestMeasurement());
+
+			sensor.stopAsync();
+			assertFalse(sensor.isAsync());
+			assertFalse(bus.isPolling());
+		} finally {
+			bus.release();
+		}
+	}
+
+	/**
+	 * Moves the virtual clock forward in small steps, giving the polling thread real time to run between them.
+	 */
+	private boolean advanceUntil(BooleanSupplier condition) throws InterruptedException {
+		for (int i = 0; i < 2000; i++) {
+			if (condition.getAsBoolean()) {
+				return true;
+			}
+			clock.advance(0.005);
+			Thread.sleep(1);
+		}
+		return condition.getAsBoolean();
+	}
+
+	private static void putWord(byte[] block, int offset, int value) {
+		block[offset] = (byte) (value >> 8);
+		block[offset + 1] = (byte) value;
+	}
+}